@@ -0,0 +1,48 @@
+package pl.ksitarski.simplekmeans;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time of assigning all points to closest mean points and building clusters, without moving mean points.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AssignmentBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int n;
+
+    @Param({"8", "64"})
+    public int k;
+
+    @Param({"2", "64"})
+    public int d;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    @Param({"NONE", "SKIP_UPDATES_BASED_ON_RANGE", "CLUSTERS_WITHOUT_POINTS"})
+    public String optimization;
+
+    private KMeans<double[]> kMeans;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        List<double[]> points = BenchmarkData.points(n, d);
+        kMeans = BenchmarkData.builder(points, k, threads, optimization).build();
+        kMeans.iterate(1);
+    }
+
+    @Benchmark
+    public KMeans<double[]> groupPointsIntoClusters() {
+        kMeans.groupPointsIntoClusters();
+        return kMeans;
+    }
+}
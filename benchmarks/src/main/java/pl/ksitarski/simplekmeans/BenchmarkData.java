@@ -0,0 +1,127 @@
+package pl.ksitarski.simplekmeans;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Reproducible data sets for benchmarks: points scattered around 64 random centers, always generated with the same seed.
+ */
+class BenchmarkData {
+
+    private static final int SEED = 32;
+    private static final int CENTER_COUNT = 64;
+
+    static double[] flatPoints(int count, int dimensions) {
+        var random = new Random(SEED);
+        double[] centers = new double[CENTER_COUNT * dimensions];
+        for (int i = 0; i < centers.length; i++) {
+            centers[i] = random.nextDouble() * 100.0 - 50.0;
+        }
+        double[] points = new double[count * dimensions];
+        for (int i = 0; i < count; i++) {
+            int center = random.nextInt(CENTER_COUNT);
+            for (int j = 0; j < dimensions; j++) {
+                points[i * dimensions + j] = centers[center * dimensions + j] + random.nextGaussian() * 5.0;
+            }
+        }
+        return points;
+    }
+
+    static List<double[]> points(int count, int dimensions) {
+        double[] flat = flatPoints(count, dimensions);
+        List<double[]> points = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            double[] point = new double[dimensions];
+            System.arraycopy(flat, i * dimensions, point, 0, dimensions);
+            points.add(point);
+        }
+        return points;
+    }
+
+    static DataLength<double[]> squaredEuclidean() {
+        return (obj1, obj2) -> {
+            double sum = 0;
+            for (int i = 0; i < obj1.length; i++) {
+                double diff = obj1[i] - obj2[i];
+                sum += diff * diff;
+            }
+            return sum;
+        };
+    }
+
+    static DataLength<double[]> euclidean() {
+        var squaredEuclidean = squaredEuclidean();
+        return (obj1, obj2) -> Math.sqrt(squaredEuclidean.getLength(obj1, obj2));
+    }
+
+    static DataToMean<double[]> mean() {
+        return input -> {
+            double[] result = new double[input.get(0).length];
+            for (var point : input) {
+                for (int i = 0; i < result.length; i++) {
+                    result[i] += point[i];
+                }
+            }
+            for (int i = 0; i < result.length; i++) {
+                result[i] /= input.size();
+            }
+            return result;
+        };
+    }
+
+    static Supplier<MeanAccumulator<double[]>> meanAccumulator() {
+        return () -> new MeanAccumulator<>() {
+            private double[] sums;
+            private double weightSum = 0;
+
+            @Override
+            public void add(double[] point, double weight) {
+                if (sums == null) {
+                    sums = new double[point.length];
+                }
+                for (int i = 0; i < sums.length; i++) {
+                    sums[i] += point[i] * weight;
+                }
+                weightSum += weight;
+            }
+
+            @Override
+            public double[] getMean() {
+                double[] result = new double[sums.length];
+                for (int i = 0; i < result.length; i++) {
+                    result[i] = sums[i] / weightSum;
+                }
+                return result;
+            }
+        };
+    }
+
+    /**
+     * Builder configured the same way for all benchmarks, with given optimization.
+     */
+    static KMeansBuilder<double[]> builder(List<double[]> points, int resultCount, int threads, String optimization) {
+        boolean metric = optimization.equals("TRIANGLE_INEQUALITY");
+        var builder = new KMeansBuilder<>(points, resultCount, mean(), metric ? euclidean() : squaredEuclidean());
+        if (threads > 1) {
+            builder.setThreadCount(threads);
+        }
+        switch (optimization) {
+            case "SKIP_UPDATES_BASED_ON_RANGE":
+                builder.setOptimizationSkipUpdatesBasedOnRange();
+                break;
+            case "TRIANGLE_INEQUALITY":
+                builder.setOptimizationTriangleInequality();
+                break;
+            case "CLUSTERS_WITHOUT_POINTS":
+                builder.setMeanAccumulator(meanAccumulator()).setOptimizationClustersWithoutPoints();
+                break;
+            case "NONE":
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown optimization " + optimization);
+        }
+        return builder;
+    }
+}
@@ -0,0 +1,50 @@
+package pl.ksitarski.simplekmeans;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Same as IterateBenchmark, but for DenseKMeans on the same data.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DenseIterateBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int n;
+
+    @Param({"8", "64"})
+    public int k;
+
+    @Param({"2", "64"})
+    public int d;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    @Param({"10"})
+    public int iterations;
+
+    private double[] points;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        points = BenchmarkData.flatPoints(n, d);
+    }
+
+    @Benchmark
+    public double iterate() {
+        var builder = new DenseKMeansBuilder(points, d, k);
+        if (threads > 1) {
+            builder.setThreadCount(threads);
+        }
+        var kMeans = builder.build();
+        kMeans.iterate(iterations);
+        return kMeans.getStandardDeviation();
+    }
+}
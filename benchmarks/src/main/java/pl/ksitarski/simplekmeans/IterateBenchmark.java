@@ -0,0 +1,50 @@
+package pl.ksitarski.simplekmeans;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time of building KMeans and running a fixed number of iterations from seeding.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IterateBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int n;
+
+    @Param({"8", "64"})
+    public int k;
+
+    @Param({"2", "64"})
+    public int d;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    @Param({"NONE", "SKIP_UPDATES_BASED_ON_RANGE", "TRIANGLE_INEQUALITY", "CLUSTERS_WITHOUT_POINTS"})
+    public String optimization;
+
+    @Param({"10"})
+    public int iterations;
+
+    private List<double[]> points;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        points = BenchmarkData.points(n, d);
+    }
+
+    @Benchmark
+    public double iterate() {
+        var kMeans = BenchmarkData.builder(points, k, threads, optimization).build();
+        kMeans.iterate(iterations);
+        return kMeans.getStandardDeviation();
+    }
+}
@@ -0,0 +1,54 @@
+package pl.ksitarski.simplekmeans;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time of calculating mean points of freshly built clusters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MeanUpdateBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int n;
+
+    @Param({"8", "64"})
+    public int k;
+
+    @Param({"2", "64"})
+    public int d;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    private KMeans<double[]> kMeans;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        List<double[]> points = BenchmarkData.points(n, d);
+        kMeans = BenchmarkData.builder(points, k, threads, "NONE").build();
+        kMeans.iterate(1);
+    }
+
+    /**
+     * Clusters cache their mean points, so every invocation needs new ones. Invocations take milliseconds, so the
+     * overhead of per-invocation setup does not matter.
+     */
+    @Setup(Level.Invocation)
+    public void groupPointsIntoClusters() {
+        kMeans.groupPointsIntoClusters();
+    }
+
+    @Benchmark
+    public KMeans<double[]> calculateMeanPoints() {
+        kMeans.calculateMeanPoints();
+        return kMeans;
+    }
+}
@@ -0,0 +1,64 @@
+package pl.ksitarski.simplekmeans;
+
+import jdk.jfr.*;
+
+/**
+ * Java Flight Recorder event committed after every KMeans iteration. Created by IterationEvents only while a recording
+ * enables it.
+ */
+@Name("pl.ksitarski.simplekmeans.Iteration")
+@Label("KMeans Iteration")
+@Category("simple_kmeans")
+@Description("Single iteration of KMeans")
+class IterationEvent extends Event implements IterationRecorder {
+
+    @Label("Iteration")
+    int iteration;
+
+    @Label("Assignment Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long assignmentTime;
+
+    @Label("Mean Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long meanTime;
+
+    @Label("Length Calculations")
+    long lengthCalculations;
+
+    @Label("Skipped Length Calculations")
+    long skippedLengthCalculations;
+
+    @Label("Changed Points")
+    int changedPoints;
+
+    @Label("Reseeded Clusters")
+    int reseededClusters;
+
+    @Label("Max Mean Point Shift")
+    double maxMeanPointShift;
+
+    @Label("Inertia")
+    double inertia;
+
+    @Label("Threads")
+    int threads;
+
+    @Override
+    public void record(IterationStatistics statistics, int threads) {
+        end();
+        if (shouldCommit()) {
+            iteration = statistics.getIteration();
+            assignmentTime = statistics.getAssignmentNanos();
+            meanTime = statistics.getMeanNanos();
+            lengthCalculations = statistics.getLengthCalculations();
+            skippedLengthCalculations = statistics.getSkippedLengthCalculations();
+            changedPoints = statistics.getChangedPoints();
+            reseededClusters = statistics.getReseededClusters();
+            maxMeanPointShift = statistics.getMaxMeanPointShift();
+            inertia = statistics.getInertia();
+            this.threads = threads;
+            commit();
+        }
+    }
+}
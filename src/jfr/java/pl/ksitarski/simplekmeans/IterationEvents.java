@@ -0,0 +1,23 @@
+package pl.ksitarski.simplekmeans;
+
+import jdk.jfr.EventType;
+
+import java.util.function.Supplier;
+
+/**
+ * Creates IterationEvents for IterationRecorder, only while a recording enables them.
+ */
+class IterationEvents implements Supplier<IterationRecorder> {
+
+    private static final EventType EVENT_TYPE = EventType.getEventType(IterationEvent.class);
+
+    @Override
+    public IterationRecorder get() {
+        if (!EVENT_TYPE.isEnabled()) {
+            return IterationRecorder.NONE;
+        }
+        var event = new IterationEvent();
+        event.begin();
+        return event;
+    }
+}
@@ -0,0 +1,34 @@
+package pl.ksitarski.simplekmeans;
+
+/**
+ * Points stored row-major in a double array in memory. DenseKMeans reads such points directly, without copying.
+ */
+class ArrayPointSource implements DensePointSource {
+
+    private final double[] values;
+    private final int dimensions;
+
+    ArrayPointSource(double[] values, int dimensions) {
+        this.values = values;
+        this.dimensions = dimensions;
+    }
+
+    double[] getValues() {
+        return values;
+    }
+
+    @Override
+    public int getPointCount() {
+        return values.length / dimensions;
+    }
+
+    @Override
+    public int getDimensions() {
+        return dimensions;
+    }
+
+    @Override
+    public void read(int from, int to, double[] buffer) {
+        System.arraycopy(values, from * dimensions, buffer, 0, (to - from) * dimensions);
+    }
+}
@@ -0,0 +1,380 @@
+package pl.ksitarski.simplekmeans;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Bisecting KMeans: starts with all points in one cluster and repeatedly splits clusters in two with 2-means, until
+ * there are <i>resultCount</i> clusters. Every split only looks at points of the cluster being split, so the whole run
+ * costs about n * log(k) length calculations per split iteration instead of n * k per iteration of KMeans, which makes
+ * very large result counts feasible.
+ * <br>
+ * Splits are done in rounds: every round splits the clusters with the biggest sums of lengths, as many of them as there
+ * are clusters (or fewer, when that would give more than <i>resultCount</i> clusters). Splits of one round are
+ * independent and run in parallel; while there are fewer of them than threads, each split runs on all threads instead.
+ */
+public class BisectingKMeans<T> implements AutoCloseable {
+
+    private final BisectingKMeansBuilder.Arguments<T> arguments;
+    private final List<T> inputPoints;
+    private final DataLength<T> dataLength;
+    private final DataToMean<T> dataToMean;
+    private final ParallelRunner parallelRunner;
+    private final ParallelRunner sequentialRunner = ParallelRunner.create(false, 1, null);
+
+    private final List<Cluster<T>> allClusters = new ArrayList<>();
+    private List<Cluster<T>> leaves = new ArrayList<>();
+    private List<KMeansCluster<T>> results = null;
+    private CentroidTree<T> centroidTree = null;
+
+    private double percentProgress = 0;
+    private boolean wasRun = false;
+    private volatile boolean canContinue = true;
+
+    BisectingKMeans(BisectingKMeansBuilder.Arguments<T> args) {
+        this.arguments = args;
+        this.inputPoints = args.getInputPoints();
+        this.dataLength = args.getDataLength();
+        this.dataToMean = args.getDataToMean();
+        this.parallelRunner = ParallelRunner.create(args.isMultithreaded(), args.getThreadsMax(), args.getExecutorService());
+    }
+
+    /**
+     * Splits clusters until there are <i>resultCount</i> of them. Ends with fewer clusters when no cluster can be split
+     * anymore, because all of them have only identical points, or when stopped with earlyStop().
+     * @return this object for easier chaining of methods.
+     */
+    public BisectingKMeans<T> run() {
+        if (wasRun) {
+            throw new RuntimeException("BisectingKMeans can only be run once");
+        }
+        canContinue = true;
+        updateProgress(0);
+        final int n = inputPoints.size();
+        int[] indexes = new int[n];
+        for (int i = 0; i < n; i++) {
+            indexes[i] = i;
+        }
+        var rootSeed = arguments.getSeed() != null ? new Random(arguments.getSeed()).nextLong() : new Random().nextLong();
+        var root = new Cluster<T>(indexes, dataToMean.getMean(inputPoints), rootSeed);
+        root.lengthSum = sumLengths(root.mean, indexes, parallelRunner);
+        allClusters.add(root);
+        leaves.add(root);
+
+        final int resultCount = arguments.getResultCount();
+        while (leaves.size() < resultCount && canContinue) {
+            List<Cluster<T>> toSplit = new ArrayList<>();
+            for (var leaf : leaves) {
+                if (leaf.splittable) {
+                    toSplit.add(leaf);
+                }
+            }
+            if (toSplit.isEmpty()) {
+                break;
+            }
+            toSplit.sort(Comparator.comparingDouble((Cluster<T> cluster) -> cluster.lengthSum).reversed());
+            final var round = toSplit.subList(0, Math.min(toSplit.size(), resultCount - leaves.size()));
+            if (round.size() < parallelRunner.getParallelism()) {
+                for (var cluster : round) {
+                    split(cluster, parallelRunner);
+                }
+            } else {
+                parallelRunner.forEachChunk(round.size(), round.size(), (chunk, from, to) -> split(round.get(chunk), sequentialRunner));
+            }
+
+            //children replace their parent in place, so leaves stay in the order of a walk from left to right
+            List<Cluster<T>> newLeaves = new ArrayList<>(leaves.size() + round.size());
+            for (var leaf : leaves) {
+                if (leaf.left != null) {
+                    newLeaves.add(leaf.left);
+                    newLeaves.add(leaf.right);
+                    allClusters.add(leaf.left);
+                    allClusters.add(leaf.right);
+                    leaf.indexes = null;
+                } else {
+                    newLeaves.add(leaf);
+                }
+            }
+            leaves = newLeaves;
+            updateProgress(leaves.size() * 1.0 / resultCount);
+        }
+        wasRun = true;
+        buildResults();
+        return this;
+    }
+
+    /**
+     * Splits given cluster with 2-means, starting from a random point and a point chosen with probability
+     * proportional to its length to the first one. Leaves the cluster without children and marks it as not splittable
+     * when it has no two different points or one side of the split ends up empty.
+     */
+    private void split(Cluster<T> cluster, ParallelRunner runner) {
+        final int[] indexes = cluster.indexes;
+        final int n = indexes.length;
+        final var random = new Random(cluster.seed);
+        if (n < 2) {
+            cluster.splittable = false;
+            return;
+        }
+        final double[] lengths = new double[n];
+        T first = inputPoints.get(indexes[random.nextInt(n)]);
+        runner.forEachChunk(n, (chunk, from, to) -> {
+            for (int i = from; i < to; i++) {
+                lengths[i] = dataLength.getLength(first, inputPoints.get(indexes[i]));
+            }
+        });
+        double total = 0;
+        for (var length : lengths) {
+            total += length;
+        }
+        if (!(total > 0)) {
+            cluster.splittable = false;
+            return;
+        }
+        double target = random.nextDouble() * total;
+        int secondIndex = n - 1;
+        for (int i = 0; i < n; i++) {
+            target -= lengths[i];
+            if (target < 0 && lengths[i] > 0) {
+                secondIndex = i;
+                break;
+            }
+        }
+        @SuppressWarnings("unchecked")
+        final T[] means = (T[]) new Object[]{first, inputPoints.get(indexes[secondIndex])};
+
+        final boolean[] right = new boolean[n];
+        boolean meansMatchLengths = false;
+        for (int iteration = 0; iteration <= arguments.getSplitIterations(); iteration++) {
+            final boolean firstAssignment = iteration == 0;
+            final int[] changed = new int[runner.getChunkCount(n)];
+            runner.forEachChunk(n, changed.length, (chunk, from, to) -> {
+                for (int i = from; i < to; i++) {
+                    var point = inputPoints.get(indexes[i]);
+                    double leftLength = dataLength.getLength(means[0], point);
+                    double rightLength = dataLength.getLength(means[1], point);
+                    boolean isRight = rightLength < leftLength;
+                    if (firstAssignment || isRight != right[i]) {
+                        changed[chunk]++;
+                    }
+                    right[i] = isRight;
+                    lengths[i] = isRight ? rightLength : leftLength;
+                }
+            });
+            int changedPoints = 0;
+            for (var count : changed) {
+                changedPoints += count;
+            }
+            meansMatchLengths = !firstAssignment && changedPoints == 0;
+            if (meansMatchLengths || iteration == arguments.getSplitIterations()) {
+                break;
+            }
+            final List<List<T>> sides = splitPoints(indexes, right);
+            if (sides.get(0).isEmpty() || sides.get(1).isEmpty()) {
+                cluster.splittable = false;
+                return;
+            }
+            runner.forEachChunk(2, 2, (chunk, from, to) -> means[chunk] = dataToMean.getMean(sides.get(chunk)));
+        }
+
+        final int rightCount = countRight(right);
+        if (rightCount == 0 || rightCount == n) {
+            cluster.splittable = false;
+            return;
+        }
+        final int[] leftIndexes = new int[n - rightCount];
+        final int[] rightIndexes = new int[rightCount];
+        for (int i = 0, l = 0, r = 0; i < n; i++) {
+            if (right[i]) {
+                rightIndexes[r++] = indexes[i];
+            } else {
+                leftIndexes[l++] = indexes[i];
+            }
+        }
+        if (!meansMatchLengths) {
+            //stopped on iteration limit, so means of the last assignment still need to be calculated
+            final List<List<T>> sides = splitPoints(indexes, right);
+            runner.forEachChunk(2, 2, (chunk, from, to) -> means[chunk] = dataToMean.getMean(sides.get(chunk)));
+        }
+        cluster.left = new Cluster<>(leftIndexes, means[0], random.nextLong());
+        cluster.right = new Cluster<>(rightIndexes, means[1], random.nextLong());
+        cluster.left.lengthSum = meansMatchLengths ? sumLengths(lengths, right, false) : sumLengths(means[0], leftIndexes, runner);
+        cluster.right.lengthSum = meansMatchLengths ? sumLengths(lengths, right, true) : sumLengths(means[1], rightIndexes, runner);
+    }
+
+    private List<List<T>> splitPoints(int[] indexes, boolean[] right) {
+        List<T> leftPoints = new ArrayList<>();
+        List<T> rightPoints = new ArrayList<>();
+        for (int i = 0; i < indexes.length; i++) {
+            (right[i] ? rightPoints : leftPoints).add(inputPoints.get(indexes[i]));
+        }
+        return List.of(leftPoints, rightPoints);
+    }
+
+    private static int countRight(boolean[] right) {
+        int count = 0;
+        for (var isRight : right) {
+            if (isRight) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static double sumLengths(double[] lengths, boolean[] right, boolean side) {
+        double sum = 0;
+        for (int i = 0; i < lengths.length; i++) {
+            if (right[i] == side) {
+                sum += lengths[i];
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Calculates lengths in parallel, but sums them in order, so that the result does not depend on thread count.
+     */
+    private double sumLengths(T mean, int[] indexes, ParallelRunner runner) {
+        final double[] lengths = new double[indexes.length];
+        runner.forEachChunk(indexes.length, (chunk, from, to) -> {
+            for (int i = from; i < to; i++) {
+                lengths[i] = dataLength.getLength(mean, inputPoints.get(indexes[i]));
+            }
+        });
+        double sum = 0;
+        for (var length : lengths) {
+            sum += length;
+        }
+        return sum;
+    }
+
+    private void buildResults() {
+        List<KMeansCluster<T>> clusters = new ArrayList<>(leaves.size());
+        for (var leaf : leaves) {
+            final int[] indexes = leaf.indexes;
+            clusters.add(new KMeansCluster<>(indexes.length, indexes.length, leaf.lengthSum, leaf.mean, () -> {
+                List<T> points = new ArrayList<>(indexes.length);
+                for (var index : indexes) {
+                    points.add(inputPoints.get(index));
+                }
+                return points;
+            }));
+        }
+        results = Collections.unmodifiableList(clusters);
+
+        //children are always created after their parents, so walking backwards converts children first
+        for (int i = 0; i < leaves.size(); i++) {
+            leaves.get(i).clusterIndex = i;
+        }
+        for (int i = allClusters.size() - 1; i >= 0; i--) {
+            var cluster = allClusters.get(i);
+            cluster.node = cluster.left == null
+                    ? new CentroidTree.Node<>(cluster.mean, cluster.size, null, null, cluster.clusterIndex)
+                    : new CentroidTree.Node<>(cluster.mean, cluster.size, cluster.left.node, cluster.right.node, -1);
+        }
+        centroidTree = new CentroidTree<>(allClusters.get(0).node, dataLength);
+        allClusters.clear();
+        leaves.clear();
+    }
+
+    private void updateProgress(double progress) {
+        this.percentProgress = progress;
+        if (arguments.getOnUpdate() != null) {
+            arguments.getOnUpdate().onUpdate(progress);
+        }
+    }
+
+    /**
+     * Gets progress as a double between 0.0 and 1.0
+     * @return percentProgress
+     */
+    public double getProgress() {
+        return percentProgress;
+    }
+
+    /**
+     * Aborts execution after current round of splits.
+     */
+    public void earlyStop() {
+        canContinue = false;
+    }
+
+    /**
+     * Shuts down threads created for calculations of this object at once, instead of waiting until they end after a
+     * few idle seconds. Executor set with setExecutorService is not shut down. Running after closing creates new threads.
+     */
+    @Override
+    public void close() {
+        parallelRunner.close();
+    }
+
+    /**
+     * Returns resulting clusters, in the order of leaves of the centroid tree from left to right. Points of every
+     * cluster are gathered when they are first requested.
+     * @return list of clusters
+     */
+    public List<KMeansCluster<T>> getClusters() {
+        if (!wasRun) {
+            throw new RuntimeException("Cannot get results before running");
+        }
+        return results;
+    }
+
+    /**
+     * Returns mean points of resulting clusters in form of a list.
+     * @return list with calculated results.
+     */
+    public List<T> getCalculatedMeanPoints() {
+        List<T> meanPoints = new ArrayList<>(getClusters().size());
+        for (var cluster : getClusters()) {
+            meanPoints.add(cluster.getMean());
+        }
+        return meanPoints;
+    }
+
+    /**
+     * Returns tree of all splits, which assigns new points to clusters in about log(k) steps.
+     * @return centroid tree
+     */
+    public CentroidTree<T> getCentroidTree() {
+        if (!wasRun) {
+            throw new RuntimeException("Cannot get results before running");
+        }
+        return centroidTree;
+    }
+
+    /**
+     * Returns sum of lengths from points to mean points of their clusters.
+     * @return inertia
+     */
+    public double getInertia() {
+        double inertia = 0;
+        for (var cluster : getClusters()) {
+            inertia += cluster.getLengthSum();
+        }
+        return inertia;
+    }
+
+    private static class Cluster<T> {
+        int[] indexes;
+        final int size;
+        final T mean;
+        final long seed;
+        double lengthSum;
+        boolean splittable = true;
+        Cluster<T> left;
+        Cluster<T> right;
+        int clusterIndex = -1;
+        CentroidTree.Node<T> node;
+
+        Cluster(int[] indexes, T mean, long seed) {
+            this.indexes = indexes;
+            this.size = indexes.length;
+            this.mean = mean;
+            this.seed = seed;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package pl.ksitarski.simplekmeans;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+public class BisectingKMeansBuilder<T> {
+
+    private final List<T> INPUT_POINTS;
+    private final int RESULT_COUNT;
+    private final DataToMean<T> dataToMean;
+    private final DataLength<T> dataLength;
+
+    private boolean multithreaded = false;
+    private int threadsMax = -1;
+    private ExecutorService executorService = null;
+    private OnUpdate onUpdate;
+    private Long seed = null;
+    private int splitIterations = 10;
+
+    /**
+     * Builder constructor for BisectingKMeans
+     * @param inputPoints input points for kmeans algorithm
+     * @param resultCount number of result points
+     * @param dataToMean function that takes a list of points and generates mean point
+     * @param dataLength function that gives length between two points
+     */
+    public BisectingKMeansBuilder(List<T> inputPoints, int resultCount, DataToMean<T> dataToMean, DataLength<T> dataLength) {
+        if (inputPoints == null || inputPoints.isEmpty()) {
+            throw new IllegalArgumentException("inputPoints needs at least 1 data point");
+        }
+        if (resultCount < 1) {
+            throw new IllegalArgumentException("resultCount needs to be at least 1");
+        }
+        if (dataToMean == null) {
+            throw new IllegalArgumentException("dataToMean cannot be null");
+        }
+        if (dataLength == null) {
+            throw new IllegalArgumentException("dataLength cannot be null");
+        }
+        this.INPUT_POINTS = Collections.unmodifiableList(inputPoints);
+        this.RESULT_COUNT = resultCount;
+        this.dataToMean = dataToMean;
+        this.dataLength = dataLength;
+    }
+
+    /**
+     * Enables multithreading with given thread count
+     * @param count number of threads
+     * @return this
+     */
+    public BisectingKMeansBuilder<T> setThreadCount(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Thread count cannot be lower than 1");
+        }
+        this.threadsMax = count;
+        this.multithreaded = true;
+        return this;
+    }
+
+    /**
+     * Runs calculations on given executor instead of creating own threads. The executor is never shut down by
+     * BisectingKMeans. When thread count is not set, it is taken from the parallelism of a ForkJoinPool or from number of
+     * available processors for other executors.
+     * @param executorService executor to run calculations on, for example ForkJoinPool.commonPool()
+     * @return this
+     */
+    public BisectingKMeansBuilder<T> setExecutorService(ExecutorService executorService) {
+        if (executorService == null) {
+            throw new IllegalArgumentException("executorService cannot be null");
+        }
+        this.executorService = executorService;
+        this.multithreaded = true;
+        return this;
+    }
+
+    /**
+     * Sets maximum number of 2-means iterations of every split. Default is 10.
+     * @param splitIterations iterations of every split
+     * @return this
+     */
+    public BisectingKMeansBuilder<T> setSplitIterations(int splitIterations) {
+        if (splitIterations < 1) {
+            throw new IllegalArgumentException("splitIterations needs to be at least 1");
+        }
+        this.splitIterations = splitIterations;
+        return this;
+    }
+
+    /**
+     * Sets seed of all random choices, so that runs with the same arguments give the same results, whatever the
+     * thread count. Without a seed every run is different.
+     * @param seed seed of random number generator
+     * @return this
+     */
+    public BisectingKMeansBuilder<T> setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Adds OnUpdate function
+     * @param onUpdate function that is called whenever a round of splits is completed
+     * @return this
+     */
+    public BisectingKMeansBuilder<T> onUpdate(OnUpdate onUpdate) {
+        if (onUpdate == null) {
+            throw new IllegalArgumentException("onUpdate cannot be null");
+        }
+        this.onUpdate = onUpdate;
+        return this;
+    }
+
+    /**
+     * Finishes building arguments and returns new BisectingKMeans object
+     * @return finished arguments
+     */
+    public BisectingKMeans<T> build() {
+        return new BisectingKMeans<>(buildArgs());
+    }
+
+
+    private Arguments<T> buildArgs() {
+        return new Arguments<>(INPUT_POINTS, RESULT_COUNT, dataToMean, dataLength, multithreaded, threadsMax, executorService, onUpdate, seed, splitIterations);
+    }
+
+    static class Arguments<T> {
+
+        private final List<T> INPUT_POINTS;
+        private final int RESULT_COUNT;
+        private final DataToMean<T> dataToMean;
+        private final DataLength<T> dataLength;
+
+        private final boolean MULTITHREADED;
+        private final int threadsMax;
+        private final ExecutorService executorService;
+        private final OnUpdate onUpdate;
+        private final Long seed;
+        private final int splitIterations;
+
+        private Arguments(List<T> inputPoints, int resultCount, DataToMean<T> dataToMean, DataLength<T> dataLength, boolean multithreaded, int threadsMax, ExecutorService executorService, OnUpdate onUpdate, Long seed, int splitIterations) {
+            this.INPUT_POINTS = inputPoints;
+            this.RESULT_COUNT = resultCount;
+            this.dataToMean = dataToMean;
+            this.dataLength = dataLength;
+            this.MULTITHREADED = multithreaded;
+            this.threadsMax = threadsMax;
+            this.executorService = executorService;
+            this.onUpdate = onUpdate;
+            this.seed = seed;
+            this.splitIterations = splitIterations;
+        }
+
+        List<T> getInputPoints() {
+            return INPUT_POINTS;
+        }
+
+        int getResultCount() {
+            return RESULT_COUNT;
+        }
+
+        DataToMean<T> getDataToMean() {
+            return dataToMean;
+        }
+
+        DataLength<T> getDataLength() {
+            return dataLength;
+        }
+
+        boolean isMultithreaded() {
+            return MULTITHREADED;
+        }
+
+        int getThreadsMax() {
+            return threadsMax;
+        }
+
+        ExecutorService getExecutorService() {
+            return executorService;
+        }
+
+        OnUpdate getOnUpdate() {
+            return onUpdate;
+        }
+
+        Long getSeed() {
+            return seed;
+        }
+
+        int getSplitIterations() {
+            return splitIterations;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package pl.ksitarski.simplekmeans;
+
+/**
+ * Assignment of dense points to mean points by squared euclidean distance, calculated as
+ * <i>|x|^2 - 2 x&middot;c + |c|^2</i> over tiles of points and mean points, so dot products of a whole tile are
+ * calculated like a small matrix multiplication while both tiles stay in cache.
+ * <br>
+ * The expansion rounds differently than summing squared differences, so mean points closer to the closest one than the
+ * rounding error bound are kept as candidates, and lengths to them are calculated again with
+ * DistanceKernels.squaredEuclidean. Labels and lengths are therefore the same as the ones of a plain scan, including ties
+ * resolved to the lower index. Points with too many candidates are scanned fully.
+ */
+class BlockedAssignment {
+
+    private static final int TILE_VALUES = 1 << 14;
+    private static final int MIN_TILE_SIZE = 8;
+    private static final int MAX_TILE_SIZE = 128;
+    private static final int MIN_RESULT_COUNT = 32;
+    private static final int MIN_DIMENSIONS = 16;
+    private static final int MAX_CANDIDATES = 4;
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("simplekmeans.blocked", "true"));
+
+    private final double[] means;
+    private final double[] meanNorms;
+    private final double maxMeanNorm;
+    private final int resultCount;
+    private final int dimensions;
+    private final int tileSize;
+    private final double errorFactor;
+
+    /**
+     * @param means mean points, stored one after another
+     */
+    BlockedAssignment(double[] means, int resultCount, int dimensions) {
+        this.means = means;
+        this.resultCount = resultCount;
+        this.dimensions = dimensions;
+        this.tileSize = Math.max(MIN_TILE_SIZE, Math.min(MAX_TILE_SIZE, TILE_VALUES / dimensions));
+        //generous bound of relative rounding error of both the expansion and a plain scan of d squared differences
+        this.errorFactor = 4.0 * (dimensions + 2) * Math.ulp(1.0);
+        this.meanNorms = new double[resultCount];
+        double maxMeanNorm = 0;
+        for (int c = 0; c < resultCount; c++) {
+            meanNorms[c] = squaredNorm(means, c * dimensions, dimensions);
+            maxMeanNorm = Math.max(maxMeanNorm, meanNorms[c]);
+        }
+        this.maxMeanNorm = maxMeanNorm;
+    }
+
+    /**
+     * Blocking only pays off when there are enough mean points and dimensions to reuse loaded values. Setting system
+     * property simplekmeans.blocked to false turns it off.
+     */
+    static boolean isApplicable(DenseDistance distance, int resultCount, int dimensions) {
+        return ENABLED && distance == DenseDistance.SQUARED_EUCLIDEAN && resultCount >= MIN_RESULT_COUNT && dimensions >= MIN_DIMENSIONS;
+    }
+
+    /**
+     * Maximum number of points assigned by a single call of assign.
+     */
+    int getTileSize() {
+        return tileSize;
+    }
+
+    Workspace createWorkspace() {
+        return new Workspace();
+    }
+
+    /**
+     * Assigns <i>count</i> points, at most getTileSize(), to their closest mean points, writing results to labels and
+     * lengths of the workspace.
+     */
+    void assign(double[] values, int offset, int count, Workspace workspace) {
+        final int d = dimensions;
+        final double[] pointNorms = workspace.pointNorms;
+        final double[] best = workspace.best;
+        final double[] dots = workspace.dots;
+        for (int p = 0; p < count; p++) {
+            pointNorms[p] = squaredNorm(values, offset + p * d, d);
+            best[p] = Double.POSITIVE_INFINITY;
+            workspace.labels[p] = 0;
+            workspace.candidateCounts[p] = 0;
+            workspace.overflow[p] = false;
+        }
+        for (int meanFrom = 0; meanFrom < resultCount; meanFrom += tileSize) {
+            final int meanCount = Math.min(tileSize, resultCount - meanFrom);
+            DistanceKernels.INSTANCE.dots(values, offset, count, means, meanFrom * d, meanCount, d, dots);
+            for (int p = 0; p < count; p++) {
+                final int dotsOffset = p * meanCount;
+                final double pointNorm = pointNorms[p];
+                final double margin = 2 * errorFactor * (pointNorm + maxMeanNorm);
+                double threshold = best[p] + margin;
+                for (int c = 0; c < meanCount; c++) {
+                    double length = pointNorm - 2 * dots[dotsOffset + c] + meanNorms[meanFrom + c];
+                    if (length <= threshold) {
+                        consider(workspace, p, meanFrom + c, length, margin);
+                        threshold = best[p] + margin;
+                    }
+                }
+            }
+        }
+        for (int p = 0; p < count; p++) {
+            resolve(values, offset + p * d, workspace, p);
+        }
+    }
+
+    /**
+     * Updates closest mean point of point <i>p</i>, keeping every mean point that rounding could make closer than it
+     * as a candidate.
+     */
+    private static void consider(Workspace workspace, int p, int index, double length, double margin) {
+        final double closestLength = workspace.best[p];
+        if (length < closestLength) {
+            if (closestLength - length <= margin) {
+                addCandidate(workspace, p, workspace.labels[p], closestLength);
+                //candidates that are now too far from the new closest mean point cannot win anymore
+                final int from = p * MAX_CANDIDATES;
+                int kept = 0;
+                for (int i = 0; i < workspace.candidateCounts[p]; i++) {
+                    if (workspace.candidateLengths[from + i] <= length + margin) {
+                        workspace.candidates[from + kept] = workspace.candidates[from + i];
+                        workspace.candidateLengths[from + kept] = workspace.candidateLengths[from + i];
+                        kept++;
+                    }
+                }
+                workspace.candidateCounts[p] = kept;
+            } else {
+                workspace.candidateCounts[p] = 0;
+                workspace.overflow[p] = false;
+            }
+            workspace.best[p] = length;
+            workspace.labels[p] = index;
+        } else {
+            addCandidate(workspace, p, index, length);
+        }
+    }
+
+    private static void addCandidate(Workspace workspace, int p, int index, double length) {
+        final int count = workspace.candidateCounts[p];
+        if (count == MAX_CANDIDATES) {
+            workspace.overflow[p] = true;
+            return;
+        }
+        workspace.candidates[p * MAX_CANDIDATES + count] = index;
+        workspace.candidateLengths[p * MAX_CANDIDATES + count] = length;
+        workspace.candidateCounts[p] = count + 1;
+    }
+
+    /**
+     * Chooses between the closest mean point and its candidates by lengths calculated the same way as by a plain scan.
+     */
+    private void resolve(double[] values, int pointOffset, Workspace workspace, int p) {
+        if (workspace.overflow[p]) {
+            DistanceKernels.INSTANCE.squaredEuclidean(values, pointOffset, means, resultCount, dimensions, workspace.scanLengths);
+            int closest = 0;
+            double closestLength = Double.POSITIVE_INFINITY;
+            for (int c = 0; c < resultCount; c++) {
+                if (workspace.scanLengths[c] < closestLength) {
+                    closest = c;
+                    closestLength = workspace.scanLengths[c];
+                }
+            }
+            workspace.labels[p] = closest;
+            workspace.lengths[p] = closestLength;
+            return;
+        }
+        int closest = workspace.labels[p];
+        double closestLength = length(values, pointOffset, closest);
+        for (int i = 0; i < workspace.candidateCounts[p]; i++) {
+            int candidate = workspace.candidates[p * MAX_CANDIDATES + i];
+            double length = length(values, pointOffset, candidate);
+            if (length < closestLength || (length == closestLength && candidate < closest)) {
+                closest = candidate;
+                closestLength = length;
+            }
+        }
+        workspace.labels[p] = closest;
+        workspace.lengths[p] = closestLength;
+    }
+
+    private double length(double[] values, int pointOffset, int meanIndex) {
+        return DistanceKernels.INSTANCE.squaredEuclidean(values, pointOffset, means, meanIndex * dimensions, dimensions);
+    }
+
+    private static double squaredNorm(double[] values, int offset, int dimensions) {
+        double sum = 0;
+        for (int j = 0; j < dimensions; j++) {
+            sum += values[offset + j] * values[offset + j];
+        }
+        return sum;
+    }
+
+    /**
+     * Buffers of a single thread.
+     */
+    class Workspace {
+        final int[] labels = new int[tileSize];
+        final double[] lengths = new double[tileSize];
+        private final double[] pointNorms = new double[tileSize];
+        private final double[] best = new double[tileSize];
+        private final int[] candidates = new int[tileSize * MAX_CANDIDATES];
+        private final double[] candidateLengths = new double[tileSize * MAX_CANDIDATES];
+        private final int[] candidateCounts = new int[tileSize];
+        private final boolean[] overflow = new boolean[tileSize];
+        private final double[] dots = new double[tileSize * tileSize];
+        private final double[] scanLengths = new double[resultCount];
+    }
+}
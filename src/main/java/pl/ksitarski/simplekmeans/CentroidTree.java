@@ -0,0 +1,153 @@
+package pl.ksitarski.simplekmeans;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Binary tree of mean points built by BisectingKMeans: every inner node is a cluster that was split in two, and leaves
+ * are the resulting clusters. A point is assigned by descending to the closer child at every node, so it takes about
+ * 2 * depth length calculations instead of one per cluster. The result is not always the closest leaf, but the leaf
+ * that the point would have fallen into while splitting.
+ * <br>
+ * Never changes after it is created, so it can be shared by any number of threads.
+ */
+public class CentroidTree<T> {
+
+    /**
+     * Node of the tree. Inner nodes have both children, leaves have none.
+     */
+    public static class Node<T> {
+        private final T mean;
+        private final int size;
+        private final Node<T> left;
+        private final Node<T> right;
+        private final int clusterIndex;
+
+        Node(T mean, int size, Node<T> left, Node<T> right, int clusterIndex) {
+            this.mean = mean;
+            this.size = size;
+            this.left = left;
+            this.right = right;
+            this.clusterIndex = clusterIndex;
+        }
+
+        /**
+         * @return mean of all points below this node
+         */
+        public T getMean() {
+            return mean;
+        }
+
+        /**
+         * @return number of input points below this node
+         */
+        public int getSize() {
+            return size;
+        }
+
+        public boolean isLeaf() {
+            return left == null;
+        }
+
+        /**
+         * @return first child, or null for leaves
+         */
+        public Node<T> getLeft() {
+            return left;
+        }
+
+        /**
+         * @return second child, or null for leaves
+         */
+        public Node<T> getRight() {
+            return right;
+        }
+
+        /**
+         * @return index of the cluster in BisectingKMeans.getClusters() for leaves, -1 for inner nodes
+         */
+        public int getClusterIndex() {
+            return clusterIndex;
+        }
+    }
+
+    private final Node<T> root;
+    private final DataLength<T> dataLength;
+    private final int leafCount;
+    private final int depth;
+
+    CentroidTree(Node<T> root, DataLength<T> dataLength) {
+        this.root = root;
+        this.dataLength = dataLength;
+        //trees of very uneven clusters can be deep, so they are walked without recursion
+        int leafCount = 0;
+        int depth = 0;
+        Deque<Node<T>> nodes = new ArrayDeque<>();
+        Deque<Integer> depths = new ArrayDeque<>();
+        nodes.push(root);
+        depths.push(0);
+        while (!nodes.isEmpty()) {
+            var node = nodes.pop();
+            int nodeDepth = depths.pop();
+            if (node.isLeaf()) {
+                leafCount++;
+                depth = Math.max(depth, nodeDepth);
+            } else {
+                nodes.push(node.left);
+                depths.push(nodeDepth + 1);
+                nodes.push(node.right);
+                depths.push(nodeDepth + 1);
+            }
+        }
+        this.leafCount = leafCount;
+        this.depth = depth;
+    }
+
+    /**
+     * Returns index of the leaf cluster given point descends to.
+     * @param point point to assign
+     * @return index of cluster, matching order of BisectingKMeans.getClusters()
+     */
+    public int predict(T point) {
+        var node = root;
+        while (!node.isLeaf()) {
+            double leftLength = dataLength.getLength(node.left.mean, point);
+            double rightLength = dataLength.getLength(node.right.mean, point);
+            node = rightLength < leftLength ? node.right : node.left;
+        }
+        return node.clusterIndex;
+    }
+
+    /**
+     * Writes index of the leaf cluster of every given point to <i>out</i>.
+     * @param points points to assign
+     * @param out array at least as long as <i>points</i>
+     */
+    public void predict(List<T> points, int[] out) {
+        if (out.length < points.size()) {
+            throw new IllegalArgumentException("out needs at least " + points.size() + " elements, has: " + out.length);
+        }
+        for (int i = 0; i < points.size(); i++) {
+            out[i] = predict(points.get(i));
+        }
+    }
+
+    public Node<T> getRoot() {
+        return root;
+    }
+
+    /**
+     * @return number of leaves, which is the number of clusters
+     */
+    public int getLeafCount() {
+        return leafCount;
+    }
+
+    /**
+     * @return number of edges on the longest path from the root to a leaf
+     */
+    public int getDepth() {
+        return depth;
+    }
+}
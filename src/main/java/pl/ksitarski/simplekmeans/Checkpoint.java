@@ -0,0 +1,89 @@
+package pl.ksitarski.simplekmeans;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * State of KMeans needed to resume iterating: mean points and number of done iterations, together with number of input
+ * points to check that the checkpoint is resumed on the same data. The file starts with a magic number and format
+ * version, followed by counts and points written by PointSerializer.
+ */
+class Checkpoint<T> {
+
+    private static final int MAGIC = 0x4B4D4350;
+    private static final int VERSION = 1;
+
+    private final List<T> meanPoints;
+    private final int iteration;
+    private final int inputPointCount;
+
+    Checkpoint(List<T> meanPoints, int iteration, int inputPointCount) {
+        this.meanPoints = meanPoints;
+        this.iteration = iteration;
+        this.inputPointCount = inputPointCount;
+    }
+
+    /**
+     * Writes checkpoint to a temporary file next to <i>file</i> and moves it in place, so <i>file</i> always contains
+     * a whole checkpoint, even if the process dies while writing.
+     */
+    void write(Path file, PointSerializer<T> serializer) throws IOException {
+        var directory = file.toAbsolutePath().getParent();
+        var temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (var output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                output.writeInt(inputPointCount);
+                output.writeInt(iteration);
+                output.writeInt(meanPoints.size());
+                for (var meanPoint : meanPoints) {
+                    serializer.write(meanPoint, output);
+                }
+            }
+            try {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    static <T> Checkpoint<T> read(Path file, PointSerializer<T> serializer) throws IOException {
+        try (var input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (input.readInt() != MAGIC) {
+                throw new IOException(file + " is not a KMeans checkpoint");
+            }
+            int version = input.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported checkpoint version " + version);
+            }
+            int inputPointCount = input.readInt();
+            int iteration = input.readInt();
+            int resultCount = input.readInt();
+            List<T> meanPoints = new ArrayList<>(resultCount);
+            for (int i = 0; i < resultCount; i++) {
+                meanPoints.add(serializer.read(input));
+            }
+            return new Checkpoint<>(meanPoints, iteration, inputPointCount);
+        } catch (EOFException e) {
+            throw new IOException(file + " is truncated", e);
+        }
+    }
+
+    List<T> getMeanPoints() {
+        return meanPoints;
+    }
+
+    int getIteration() {
+        return iteration;
+    }
+
+    int getInputPointCount() {
+        return inputPointCount;
+    }
+}
@@ -0,0 +1,86 @@
+package pl.ksitarski.simplekmeans;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Writes checkpoints on a background thread, so iterating only waits for a copy of the list of mean points. If a new
+ * checkpoint is requested while the previous one is still being written, only the newest waiting one is written. The
+ * thread ends when idle, so a KMeans that is no longer used does not keep it alive.
+ */
+class CheckpointWriter<T> {
+
+    private final Path file;
+    private final int interval;
+    private final PointSerializer<T> serializer;
+    private final ThreadPoolExecutor executor;
+    private final AtomicReference<Checkpoint<T>> waiting = new AtomicReference<>();
+    private volatile Exception error = null;
+
+    CheckpointWriter(Path file, int interval, PointSerializer<T> serializer) {
+        this.file = file;
+        this.interval = interval;
+        this.serializer = serializer;
+        this.executor = new ThreadPoolExecutor(1, 1, 10, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            var thread = new Thread(runnable, "simple_kmeans-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    int getInterval() {
+        return interval;
+    }
+
+    /**
+     * Schedules writing given checkpoint.
+     */
+    void write(Checkpoint<T> checkpoint) {
+        throwIfFailed();
+        if (waiting.getAndSet(checkpoint) == null) {
+            executor.execute(this::writeWaiting);
+        }
+    }
+
+    /**
+     * Waits until all scheduled checkpoints are written.
+     */
+    void flush() {
+        try {
+            executor.submit(() -> { }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for checkpoint", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Exception in checkpoint thread", e.getCause());
+        }
+        throwIfFailed();
+    }
+
+    private void writeWaiting() {
+        var checkpoint = waiting.getAndSet(null);
+        if (checkpoint == null) {
+            return;
+        }
+        try {
+            checkpoint.write(file, serializer);
+        } catch (IOException | RuntimeException e) {
+            error = e;
+        }
+    }
+
+    private void throwIfFailed() {
+        var failure = error;
+        if (failure != null) {
+            error = null;
+            if (failure instanceof IOException) {
+                throw new UncheckedIOException("Writing checkpoint to " + file + " failed", (IOException) failure);
+            }
+            throw new RuntimeException("Writing checkpoint to " + file + " failed", failure);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package pl.ksitarski.simplekmeans;
+
+import java.time.Duration;
+
+/**
+ * Rules that tell KMeans.iterateUntilConverged when to stop. Iteration stops after the first iteration that meets
+ * any of set rules, or earlier if earlyStop() is called. At least one rule needs to be set.
+ */
+public class ConvergenceCriteria {
+
+    private double maxChangedPointsFraction = -1;
+    private double maxMeanPointShift = -1;
+    private long timeBudgetNanos = -1;
+    private int maxIterations = -1;
+
+    /**
+     * Stops when at most given fraction of points was assigned to a different mean point than in the previous
+     * iteration. 0.0 stops only when no point changed its cluster, so further iterations would not change results. Not
+     * used in mini-batch mode, where changed points are not known.
+     * @param fraction fraction of points between 0.0 and 1.0
+     * @return this
+     */
+    public ConvergenceCriteria setMaxChangedPointsFraction(double fraction) {
+        if (!(fraction >= 0 && fraction <= 1)) {
+            throw new IllegalArgumentException("fraction needs to be between 0.0 and 1.0, is: " + fraction);
+        }
+        this.maxChangedPointsFraction = fraction;
+        return this;
+    }
+
+    /**
+     * Stops when no mean point moved by more than given length, as measured by DataLength.
+     * @param length maximum length between old and new position of any mean point
+     * @return this
+     */
+    public ConvergenceCriteria setMaxMeanPointShift(double length) {
+        if (!(length >= 0)) {
+            throw new IllegalArgumentException("length cannot be negative, is: " + length);
+        }
+        this.maxMeanPointShift = length;
+        return this;
+    }
+
+    /**
+     * Stops after the first iteration that ends when given time since the start of iterating has passed. Iterations are
+     * never interrupted, so total time can be longer by up to one iteration.
+     * @param timeBudget time budget
+     * @return this
+     */
+    public ConvergenceCriteria setTimeBudget(Duration timeBudget) {
+        if (timeBudget == null || timeBudget.isNegative() || timeBudget.isZero()) {
+            throw new IllegalArgumentException("timeBudget needs to be positive");
+        }
+        this.timeBudgetNanos = timeBudget.toNanos();
+        return this;
+    }
+
+    /**
+     * Stops after given number of iterations.
+     * @param iterationCount maximum number of iterations
+     * @return this
+     */
+    public ConvergenceCriteria setMaxIterations(int iterationCount) {
+        if (iterationCount <= 0) {
+            throw new IllegalArgumentException("Iteration count cannot be lower or equal 0, is: " + iterationCount);
+        }
+        this.maxIterations = iterationCount;
+        return this;
+    }
+
+    boolean hasAnyRule() {
+        return maxChangedPointsFraction >= 0 || maxMeanPointShift >= 0 || timeBudgetNanos > 0 || maxIterations > 0;
+    }
+
+    /**
+     * Checks whether iterating should stop after an iteration with given statistics.
+     */
+    boolean shouldStop(IterationStatistics statistics, int pointCount, int iterationsDone, long elapsedNanos) {
+        if (maxChangedPointsFraction >= 0 && statistics.getChangedPoints() >= 0
+                && statistics.getChangedPoints() <= maxChangedPointsFraction * pointCount) {
+            return true;
+        }
+        if (maxMeanPointShift >= 0 && statistics.getMaxMeanPointShift() <= maxMeanPointShift) {
+            return true;
+        }
+        if (timeBudgetNanos > 0 && elapsedNanos >= timeBudgetNanos) {
+            return true;
+        }
+        return maxIterations > 0 && iterationsDone >= maxIterations;
+    }
+
+    /**
+     * Returns progress towards time budget or maximum number of iterations, whichever is closer, or 0.0 if neither is set.
+     */
+    double getProgress(int iterationsDone, long elapsedNanos) {
+        double progress = 0;
+        if (timeBudgetNanos > 0) {
+            progress = Math.max(progress, elapsedNanos * 1.0 / timeBudgetNanos);
+        }
+        if (maxIterations > 0) {
+            progress = Math.max(progress, iterationsDone * 1.0 / maxIterations);
+        }
+        return Math.min(progress, 1);
+    }
+}
@@ -0,0 +1,121 @@
+package pl.ksitarski.simplekmeans;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Lightweight coreset: a small weighted sample of input points whose weighted sum of lengths to any mean points
+ * approximates the sum of lengths of all input points. Points are sampled with probability that mixes a uniform part
+ * with a part proportional to their length to the mean of all points, and weighted by the inverse of that probability,
+ * so far away points that matter a lot are kept more often, but weigh less. Weighted input points are treated as
+ * that many copies of them.
+ * <br>
+ * Building it takes two parallel passes over input points: one calculating their mean with MeanAccumulator and one
+ * calculating lengths to it, so only <i>n</i> length calculations instead of <i>n * k</i> per iteration.
+ */
+class Coreset<T> {
+
+    private final List<T> points;
+    private final double[] weights;
+
+    private Coreset(List<T> points, double[] weights) {
+        this.points = points;
+        this.weights = weights;
+    }
+
+    /**
+     * Samples coreset of at most <i>size</i> distinct points; points sampled more than once are kept once with summed
+     * weight.
+     * @param inputWeights weights of input points, or null when every point weighs 1
+     */
+    static <T> Coreset<T> sample(List<T> inputPoints, double[] inputWeights, int size, Supplier<MeanAccumulator<T>> meanAccumulator,
+                                 DataLength<T> dataLength, ParallelRunner parallelRunner, Random random) {
+        final int n = inputPoints.size();
+        final T mean = calculateMean(inputPoints, inputWeights, meanAccumulator, parallelRunner);
+        final double[] cumulative = new double[n];
+        parallelRunner.forEachChunk(n, (chunk, from, to) -> {
+            for (int i = from; i < to; i++) {
+                cumulative[i] = dataLength.getLength(mean, inputPoints.get(i));
+            }
+        });
+        double totalWeight = 0;
+        double totalLength = 0;
+        for (int i = 0; i < n; i++) {
+            totalWeight += weight(inputWeights, i);
+            totalLength += weight(inputWeights, i) * cumulative[i];
+        }
+        //probability of point i is weight * (1 / 2totalWeight + length / 2totalLength), turned into a cumulative distribution
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += weight(inputWeights, i) * probability(cumulative[i], totalWeight, totalLength);
+            cumulative[i] = sum;
+        }
+
+        final int[] sampled = new int[size];
+        for (int s = 0; s < size; s++) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            sampled[s] = Math.min(n - 1, index >= 0 ? index + 1 : -index - 1);
+        }
+        Arrays.sort(sampled);
+        List<T> points = new ArrayList<>();
+        double[] weights = new double[size];
+        for (int s = 0; s < size; s++) {
+            final int index = sampled[s];
+            final double previous = index == 0 ? 0 : cumulative[index - 1];
+            final double weight = weight(inputWeights, index) * sum / ((cumulative[index] - previous) * size);
+            if (s > 0 && sampled[s - 1] == index) {
+                weights[points.size() - 1] += weight;
+            } else {
+                weights[points.size()] = weight;
+                points.add(inputPoints.get(index));
+            }
+        }
+        return new Coreset<>(points, Arrays.copyOf(weights, points.size()));
+    }
+
+    private static double probability(double length, double totalWeight, double totalLength) {
+        return totalLength > 0 ? 0.5 / totalWeight + 0.5 * length / totalLength : 1.0 / totalWeight;
+    }
+
+    private static double weight(double[] weights, int i) {
+        return weights != null ? weights[i] : 1;
+    }
+
+    /**
+     * Accumulates chunks of points in parallel and merges partial means, adding every one with weight of its points.
+     */
+    private static <T> T calculateMean(List<T> inputPoints, double[] inputWeights, Supplier<MeanAccumulator<T>> meanAccumulator, ParallelRunner parallelRunner) {
+        final int chunkCount = parallelRunner.getChunkCount(inputPoints.size());
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        final MeanAccumulator<T>[] partials = new MeanAccumulator[chunkCount];
+        final double[] counts = new double[chunkCount];
+        parallelRunner.forEachChunk(inputPoints.size(), chunkCount, (chunk, from, to) -> {
+            var partial = meanAccumulator.get();
+            double count = 0;
+            for (int i = from; i < to; i++) {
+                partial.add(inputPoints.get(i), weight(inputWeights, i));
+                count += weight(inputWeights, i);
+            }
+            partials[chunk] = partial;
+            counts[chunk] = count;
+        });
+        var merged = partials[0];
+        for (int j = 1; j < chunkCount; j++) {
+            if (counts[j] > 0) {
+                merged.add(partials[j].getMean(), counts[j]);
+            }
+        }
+        return merged.getMean();
+    }
+
+    List<T> getPoints() {
+        return points;
+    }
+
+    double[] getWeights() {
+        return weights;
+    }
+}
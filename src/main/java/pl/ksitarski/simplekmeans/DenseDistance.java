@@ -0,0 +1,99 @@
+package pl.ksitarski.simplekmeans;
+
+/**
+ * Built-in lengths between dense points, calculated with DistanceKernels. Can be used with DenseKMeansBuilder, or as
+ * DataLength of double[] points with KMeansBuilder.
+ */
+public enum DenseDistance implements DataLength<double[]> {
+    /**
+     * Sum of squared differences of coordinates.
+     */
+    SQUARED_EUCLIDEAN,
+    /**
+     * 1 - cosine of the angle between points, so 0 for points in the same direction. Length involving a zero point is 1.
+     */
+    COSINE,
+    /**
+     * Sum of absolute differences of coordinates.
+     */
+    MANHATTAN;
+
+    /**
+     * Calculates length between two points of the same number of dimensions without allocating, as it is called for
+     * every point and mean point by KMeans.
+     */
+    @Override
+    public double getLength(double[] obj1, double[] obj2) {
+        if (obj1.length != obj2.length) {
+            throw new IllegalArgumentException("Points need the same number of dimensions, have " + obj1.length + " and " + obj2.length);
+        }
+        switch (this) {
+            case SQUARED_EUCLIDEAN:
+                return DistanceKernels.INSTANCE.squaredEuclidean(obj1, 0, obj2, 0, obj1.length);
+            case MANHATTAN:
+                double sum = 0;
+                for (int j = 0; j < obj1.length; j++) {
+                    sum += Math.abs(obj1[j] - obj2[j]);
+                }
+                return sum;
+            default:
+                double dot = 0;
+                double normSquared1 = 0;
+                double normSquared2 = 0;
+                for (int j = 0; j < obj1.length; j++) {
+                    dot += obj1[j] * obj2[j];
+                    normSquared1 += obj1[j] * obj1[j];
+                    normSquared2 += obj2[j] * obj2[j];
+                }
+                final double norms = Math.sqrt(normSquared1) * Math.sqrt(normSquared2);
+                return norms == 0 ? 1 : 1 - dot / norms;
+        }
+    }
+
+    /**
+     * Returns euclidean norms of given points, which COSINE needs for calculateLengths, or null for other lengths.
+     */
+    double[] prepareMeans(double[] means, int meanCount, int dimensions) {
+        return this == COSINE ? calculateNorms(means, meanCount, dimensions) : null;
+    }
+
+    /**
+     * Calculates lengths from a single point to <i>meanCount</i> mean points.
+     * @param meanNorms result of prepareMeans for the same mean points
+     */
+    void calculateLengths(double[] point, int pointOffset, double[] means, double[] meanNorms, int meanCount, int dimensions, double[] out) {
+        var kernels = DistanceKernels.INSTANCE;
+        switch (this) {
+            case SQUARED_EUCLIDEAN:
+                kernels.squaredEuclidean(point, pointOffset, means, meanCount, dimensions, out);
+                break;
+            case MANHATTAN:
+                kernels.manhattan(point, pointOffset, means, meanCount, dimensions, out);
+                break;
+            case COSINE:
+                double pointNormSquared = 0;
+                for (int j = 0; j < dimensions; j++) {
+                    pointNormSquared += point[pointOffset + j] * point[pointOffset + j];
+                }
+                final double pointNorm = Math.sqrt(pointNormSquared);
+                kernels.dot(point, pointOffset, means, meanCount, dimensions, out);
+                for (int c = 0; c < meanCount; c++) {
+                    double norms = pointNorm * meanNorms[c];
+                    out[c] = norms == 0 ? 1 : 1 - out[c] / norms;
+                }
+                break;
+        }
+    }
+
+    private static double[] calculateNorms(double[] points, int count, int dimensions) {
+        double[] norms = new double[count];
+        for (int c = 0; c < count; c++) {
+            double sum = 0;
+            for (int j = 0; j < dimensions; j++) {
+                sum += points[c * dimensions + j] * points[c * dimensions + j];
+            }
+            norms[c] = Math.sqrt(sum);
+        }
+        return norms;
+    }
+}
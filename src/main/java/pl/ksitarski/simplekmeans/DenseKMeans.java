@@ -0,0 +1,343 @@
+package pl.ksitarski.simplekmeans;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * KMeans specialized for dense numeric points stored in one flat row-major array or read from a DensePointSource.
+ * Distance between points is squared euclidean distance and mean points are calculated as running sums, so no per-point
+ * objects are created while iterating and no per-point state is kept between iterations.
+ */
+public class DenseKMeans implements AutoCloseable {
+
+    private final DenseKMeansBuilder.Arguments arguments;
+
+    private final DensePointSource pointSource;
+    private final double[] points;
+    private double[] calculatedMeanPoints;
+    private double[] meanNorms;
+    private BlockedAssignment blockedAssignment;
+    private int[] clusterSizes;
+    private double lengthSum;
+
+    private double percentProgress = 0;
+
+    private boolean wasIterated = false;
+
+    private final ParallelRunner parallelRunner;
+    private final Random random;
+
+    private volatile boolean canContinue = true;
+
+    private static final long MAX_PARTIAL_VALUES = 1 << 22;
+    private static final int BLOCK_VALUES = 1 << 14;
+
+    private final int INPUT_POINTS_COUNT;
+    private final int RESULTS_COUNT;
+    private final int DIMENSIONS;
+
+    DenseKMeans(DenseKMeansBuilder.Arguments args) {
+        this.arguments = args;
+        this.pointSource = args.getPointSource();
+        //points kept in memory are read in place, other sources are copied block by block
+        this.points = pointSource instanceof ArrayPointSource ? ((ArrayPointSource) pointSource).getValues() : null;
+        this.DIMENSIONS = pointSource.getDimensions();
+        this.INPUT_POINTS_COUNT = pointSource.getPointCount();
+        this.RESULTS_COUNT = args.getResultCount();
+        this.parallelRunner = ParallelRunner.create(args.isMultithreaded(), args.getThreadsMax(), args.getExecutorService());
+        this.random = args.getSeed() != null ? new Random(args.getSeed()) : new Random();
+        initializeCalculatedMeanPoints();
+    }
+
+    private void initializeCalculatedMeanPoints() {
+        if (arguments.getInitialMeanPoints() != null) {
+            calculatedMeanPoints = arguments.getInitialMeanPoints().clone();
+            return;
+        }
+        calculatedMeanPoints = new double[RESULTS_COUNT * DIMENSIONS];
+        for (int i = 0; i < RESULTS_COUNT; i++) {
+            copyRandomPointTo(i);
+        }
+    }
+
+    /**
+     * Runs <i>iterationCount</i> iterations of KMeans.
+     * @param iterationCount iterations of KMeans.
+     * @return returns this object for easier chaining of methods.
+     */
+    public DenseKMeans iterate(int iterationCount) {
+        if (iterationCount <= 0) {
+            throw new IllegalArgumentException("Iteration count cannot be lower or equal 0, is: " + iterationCount);
+        }
+        setupIteration();
+        for (int i = 0; i < iterationCount; i++) {
+            if (!canContinue) {
+                break;
+            }
+            singleIteration();
+            wasIterated = true;
+            updateProgress((i+1)*1.0/iterationCount*1.0);
+        }
+        return this;
+    }
+
+    /**
+     * Iterates until standard deviation delta is smaller than given delta. In this mode progress percentage is approximation.
+     * @param delta minimum difference between the standard deviation of two consecutive iterations that causes execution to stop
+     * @return this object for easier chaining of methods.
+     */
+    public DenseKMeans iterateUntilStandardDeviationDeltaSmallerOrEqualTo(double delta) {
+        return iterateUntilStandardDeviationDeltaSmallerOrEqualTo(delta, 0);
+    }
+
+    /**
+     * Iterates until standard deviation delta is smaller than given delta. In this mode progress percentage is approximation.
+     * @param delta minimum difference between the standard deviation of two consecutive iterations that causes execution to stop
+     * @param iterationCountSafeguard maximum number of iterations. Numbers below 1 are ignored.
+     * @return this object for easier chaining of methods.
+     */
+    public DenseKMeans iterateUntilStandardDeviationDeltaSmallerOrEqualTo(double delta, int iterationCountSafeguard) {
+        setupIteration();
+        double lastStdDev = Double.MAX_VALUE;
+        boolean iterate = true;
+        int iterationsDone = 0;
+        while (iterate) {
+            if (!canContinue) {
+                break;
+            }
+            singleIteration();
+            wasIterated = true;
+            double stdDev = getStandardDeviation();
+            double currentDelta = lastStdDev - stdDev;
+            iterationsDone++;
+
+            if (currentDelta < delta || (iterationsDone >= iterationCountSafeguard && iterationCountSafeguard > 0)) {
+                iterate = false;
+            }
+
+            //aproximate progress
+            double progress = delta / currentDelta;
+            if (progress > 1) progress = 1;
+
+            updateProgress(progress);
+            lastStdDev = stdDev;
+        }
+        return this;
+    }
+
+    private void setupIteration() {
+        canContinue = true;
+        updateProgress(0);
+    }
+
+    private void singleIteration() {
+        meanNorms = arguments.getDistance().prepareMeans(calculatedMeanPoints, RESULTS_COUNT, DIMENSIONS);
+        blockedAssignment = BlockedAssignment.isApplicable(arguments.getDistance(), RESULTS_COUNT, DIMENSIONS)
+                ? new BlockedAssignment(calculatedMeanPoints, RESULTS_COUNT, DIMENSIONS)
+                : null;
+        final int chunkCount = getChunkCount();
+        final Partial[] partials = new Partial[chunkCount];
+        parallelRunner.forEachChunk(INPUT_POINTS_COUNT, chunkCount, (chunk, from, to) -> partials[chunk] = calculatePartial(from, to));
+        for (int i = 1; i < chunkCount; i++) {
+            partials[0].merge(partials[i]);
+        }
+        calculateMeanPoints(partials[0]);
+    }
+
+    /**
+     * Every chunk keeps its own sums of size <i>resultCount * dimensions</i>, so when those are big, chunks are only
+     * split between threads and not further.
+     */
+    private int getChunkCount() {
+        int chunkCount = parallelRunner.getChunkCount(INPUT_POINTS_COUNT);
+        long partialSize = (long) RESULTS_COUNT * DIMENSIONS;
+        if (chunkCount * partialSize > MAX_PARTIAL_VALUES) {
+            chunkCount = Math.min(chunkCount, parallelRunner.getParallelism());
+        }
+        return chunkCount;
+    }
+
+    /**
+     * Assigns points from <i>from</i> (inclusive) to <i>to</i> (exclusive) to their closest mean points, accumulating
+     * coordinate sums, counts and lengths per mean point.
+     */
+    private Partial calculatePartial(int from, int to) {
+        Partial partial = new Partial(RESULTS_COUNT, DIMENSIONS);
+        final double[] lengths = new double[RESULTS_COUNT];
+        final var workspace = blockedAssignment != null ? blockedAssignment.createWorkspace() : null;
+        if (points != null) {
+            accumulateBlock(points, from * DIMENSIONS, to - from, partial, lengths, workspace);
+            return partial;
+        }
+        final int blockPoints = Math.max(1, BLOCK_VALUES / DIMENSIONS);
+        final double[] buffer = new double[Math.min(blockPoints, to - from) * DIMENSIONS];
+        for (int blockFrom = from; blockFrom < to; blockFrom += blockPoints) {
+            int blockTo = Math.min(to, blockFrom + blockPoints);
+            pointSource.read(blockFrom, blockTo, buffer);
+            accumulateBlock(buffer, 0, blockTo - blockFrom, partial, lengths, workspace);
+        }
+        return partial;
+    }
+
+    /**
+     * @param lengths buffer for lengths from a single point to all mean points
+     * @param workspace buffers of blocked assignment, when it is used in this iteration
+     */
+    private void accumulateBlock(double[] values, int offset, int count, Partial partial, double[] lengths,
+                                 BlockedAssignment.Workspace workspace) {
+        final int d = DIMENSIONS;
+        final int k = RESULTS_COUNT;
+        if (workspace != null) {
+            final int tileSize = blockedAssignment.getTileSize();
+            for (int tileFrom = 0; tileFrom < count; tileFrom += tileSize) {
+                final int tileCount = Math.min(tileSize, count - tileFrom);
+                final int tileOffset = offset + tileFrom * d;
+                blockedAssignment.assign(values, tileOffset, tileCount, workspace);
+                for (int p = 0; p < tileCount; p++) {
+                    addToPartial(values, tileOffset + p * d, workspace.labels[p], workspace.lengths[p], partial);
+                }
+            }
+            return;
+        }
+        final double[] means = calculatedMeanPoints;
+        final var distance = arguments.getDistance();
+        for (int i = 0; i < count; i++) {
+            final int pointOffset = offset + i * d;
+            distance.calculateLengths(values, pointOffset, means, meanNorms, k, d, lengths);
+            int closest = 0;
+            double distanceToClosest = Double.POSITIVE_INFINITY;
+            for (int c = 0; c < k; c++) {
+                if (lengths[c] < distanceToClosest) {
+                    closest = c;
+                    distanceToClosest = lengths[c];
+                }
+            }
+            addToPartial(values, pointOffset, closest, distanceToClosest, partial);
+        }
+    }
+
+    private void addToPartial(double[] values, int pointOffset, int closest, double length, Partial partial) {
+        final int d = DIMENSIONS;
+        final int sumOffset = closest * d;
+        for (int j = 0; j < d; j++) {
+            partial.sums[sumOffset + j] += values[pointOffset + j];
+        }
+        partial.counts[closest]++;
+        partial.lengthSum += length;
+    }
+
+    private void calculateMeanPoints(Partial partial) {
+        final int d = DIMENSIONS;
+        double[] newMeanPoints = new double[RESULTS_COUNT * d];
+        for (int c = 0; c < RESULTS_COUNT; c++) {
+            int count = partial.counts[c];
+            if (count == 0) {
+                continue;
+            }
+            for (int j = 0; j < d; j++) {
+                newMeanPoints[c * d + j] = partial.sums[c * d + j] / count;
+            }
+        }
+        calculatedMeanPoints = newMeanPoints;
+        for (int c = 0; c < RESULTS_COUNT; c++) {
+            if (partial.counts[c] == 0) {
+                copyRandomPointTo(c);
+            }
+        }
+        clusterSizes = partial.counts;
+        lengthSum = partial.lengthSum;
+    }
+
+    private void copyRandomPointTo(int meanIndex) {
+        int index = random.nextInt(INPUT_POINTS_COUNT);
+        double[] point = new double[DIMENSIONS];
+        pointSource.read(index, index + 1, point);
+        System.arraycopy(point, 0, calculatedMeanPoints, meanIndex * DIMENSIONS, DIMENSIONS);
+    }
+
+    private static class Partial {
+        final double[] sums;
+        final int[] counts;
+        double lengthSum;
+
+        Partial(int resultCount, int dimensions) {
+            sums = new double[resultCount * dimensions];
+            counts = new int[resultCount];
+        }
+
+        void merge(Partial other) {
+            for (int i = 0; i < sums.length; i++) {
+                sums[i] += other.sums[i];
+            }
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += other.counts[i];
+            }
+            lengthSum += other.lengthSum;
+        }
+    }
+
+    private void updateProgress(double progress) {
+        this.percentProgress = progress;
+        if (arguments.getOnUpdate() != null) {
+            arguments.getOnUpdate().onUpdate(progress);
+        }
+    }
+
+    /**
+     * Gets progress as a double between 0.0 and 1.0
+     * @return percentProgress
+     */
+    public double getProgress() {
+        return percentProgress;
+    }
+
+    /**
+     * Returns calculated k-means points in form of a list, each point as an array of <i>dimensions</i> values.
+     * @return list with calculated results.
+     */
+    public List<double[]> getCalculatedMeanPoints() {
+        if (!wasIterated) {
+            throw new RuntimeException("Cannot get results before iterating");
+        }
+        List<double[]> result = new ArrayList<>(RESULTS_COUNT);
+        for (int c = 0; c < RESULTS_COUNT; c++) {
+            result.add(Arrays.copyOfRange(calculatedMeanPoints, c * DIMENSIONS, (c + 1) * DIMENSIONS));
+        }
+        return result;
+    }
+
+    /**
+     * Returns number of points assigned to every mean point in the last iteration.
+     * @return cluster sizes, in the same order as calculated mean points
+     */
+    public int[] getClusterSizes() {
+        if (!wasIterated) {
+            throw new RuntimeException("Cannot get results before iterating");
+        }
+        return clusterSizes.clone();
+    }
+
+    /**
+     * Aborts execution of k-means algorithm after current iteration.
+     */
+    public void earlyStop() {
+        canContinue = false;
+    }
+
+    /**
+     * Shuts down threads created for calculations of this object at once, instead of waiting until they end after a
+     * few idle seconds. Executor set with setExecutorService is not shut down. Iterating after closing creates new threads.
+     */
+    @Override
+    public void close() {
+        parallelRunner.close();
+    }
+
+    /**
+     * Calculates mean length between points and mean points of their clusters in the last iteration, which for the
+     * default distance is mean squared euclidean distance.
+     */
+    public double getStandardDeviation() {
+        if (!wasIterated) return Double.POSITIVE_INFINITY;
+        return lengthSum / INPUT_POINTS_COUNT;
+    }
+}
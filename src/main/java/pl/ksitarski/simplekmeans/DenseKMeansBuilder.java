@@ -0,0 +1,237 @@
+package pl.ksitarski.simplekmeans;
+
+import java.util.concurrent.ExecutorService;
+
+public class DenseKMeansBuilder {
+
+    private final DensePointSource POINT_SOURCE;
+    private final int RESULT_COUNT;
+
+    private boolean multithreaded = false;
+    private int threadsMax = -1;
+    private ExecutorService executorService = null;
+    private OnUpdate onUpdate;
+    private Long seed = null;
+    private DenseDistance distance = DenseDistance.SQUARED_EUCLIDEAN;
+    private double[] initialMeanPoints = null;
+
+    /**
+     * Builder constructor for DenseKMeans
+     * @param inputPoints input points stored row-major, point <i>i</i> occupies indexes <i>i * dimensions</i> to <i>(i + 1) * dimensions - 1</i>
+     * @param dimensions number of values per point
+     * @param resultCount number of result points
+     */
+    public DenseKMeansBuilder(double[] inputPoints, int dimensions, int resultCount) {
+        validateArray(inputPoints == null ? -1 : inputPoints.length, dimensions, resultCount);
+        this.POINT_SOURCE = new ArrayPointSource(inputPoints, dimensions);
+        this.RESULT_COUNT = resultCount;
+    }
+
+    /**
+     * Builder constructor for DenseKMeans. Points are not copied, but widened to double precision block by block while
+     * iterating. Arrays cannot hold more than about 2^31 values, so bigger data sets need a MappedPointSource.
+     * @param inputPoints input points stored row-major, point <i>i</i> occupies indexes <i>i * dimensions</i> to <i>(i + 1) * dimensions - 1</i>
+     * @param dimensions number of values per point
+     * @param resultCount number of result points
+     */
+    public DenseKMeansBuilder(float[] inputPoints, int dimensions, int resultCount) {
+        validateArray(inputPoints == null ? -1 : inputPoints.length, dimensions, resultCount);
+        this.POINT_SOURCE = new FloatArrayPointSource(inputPoints, dimensions);
+        this.RESULT_COUNT = resultCount;
+    }
+
+    private static void validateArray(int length, int dimensions, int resultCount) {
+        if (dimensions < 1) {
+            throw new IllegalArgumentException("dimensions needs to be at least 1");
+        }
+        if (length < dimensions) {
+            throw new IllegalArgumentException("inputPoints needs at least 1 data point");
+        }
+        if (length % dimensions != 0) {
+            throw new IllegalArgumentException("inputPoints length needs to be a multiple of dimensions");
+        }
+        if (resultCount < 1) {
+            throw new IllegalArgumentException("resultCount needs to be at least 1");
+        }
+    }
+
+    /**
+     * Builder constructor for DenseKMeans reading points from given source, for example a MappedPointSource for data
+     * sets bigger than the heap.
+     * @param pointSource source of input points
+     * @param resultCount number of result points
+     */
+    public DenseKMeansBuilder(DensePointSource pointSource, int resultCount) {
+        if (pointSource == null || pointSource.getPointCount() < 1) {
+            throw new IllegalArgumentException("pointSource needs at least 1 data point");
+        }
+        if (pointSource.getDimensions() < 1) {
+            throw new IllegalArgumentException("dimensions needs to be at least 1");
+        }
+        if (resultCount < 1) {
+            throw new IllegalArgumentException("resultCount needs to be at least 1");
+        }
+        this.POINT_SOURCE = pointSource;
+        this.RESULT_COUNT = resultCount;
+    }
+
+    /**
+     * Enables multithreading with given thread count
+     * @param count number of threads
+     * @return this
+     */
+    public DenseKMeansBuilder setThreadCount(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Thread count cannot be lower than 1");
+        }
+        this.threadsMax = count;
+        this.multithreaded = true;
+        return this;
+    }
+
+    /**
+     * Runs calculations on given executor instead of creating own threads. The executor is reused by every iteration
+     * and is never shut down by KMeans, so it can be shared by many KMeans objects. When thread count is not set, it is
+     * taken from the parallelism of a ForkJoinPool or from number of available processors for other executors.
+     * Iterating from a task running on the same executor is only safe for a ForkJoinPool.
+     * @param executorService executor to run calculations on, for example ForkJoinPool.commonPool()
+     * @return this
+     */
+    public DenseKMeansBuilder setExecutorService(ExecutorService executorService) {
+        if (executorService == null) {
+            throw new IllegalArgumentException("executorService cannot be null");
+        }
+        this.executorService = executorService;
+        this.multithreaded = true;
+        return this;
+    }
+
+    /**
+     * Sets length used to assign points to mean points. Default is DenseDistance.SQUARED_EUCLIDEAN. Mean points are
+     * always calculated as arithmetic means.
+     * @param distance length between points
+     * @return this
+     */
+    public DenseKMeansBuilder setDistance(DenseDistance distance) {
+        if (distance == null) {
+            throw new IllegalArgumentException("distance cannot be null");
+        }
+        this.distance = distance;
+        return this;
+    }
+
+    /**
+     * Sets seed of all random choices, so that runs with the same arguments and thread count give the same results.
+     * Without a seed every run is different.
+     * @param seed seed of random number generator
+     * @return this
+     */
+    public DenseKMeansBuilder setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Starts from given mean points instead of randomly chosen input points, for example from results of a previous run
+     * on similar data.
+     * @param initialMeanPoints exactly <i>resultCount</i> mean points stored row-major, like input points
+     * @return this
+     */
+    public DenseKMeansBuilder setInitialMeanPoints(double[] initialMeanPoints) {
+        if (initialMeanPoints == null || initialMeanPoints.length != (long) RESULT_COUNT * POINT_SOURCE.getDimensions()) {
+            throw new IllegalArgumentException("initialMeanPoints need exactly " + RESULT_COUNT + " points");
+        }
+        this.initialMeanPoints = initialMeanPoints.clone();
+        return this;
+    }
+
+    /**
+     * Adds OnUpdate function
+     * @param onUpdate function that is called whenever iteration is completed
+     * @return this
+     */
+    public DenseKMeansBuilder onUpdate(OnUpdate onUpdate) {
+        if (onUpdate == null) {
+            throw new IllegalArgumentException("onUpdate cannot be null");
+        }
+        this.onUpdate = onUpdate;
+        return this;
+    }
+
+    /**
+     * Finishes building arguments and returns new DenseKMeans object
+     * @return finished arguments
+     */
+    public DenseKMeans build() {
+        return new DenseKMeans(buildArgs());
+    }
+
+
+    private Arguments buildArgs() {
+        return new Arguments(POINT_SOURCE, RESULT_COUNT, multithreaded, threadsMax, executorService, onUpdate, seed, distance, initialMeanPoints);
+    }
+
+    static class Arguments {
+
+        private final DensePointSource POINT_SOURCE;
+        private final int RESULT_COUNT;
+
+        private final boolean MULTITHREADED;
+        private final int threadsMax;
+        private final ExecutorService executorService;
+
+        private final OnUpdate onUpdate;
+        private final Long seed;
+        private final DenseDistance distance;
+        private final double[] initialMeanPoints;
+
+        private Arguments(DensePointSource pointSource, int resultCount, boolean multithreaded, int threadsMax, ExecutorService executorService, OnUpdate onUpdate, Long seed, DenseDistance distance, double[] initialMeanPoints) {
+            this.POINT_SOURCE = pointSource;
+            this.RESULT_COUNT = resultCount;
+            this.MULTITHREADED = multithreaded;
+            this.threadsMax = threadsMax;
+            this.executorService = executorService;
+            this.onUpdate = onUpdate;
+            this.seed = seed;
+            this.distance = distance;
+            this.initialMeanPoints = initialMeanPoints;
+        }
+
+        DensePointSource getPointSource() {
+            return POINT_SOURCE;
+        }
+
+        int getResultCount() {
+            return RESULT_COUNT;
+        }
+
+        boolean isMultithreaded() {
+            return MULTITHREADED;
+        }
+
+        int getThreadsMax() {
+            return threadsMax;
+        }
+
+        ExecutorService getExecutorService() {
+            return executorService;
+        }
+
+        OnUpdate getOnUpdate() {
+            return onUpdate;
+        }
+
+        Long getSeed() {
+            return seed;
+        }
+
+        DenseDistance getDistance() {
+            return distance;
+        }
+
+        double[] getInitialMeanPoints() {
+            return initialMeanPoints;
+        }
+    }
+
+}
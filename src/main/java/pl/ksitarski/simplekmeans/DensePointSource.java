@@ -0,0 +1,26 @@
+package pl.ksitarski.simplekmeans;
+
+/**
+ * Source of dense numeric points for DenseKMeans. Points are read in blocks of consecutive points, possibly from many
+ * threads at once, so implementations need to be thread safe and should make sequential reads cheap.
+ */
+public interface DensePointSource {
+    /**
+     * @return number of points
+     */
+    int getPointCount();
+
+    /**
+     * @return number of values per point
+     */
+    int getDimensions();
+
+    /**
+     * Copies values of points from <i>from</i> (inclusive) to <i>to</i> (exclusive) into <i>buffer</i>, row-major,
+     * starting at index 0.
+     * @param from index of first point
+     * @param to index after last point
+     * @param buffer array of at least <i>(to - from) * dimensions</i> values
+     */
+    void read(int from, int to, double[] buffer);
+}
@@ -0,0 +1,43 @@
+package pl.ksitarski.simplekmeans;
+
+/**
+ * Loops that compare one dense point with a block of dense mean points stored one after another, writing one result
+ * per mean point to <i>out</i>. The fastest available implementation is chosen once: one using the Vector API when the
+ * library was built with the vector profile and the JVM runs with --add-modules jdk.incubator.vector, scalar loops
+ * otherwise. Setting system property simplekmeans.vector to false forces scalar loops.
+ */
+interface DistanceKernels {
+
+    DistanceKernels INSTANCE = load();
+
+    void squaredEuclidean(double[] point, int pointOffset, double[] means, int meanCount, int dimensions, double[] out);
+
+    /**
+     * Same length as calculated by the other squaredEuclidean for a single mean point starting at value <i>meanOffset</i>.
+     */
+    double squaredEuclidean(double[] point, int pointOffset, double[] means, int meanOffset, int dimensions);
+
+    void manhattan(double[] point, int pointOffset, double[] means, int meanCount, int dimensions, double[] out);
+
+    void dot(double[] point, int pointOffset, double[] means, int meanCount, int dimensions, double[] out);
+
+    /**
+     * Dot products of <i>pointCount</i> consecutive points with <i>meanCount</i> consecutive mean points starting at
+     * value <i>meanOffset</i>, written to <i>out[p * meanCount + c]</i>.
+     */
+    void dots(double[] points, int pointOffset, int pointCount, double[] means, int meanOffset, int meanCount, int dimensions, double[] out);
+
+    private static DistanceKernels load() {
+        if (!Boolean.parseBoolean(System.getProperty("simplekmeans.vector", "true"))) {
+            return new ScalarDistanceKernels();
+        }
+        try {
+            //compiled only by the vector profile, and only loadable with the incubator module present
+            return (DistanceKernels) Class.forName("pl.ksitarski.simplekmeans.VectorDistanceKernels")
+                    .getDeclaredConstructor()
+                    .newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new ScalarDistanceKernels();
+        }
+    }
+}
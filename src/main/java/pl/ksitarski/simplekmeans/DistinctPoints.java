@@ -0,0 +1,62 @@
+package pl.ksitarski.simplekmeans;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Input points with equal points collapsed into one point, weighted by their count or by sum of their weights. Built
+ * in one pass over input points with a hash map, so it relies on equals and hashCode of points.
+ */
+class DistinctPoints<T> {
+
+    private final List<T> points;
+    private final double[] weights;
+    private final int[] indexes;
+
+    private DistinctPoints(List<T> points, double[] weights, int[] indexes) {
+        this.points = points;
+        this.weights = weights;
+        this.indexes = indexes;
+    }
+
+    /**
+     * Collapses equal points, keeping distinct points in order of their first occurrence.
+     * @param weights weights of input points, or null when every point weighs 1
+     */
+    static <T> DistinctPoints<T> of(List<T> inputPoints, double[] weights) {
+        final int n = inputPoints.size();
+        Map<T, Integer> distinctIndexes = new HashMap<>();
+        List<T> points = new ArrayList<>();
+        double[] distinctWeights = new double[n];
+        int[] indexes = new int[n];
+        for (int i = 0; i < n; i++) {
+            var point = inputPoints.get(i);
+            Integer index = distinctIndexes.putIfAbsent(point, points.size());
+            if (index == null) {
+                index = points.size();
+                points.add(point);
+            }
+            distinctWeights[index] += weights != null ? weights[i] : 1;
+            indexes[i] = index;
+        }
+        return new DistinctPoints<>(points, Arrays.copyOf(distinctWeights, points.size()), indexes);
+    }
+
+    List<T> getPoints() {
+        return points;
+    }
+
+    double[] getWeights() {
+        return weights;
+    }
+
+    /**
+     * @return index in getPoints() of every input point
+     */
+    int[] getIndexes() {
+        return indexes;
+    }
+}
@@ -0,0 +1,35 @@
+package pl.ksitarski.simplekmeans;
+
+/**
+ * Points stored row-major in a float array in memory. Values are widened to double precision block by block while
+ * reading, so the array is never copied as a whole.
+ */
+class FloatArrayPointSource implements DensePointSource {
+
+    private final float[] values;
+    private final int dimensions;
+
+    FloatArrayPointSource(float[] values, int dimensions) {
+        this.values = values;
+        this.dimensions = dimensions;
+    }
+
+    @Override
+    public int getPointCount() {
+        return values.length / dimensions;
+    }
+
+    @Override
+    public int getDimensions() {
+        return dimensions;
+    }
+
+    @Override
+    public void read(int from, int to, double[] buffer) {
+        final int offset = from * dimensions;
+        final int count = (to - from) * dimensions;
+        for (int i = 0; i < count; i++) {
+            buffer[i] = values[offset + i];
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package pl.ksitarski.simplekmeans;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the current iteration, shared by all parts of KMeans. Worker threads count locally and add their
+ * counts once per chunk.
+ */
+class IterationCounters {
+
+    final LongAdder lengthCalculations = new LongAdder();
+    final LongAdder pointLengthCalculations = new LongAdder();
+    final LongAdder changedPoints = new LongAdder();
+    long assignmentNanos;
+    long meanNanos;
+    int reseededClusters;
+    double maxMeanPointShift;
+
+    void reset() {
+        lengthCalculations.reset();
+        pointLengthCalculations.reset();
+        changedPoints.reset();
+        assignmentNanos = 0;
+        meanNanos = 0;
+        reseededClusters = 0;
+        maxMeanPointShift = 0;
+    }
+
+    /**
+     * Counts lengths between points and mean points, which are also counted as all length calculations.
+     */
+    void addPointLengthCalculations(long count) {
+        pointLengthCalculations.add(count);
+        lengthCalculations.add(count);
+    }
+}
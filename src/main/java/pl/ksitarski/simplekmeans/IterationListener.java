@@ -0,0 +1,10 @@
+package pl.ksitarski.simplekmeans;
+
+@FunctionalInterface
+public interface IterationListener {
+    /**
+     * Called on the iterating thread after every completed iteration.
+     * @param statistics statistics of the completed iteration
+     */
+    void onIteration(IterationStatistics statistics);
+}
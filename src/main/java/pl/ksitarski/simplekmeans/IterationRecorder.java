@@ -0,0 +1,40 @@
+package pl.ksitarski.simplekmeans;
+
+import java.util.function.Supplier;
+
+/**
+ * Records a single KMeans iteration as a Java Flight Recorder event. The implementation using jdk.jfr is compiled
+ * separately and loaded only if the jdk.jfr module is present, so KMeans does not depend on it. Without a recording
+ * that enables the event, begin() returns NONE and no event object is created.
+ */
+interface IterationRecorder {
+
+    IterationRecorder NONE = (statistics, threads) -> { };
+
+    Supplier<IterationRecorder> FACTORY = load();
+
+    /**
+     * Starts recording an iteration.
+     * @return recorder of the iteration, or NONE if iterations are not recorded
+     */
+    static IterationRecorder begin() {
+        return FACTORY.get();
+    }
+
+    /**
+     * Ends recording of the iteration that started when this recorder was returned by begin().
+     */
+    void record(IterationStatistics statistics, int threads);
+
+    private static Supplier<IterationRecorder> load() {
+        try {
+            @SuppressWarnings("unchecked")
+            var factory = (Supplier<IterationRecorder>) Class.forName("pl.ksitarski.simplekmeans.IterationEvents")
+                    .getDeclaredConstructor()
+                    .newInstance();
+            return factory;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return () -> NONE;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package pl.ksitarski.simplekmeans;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Statistics of a single KMeans iteration. Assignment phase covers assigning points to mean points and building
+ * clusters, mean phase covers calculating new mean points. Time not covered by either phase is bookkeeping.
+ */
+public class IterationStatistics {
+
+    private final int iteration;
+    private final long totalNanos;
+    private final long assignmentNanos;
+    private final long meanNanos;
+    private final long lengthCalculations;
+    private final long skippedLengthCalculations;
+    private final int changedPoints;
+    private final int reseededClusters;
+    private final double maxMeanPointShift;
+    private final double inertia;
+    private final Map<String, Long> threadNanos;
+
+    IterationStatistics(int iteration, long totalNanos, long assignmentNanos, long meanNanos, long lengthCalculations,
+                        long skippedLengthCalculations, int changedPoints, int reseededClusters,
+                        double maxMeanPointShift, double inertia, Map<String, Long> threadNanos) {
+        this.iteration = iteration;
+        this.totalNanos = totalNanos;
+        this.assignmentNanos = assignmentNanos;
+        this.meanNanos = meanNanos;
+        this.lengthCalculations = lengthCalculations;
+        this.skippedLengthCalculations = skippedLengthCalculations;
+        this.changedPoints = changedPoints;
+        this.reseededClusters = reseededClusters;
+        this.maxMeanPointShift = maxMeanPointShift;
+        this.inertia = inertia;
+        this.threadNanos = Collections.unmodifiableMap(threadNanos);
+    }
+
+    /**
+     * @return number of this iteration, starting from 1 and counted over all calls of iterate methods
+     */
+    public int getIteration() {
+        return iteration;
+    }
+
+    /**
+     * @return wall time of the whole iteration in nanoseconds
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * @return wall time of the assignment phase in nanoseconds
+     */
+    public long getAssignmentNanos() {
+        return assignmentNanos;
+    }
+
+    /**
+     * @return wall time of the mean phase in nanoseconds
+     */
+    public long getMeanNanos() {
+        return meanNanos;
+    }
+
+    /**
+     * @return number of DataLength calls, including lengths between mean points calculated by optimizations
+     */
+    public long getLengthCalculations() {
+        return lengthCalculations;
+    }
+
+    /**
+     * @return number of lengths between points and mean points that optimizations did not calculate, compared to
+     * calculating length from every assigned point to every mean point
+     */
+    public long getSkippedLengthCalculations() {
+        return skippedLengthCalculations;
+    }
+
+    /**
+     * @return number of points assigned to a different mean point than in the previous iteration, all points in the
+     * first iteration and -1 in mini-batch mode, where it is not known
+     */
+    public int getChangedPoints() {
+        return changedPoints;
+    }
+
+    /**
+     * @return number of clusters that had no points and got a random input point as new mean point
+     */
+    public int getReseededClusters() {
+        return reseededClusters;
+    }
+
+    /**
+     * @return biggest length between old and new position of any mean point
+     */
+    public double getMaxMeanPointShift() {
+        return maxMeanPointShift;
+    }
+
+    /**
+     * @return sum of lengths from assigned points to their mean points, before mean points were moved
+     */
+    public double getInertia() {
+        return inertia;
+    }
+
+    /**
+     * @return time every thread spent on parallel work of this iteration in nanoseconds, by thread name
+     */
+    public Map<String, Long> getThreadNanos() {
+        return threadNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "Iteration " + iteration +
+                ": total " + totalNanos / 1_000_000.0 + " ms" +
+                ", assignment " + assignmentNanos / 1_000_000.0 + " ms" +
+                ", mean " + meanNanos / 1_000_000.0 + " ms" +
+                ", length calculations " + lengthCalculations +
+                ", skipped " + skippedLengthCalculations +
+                ", changed points " + changedPoints +
+                ", reseeded clusters " + reseededClusters +
+                ", max mean point shift " + maxMeanPointShift +
+                ", inertia " + inertia +
+                ", threads " + threadNanos.size();
+    }
+}
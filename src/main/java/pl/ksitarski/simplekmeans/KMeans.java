@@ -1,30 +1,40 @@
 package pl.ksitarski.simplekmeans;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.function.Supplier;
 
-public class KMeans<T> {
+public class KMeans<T> implements AutoCloseable {
 
     private final KMeansBuilder.Arguments<T> arguments;
 
     private List<T> calculatedMeanPoints;
     private List<KMeansCluster<T>> clusters;
+    private volatile int clustersVersion = 0;
+    private List<List<T>> materializedPoints;
+    private int materializedPointsVersion = -1;
 
     private double percentProgress = 0;
 
     private boolean wasIterated = false;
 
-    private ExecutorService executorService = null;
+    private final ParallelRunner parallelRunner;
+    private final Random random;
+    private final TriangleInequalityBounds<T> triangleInequalityBounds;
+    private final MiniBatch<T> miniBatch;
 
     private volatile boolean canContinue = true;
 
-    private int estimatedCapacityPerCluster;
-
     private boolean firstOptimizedRun = true;
-    private double[] oldLengths;
-    private int[] oldIndexes;
+    private final double[] lengths;
+    private final int[] labels;
     private double lastStdDev;
-    private int notCounted = 0;
-    private int counted = 0;
+    private boolean labelsAssigned = false;
+
+    private final IterationCounters iterationCounters = new IterationCounters();
+    private int iterationNumber;
+    private IterationStatistics lastIterationStatistics = null;
+
+    private static final int MIN_SPLIT_CLUSTER_SIZE = 4096;
 
     private final int INPUT_POINTS_COUNT;
     private final int RESULTS_COUNT;
@@ -33,15 +43,28 @@ public class KMeans<T> {
         this.arguments = args;
         this.INPUT_POINTS_COUNT = args.getInputPoints().size();
         this.RESULTS_COUNT = args.getResultCount();
-        initializeRandomlyCalculatedMeanPoints();
-        estimatedCapacityPerCluster = (int) (1.2 * INPUT_POINTS_COUNT/RESULTS_COUNT);
+        this.iterationNumber = args.getInitialIteration();
+        this.parallelRunner = ParallelRunner.create(args.isMultithreaded(), args.getThreadsMax(), args.getExecutorService());
+        this.random = args.getSeed() != null ? new Random(args.getSeed()) : new Random();
+        this.triangleInequalityBounds = args.isTriangleInequalityOptimization()
+                ? new TriangleInequalityBounds<>(args.getInputPoints(), RESULTS_COUNT, args.getDataLength(), parallelRunner, iterationCounters)
+                : null;
+        this.miniBatch = args.getMiniBatchSize() > 0
+                ? new MiniBatch<>(args.getInputPoints(), RESULTS_COUNT, args.getMiniBatchSize(), args.getLearningRate(), args.getMeanAccumulator(), args.getDataLength(), parallelRunner, iterationCounters)
+                : null;
+        //mini-batch mode never assigns all points at once, so it does not keep per-point arrays
+        this.lengths = miniBatch == null ? new double[INPUT_POINTS_COUNT] : null;
+        this.labels = miniBatch == null ? new int[INPUT_POINTS_COUNT] : null;
+        initializeCalculatedMeanPoints();
     }
 
-    private void initializeRandomlyCalculatedMeanPoints() {
-        calculatedMeanPoints = new ArrayList<>(RESULTS_COUNT);
-        for (int i = 0; i < RESULTS_COUNT; i++) {
-            calculatedMeanPoints.add(getNewRandomGenericInstance());
+    private void initializeCalculatedMeanPoints() {
+        if (arguments.getInitialMeanPoints() != null) {
+            calculatedMeanPoints = new ArrayList<>(arguments.getInitialMeanPoints());
+            return;
         }
+        var seeder = new Seeder<>(arguments.getInputPoints(), RESULTS_COUNT, arguments.getDataLength(), parallelRunner, random, arguments.getWeights());
+        calculatedMeanPoints = seeder.seed(arguments.getSeeding());
     }
 
     /**
@@ -53,20 +76,17 @@ public class KMeans<T> {
         if (iterationCount <= 0) {
             throw new IllegalArgumentException("Iteration count cannot be lower or equal 0, is: " + iterationCount);
         }
-        try {
-            setupIteration();
-            for (int i = 0; i < iterationCount; i++) {
-                if (!canContinue) {
-                    break;
-                }
-                singleIteration();
-                wasIterated = true;
-                updateProgress((i+1)*1.0/iterationCount*1.0);
+        setupIteration();
+        for (int i = 0; i < iterationCount; i++) {
+            if (!canContinue) {
+                break;
             }
-            return this;
-        } finally {
-            stopIteration();
+            singleIteration();
+            wasIterated = true;
+            updateProgress((i+1)*1.0/iterationCount*1.0);
         }
+        checkpointIfStopped();
+        return this;
     }
 
     /**
@@ -85,195 +105,444 @@ public class KMeans<T> {
      * @return this object for easier chaining of methods.
      */
     public KMeans<T> iterateUntilStandardDeviationDeltaSmallerOrEqualTo(double delta, int iterationCountSafeguard) {
-        try {
-            setupIteration();
-            double lastStdDev = Double.MAX_VALUE;
-            boolean iterate = true;
-            int iterationsDone = 0;
-            while (iterate) {
-                if (!canContinue) {
-                    break;
-                }
-                singleIteration();
-                wasIterated = true;
-                double stdDev = getStandardDeviation();
-                double currentDelta = lastStdDev - stdDev;
-                iterationsDone++;
-
-                if (currentDelta < delta || (iterationsDone >= iterationCountSafeguard && iterationCountSafeguard > 0)) {
-                    iterate = false;
-                }
+        setupIteration();
+        double lastStdDev = Double.MAX_VALUE;
+        boolean iterate = true;
+        int iterationsDone = 0;
+        while (iterate) {
+            if (!canContinue) {
+                break;
+            }
+            singleIteration();
+            wasIterated = true;
+            double stdDev = getStandardDeviation();
+            double currentDelta = lastStdDev - stdDev;
+            iterationsDone++;
+
+            if (currentDelta < delta || (iterationsDone >= iterationCountSafeguard && iterationCountSafeguard > 0)) {
+                iterate = false;
+            }
 
-                //aproximate progress
-                double invertedTargetDelta = 1/delta;
-                double currentInvertedDelta = 1/currentDelta;
+            //aproximate progress
+            double invertedTargetDelta = 1/delta;
+            double currentInvertedDelta = 1/currentDelta;
 
-                double progress = currentInvertedDelta/invertedTargetDelta;
-                if (progress > 1) progress = 1;
+            double progress = currentInvertedDelta/invertedTargetDelta;
+            if (progress > 1) progress = 1;
 
-                updateProgress(progress);
-                lastStdDev = stdDev;
+            updateProgress(progress);
+            lastStdDev = stdDev;
+        }
+        checkpointIfStopped();
+        return this;
+    }
+
+    /**
+     * Iterates until given convergence criteria are met. Points that changed cluster and mean point shifts are tracked
+     * during every iteration anyway, so checking the criteria costs nothing. Progress percentage is based on time budget
+     * or maximum iterations if set, otherwise it stays at 0.0 until iterating ends.
+     * @param criteria rules that tell when to stop
+     * @return this object for easier chaining of methods.
+     */
+    public KMeans<T> iterateUntilConverged(ConvergenceCriteria criteria) {
+        if (criteria == null || !criteria.hasAnyRule()) {
+            throw new IllegalArgumentException("criteria need at least one rule");
+        }
+        setupIteration();
+        final long start = System.nanoTime();
+        int iterationsDone = 0;
+        while (canContinue) {
+            iterationsDone++;
+            if (iterateOnceUntilConverged(criteria, iterationsDone, start)) {
+                break;
             }
-            return this;
-        } finally {
-            stopIteration();
         }
+        checkpointIfStopped();
+        return this;
     }
 
+    /**
+     * Runs iteration number <i>iterationsDone</i> of iterating until given criteria are met, started at <i>start</i>.
+     * @return true if criteria are met
+     */
+    boolean iterateOnceUntilConverged(ConvergenceCriteria criteria, int iterationsDone, long start) {
+        singleIteration();
+        wasIterated = true;
+        final int pointCount = miniBatch != null ? miniBatch.getBatchSize() : INPUT_POINTS_COUNT;
+        final long elapsedNanos = System.nanoTime() - start;
+        if (criteria.shouldStop(lastIterationStatistics, pointCount, iterationsDone, elapsedNanos)) {
+            updateProgress(1);
+            return true;
+        }
+        updateProgress(criteria.getProgress(iterationsDone, elapsedNanos));
+        return false;
+    }
 
     private void setupIteration() {
         canContinue = true;
         updateProgress(0);
-        if (arguments.isMultithreaded()) {
-            executorService = Executors.newFixedThreadPool(arguments.getThreadsMax());
-        }
-    }
-
-
-    private void stopIteration() {
-        if (arguments.isMultithreaded() && executorService != null) {
-            executorService.shutdown();
-        }
     }
 
     private void singleIteration() {
-        if (arguments.isDontUpdateAllOptimization()) {
-            if (firstOptimizedRun) {
-                oldLengths = new double[INPUT_POINTS_COUNT];
-                oldIndexes = new int[INPUT_POINTS_COUNT];
-            } else {
+        final var recorder = IterationRecorder.begin();
+        final long start = System.nanoTime();
+        iterationCounters.reset();
+        parallelRunner.startRecordingThreadTimes();
+        if (miniBatch != null) {
+            singleMiniBatchIteration();
+        } else {
+            if (arguments.isDontUpdateAllOptimization() && !firstOptimizedRun) {
                 lastStdDev = getStandardDeviation();
             }
+            groupPointsIntoClusters();
+            final long meanStart = System.nanoTime();
+            calculateMeanPoints();
+            iterationCounters.assignmentNanos = meanStart - start;
+            iterationCounters.meanNanos = System.nanoTime() - meanStart;
+            if (arguments.isDontUpdateAllOptimization()) {
+                firstOptimizedRun = false;
+            }
         }
-        groupPointsIntoClusters();
-        calculateMeanPoints();
-        if (arguments.isDontUpdateAllOptimization()) {
-            firstOptimizedRun = false;
+        iterationNumber++;
+        publishIterationStatistics(System.nanoTime() - start, parallelRunner.stopRecordingThreadTimes(), recorder);
+        var checkpointWriter = arguments.getCheckpointWriter();
+        if (checkpointWriter != null && iterationNumber % checkpointWriter.getInterval() == 0) {
+            writeCheckpoint(checkpointWriter);
         }
     }
 
-    private void groupPointsIntoClusters() {
-        if (executorService == null) {
-            groupPointsIntoClustersNoThreads();
-        } else {
-            groupPointsIntoClustersThreads();
+    /**
+     * Writes checkpoint if iterating was stopped with earlyStop().
+     */
+    private void checkpointIfStopped() {
+        var checkpointWriter = arguments.getCheckpointWriter();
+        if (checkpointWriter != null && !canContinue && wasIterated) {
+            writeCheckpoint(checkpointWriter);
         }
     }
 
-    private void groupPointsIntoClustersThreads() {
-        final CountDownLatch countDownLatch = new CountDownLatch(arguments.getThreadsMax());
-        final int threadCount = arguments.getThreadsMax();
-
-        initializeClusters(true);
+    /**
+     * Schedules writing of current state. Mean points are never changed after they are calculated, so a copy of their
+     * list is enough for the checkpoint to stay consistent while it is written.
+     */
+    private void writeCheckpoint(CheckpointWriter<T> checkpointWriter) {
+        checkpointWriter.write(new Checkpoint<>(new ArrayList<>(calculatedMeanPoints), iterationNumber, arguments.getSourcePointCount()));
+    }
 
-        final int workPerThread = INPUT_POINTS_COUNT/threadCount;
-        final int mostThreadsWork = workPerThread * (threadCount - 1);
-        final int lastThreadWork = INPUT_POINTS_COUNT - mostThreadsWork;
-        int workDistributed = 0;
+    /**
+     * Waits until all checkpoints requested so far are written. Does nothing if checkpoints are not enabled.
+     * @throws java.io.UncheckedIOException if writing a checkpoint failed
+     */
+    public void flushCheckpoints() {
+        if (arguments.getCheckpointWriter() != null) {
+            arguments.getCheckpointWriter().flush();
+        }
+    }
 
-        for (int i = 0; i < threadCount; i++) {
-            int finalWorkDistributed = workDistributed;
-            if (i + 1 != threadCount) { //not last thread
-                executorService.submit(() -> {
-                    calculatePartial(finalWorkDistributed, finalWorkDistributed + workPerThread);
-                    countDownLatch.countDown();
-                });
-            } else {
-                executorService.submit(() -> {
-                    calculatePartial(finalWorkDistributed, finalWorkDistributed + lastThreadWork);
-                    countDownLatch.countDown();
-                });
-            }
-            workDistributed += workPerThread;
+    /**
+     * Passes statistics of the finished iteration to listener, logger and Java Flight Recorder.
+     */
+    private void publishIterationStatistics(long totalNanos, Map<String, Long> threadNanos, IterationRecorder recorder) {
+        final int assignedPoints = miniBatch != null ? miniBatch.getBatchSize() : INPUT_POINTS_COUNT;
+        final long pointLengthCalculations = iterationCounters.pointLengthCalculations.sum();
+        final long skippedLengthCalculations = Math.max(0, (long) assignedPoints * RESULTS_COUNT - pointLengthCalculations);
+        final int changedPoints = miniBatch != null ? -1 : (int) iterationCounters.changedPoints.sum();
+        lastIterationStatistics = new IterationStatistics(iterationNumber, totalNanos, iterationCounters.assignmentNanos,
+                iterationCounters.meanNanos, iterationCounters.lengthCalculations.sum(), skippedLengthCalculations,
+                changedPoints, iterationCounters.reseededClusters, iterationCounters.maxMeanPointShift, getInertia(),
+                threadNanos);
+
+        recorder.record(lastIterationStatistics, threadNanos.size());
+        if (arguments.getLogger() != null) {
+            arguments.getLogger().log(lastIterationStatistics.toString());
         }
-        try {
-            countDownLatch.await();
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+        if (arguments.getIterationListener() != null) {
+            arguments.getIterationListener().onIteration(lastIterationStatistics);
         }
     }
 
+    /**
+     * Labels all points with their closest mean points and builds clusters from these labels. Chunks of points are
+     * labelled in parallel; every chunk writes only to its own range of <i>labels</i> and <i>lengths</i>, so no
+     * synchronization is needed until all chunks finish.
+     */
+    void groupPointsIntoClusters() {
+        if (triangleInequalityBounds != null) {
+            triangleInequalityBounds.assign(calculatedMeanPoints, labels, lengths);
+            initializeClusters();
+            return;
+        }
+        final boolean firstAssignment = !labelsAssigned;
+        parallelRunner.forEachChunk(INPUT_POINTS_COUNT, (chunk, from, to) -> calculatePartial(from, to, firstAssignment));
+        labelsAssigned = true;
+        initializeClusters();
+    }
 
-    private void calculatePartial(int from, int to) {
+    private void calculatePartial(int from, int to, boolean firstAssignment) {
+        long lengthCalculations = 0;
+        int changedPoints = 0;
         for (int i = from; i < to; i++) {
             var point = arguments.getInputPoints().get(i);
-            counted++;
 
             if (arguments.isDontUpdateAllOptimization() && !firstOptimizedRun) {
-                if (oldLengths[i] < lastStdDev) {
-                    var closestMeanPoint = oldIndexes[i];
-                    double length = arguments.getDataLength().getLength(calculatedMeanPoints.get(closestMeanPoint), point);
-                    clusters.get(oldIndexes[i]).addPoint(arguments.getInputPoints().get(i), length);
-                    oldLengths[i] = length;
-                    notCounted++;
+                if (lengths[i] < lastStdDev) {
+                    lengths[i] = arguments.getDataLength().getLength(calculatedMeanPoints.get(labels[i]), point);
+                    lengthCalculations++;
                     continue;
                 }
             }
 
-            var pointAndLength = getClosestMeanPointTo(point);
-            var idOfMeanPoint = getIdOfMeanPoint(pointAndLength.t);
-            clusters.get(idOfMeanPoint).addPoint(point, pointAndLength.length);
-
-            if (arguments.isDontUpdateAllOptimization()) {
-                oldLengths[i] = pointAndLength.length;
-                oldIndexes[i] = idOfMeanPoint;
+            int oldLabel = labels[i];
+            assignToClosestMeanPoint(i, point);
+            lengthCalculations += RESULTS_COUNT;
+            if (firstAssignment || labels[i] != oldLabel) {
+                changedPoints++;
             }
         }
+        iterationCounters.addPointLengthCalculations(lengthCalculations);
+        iterationCounters.changedPoints.add(changedPoints);
     }
 
-    private void groupPointsIntoClustersNoThreads() {
-        initializeClusters(false);
-        calculatePartial(0, INPUT_POINTS_COUNT);
+    /**
+     * Builds clusters from labels calculated in the last assignment.
+     */
+    private void initializeClusters() {
+        clustersVersion++;
+        if (keepsOnlyStatistics()) {
+            initializeClusterStatistics();
+            return;
+        }
+        int[] sizes = new int[RESULTS_COUNT];
+        for (int i = 0; i < INPUT_POINTS_COUNT; i++) {
+            sizes[labels[i]]++;
+        }
+        clusters = new ArrayList<>(RESULTS_COUNT);
+        for (int i = 0; i < RESULTS_COUNT; i++) {
+            clusters.add(new KMeansCluster<>(sizes[i], arguments.getDataToMean()));
+        }
+        var inputPoints = arguments.getInputPoints();
+        for (int i = 0; i < INPUT_POINTS_COUNT; i++) {
+            clusters.get(labels[i]).addPoint(inputPoints.get(i), lengths[i]);
+        }
+    }
+
+    /**
+     * Clusters of weighted points are built from statistics only, as DataToMean cannot take weights into account.
+     */
+    private boolean keepsOnlyStatistics() {
+        return arguments.isClustersWithoutPoints() || arguments.getWeights() != null;
     }
 
-    private void initializeClusters(boolean threaded) {
+    /**
+     * Builds clusters that keep only size, sum of lengths and mean point. Every thread accumulates statistics of its
+     * own range of points, and these are merged per cluster, adding every partial mean with weight of its points.
+     */
+    private void initializeClusterStatistics() {
+        final var inputPoints = arguments.getInputPoints();
+        final var meanAccumulator = arguments.getMeanAccumulator();
+        final var weights = arguments.getWeights();
+        final int chunkCount = Math.min(parallelRunner.getParallelism(), INPUT_POINTS_COUNT);
+        final int[][] sizes = new int[chunkCount][RESULTS_COUNT];
+        final double[][] weightSums = new double[chunkCount][RESULTS_COUNT];
+        final double[][] lengthSums = new double[chunkCount][RESULTS_COUNT];
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        final MeanAccumulator<T>[][] accumulators = new MeanAccumulator[chunkCount][RESULTS_COUNT];
+        parallelRunner.forEachChunk(INPUT_POINTS_COUNT, chunkCount, (chunk, from, to) -> {
+            for (int i = from; i < to; i++) {
+                int label = labels[i];
+                if (accumulators[chunk][label] == null) {
+                    accumulators[chunk][label] = meanAccumulator.get();
+                }
+                final double weight = weights != null ? weights[i] : 1;
+                accumulators[chunk][label].add(inputPoints.get(i), weight);
+                sizes[chunk][label]++;
+                weightSums[chunk][label] += weight;
+                lengthSums[chunk][label] += lengths[i] * weight;
+            }
+        });
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        final KMeansCluster<T>[] newClusters = new KMeansCluster[RESULTS_COUNT];
+        final int version = clustersVersion;
+        parallelRunner.forEachChunk(RESULTS_COUNT, (chunk, from, to) -> {
+            for (int c = from; c < to; c++) {
+                MeanAccumulator<T> merged = null;
+                int size = 0;
+                double weight = 0;
+                double lengthSum = 0;
+                for (int j = 0; j < chunkCount; j++) {
+                    if (accumulators[j][c] == null) {
+                        continue;
+                    }
+                    if (merged == null) {
+                        merged = accumulators[j][c];
+                    } else {
+                        merged.add(accumulators[j][c].getMean(), weightSums[j][c]);
+                    }
+                    size += sizes[j][c];
+                    weight += weightSums[j][c];
+                    lengthSum += lengthSums[j][c];
+                }
+                final int clusterIndex = c;
+                newClusters[c] = new KMeansCluster<>(size, weight, lengthSum, merged == null ? null : merged.getMean(),
+                        () -> getMaterializedPoints(version).get(clusterIndex));
+            }
+        });
+        clusters = Arrays.asList(newClusters);
+    }
+
+    /**
+     * Builds lists of points of all clusters at once, from current labels.
+     */
+    private synchronized List<List<T>> getMaterializedPoints(int version) {
+        if (version != clustersVersion) {
+            throw new IllegalStateException("Points of a cluster can be only read before next iteration");
+        }
+        if (materializedPointsVersion != version) {
+            var inputPoints = arguments.getInputPoints();
+            materializedPoints = new ArrayList<>(RESULTS_COUNT);
+            for (int c = 0; c < RESULTS_COUNT; c++) {
+                materializedPoints.add(new ArrayList<>(clusters.get(c).getSize()));
+            }
+            for (int i = 0; i < INPUT_POINTS_COUNT; i++) {
+                materializedPoints.get(labels[i]).add(inputPoints.get(i));
+            }
+            materializedPointsVersion = version;
+        }
+        return materializedPoints;
+    }
+
+    /**
+     * Moves mean points using one random batch of points. Clusters are built from the batch only, with mean points
+     * after the move.
+     */
+    private void singleMiniBatchIteration() {
+        final var oldMeanPoints = calculatedMeanPoints;
+        calculatedMeanPoints = miniBatch.iterate(calculatedMeanPoints, random);
+        iterationCounters.maxMeanPointShift = calculateMaxMeanPointShift(oldMeanPoints);
+        var batchIndexes = miniBatch.getBatchIndexes();
+        var batchLabels = miniBatch.getBatchLabels();
+        var batchLengths = miniBatch.getBatchLengths();
+        int[] sizes = new int[RESULTS_COUNT];
+        for (int b = 0; b < miniBatch.getBatchSize(); b++) {
+            sizes[batchLabels[b]]++;
+        }
         clusters = new ArrayList<>(RESULTS_COUNT);
         for (int i = 0; i < RESULTS_COUNT; i++) {
-            clusters.add(new KMeansCluster<>(threaded, estimatedCapacityPerCluster, arguments.getDataToMean()));
+            var cluster = new KMeansCluster<>(sizes[i], arguments.getDataToMean());
+            cluster.setMean(calculatedMeanPoints.get(i));
+            clusters.add(cluster);
+        }
+        var inputPoints = arguments.getInputPoints();
+        for (int b = 0; b < miniBatch.getBatchSize(); b++) {
+            clusters.get(batchLabels[b]).addPoint(inputPoints.get(batchIndexes[b]), batchLengths[b]);
         }
     }
 
-    private void calculateMeanPoints() {
+    void calculateMeanPoints() {
+        final var oldMeanPoints = calculatedMeanPoints;
+        calculateClusterMeans();
         calculatedMeanPoints = new ArrayList<>(RESULTS_COUNT);
         for (var cluster : clusters) {
             T point = cluster.getMean();
             if (point == null) {
                 point = getNewRandomGenericInstance();
+                iterationCounters.reseededClusters++;
             }
             calculatedMeanPoints.add(point);
         }
+        if (triangleInequalityBounds != null) {
+            iterationCounters.maxMeanPointShift = triangleInequalityBounds.onMeanPointsChanged(oldMeanPoints, calculatedMeanPoints, labels);
+        } else {
+            iterationCounters.maxMeanPointShift = calculateMaxMeanPointShift(oldMeanPoints);
+        }
     }
 
-    private int getIdOfMeanPoint(T point) {
-        return calculatedMeanPoints.indexOf(point);
+    /**
+     * Calculates mean points of all clusters in parallel, so that getMean() of clusters returns them right away. With
+     * MeanAccumulator, clusters bigger than a fair share of a single thread are split between all threads first, so one
+     * huge cluster does not keep a single thread busy while others wait.
+     */
+    private void calculateClusterMeans() {
+        if (!parallelRunner.isParallel() || keepsOnlyStatistics()) {
+            return;
+        }
+        var meanAccumulator = arguments.getMeanAccumulator();
+        if (meanAccumulator != null) {
+            for (var cluster : clusters) {
+                int size = cluster.getSize();
+                if (size >= MIN_SPLIT_CLUSTER_SIZE && (long) size * parallelRunner.getParallelism() > INPUT_POINTS_COUNT) {
+                    cluster.setMean(calculateMeanInParallel(cluster.getPoints(), meanAccumulator));
+                }
+            }
+        }
+        parallelRunner.forEachChunk(RESULTS_COUNT, (chunk, from, to) -> {
+            for (int c = from; c < to; c++) {
+                clusters.get(c).getMean();
+            }
+        });
     }
 
-    private PointAndLength<T> getClosestMeanPointTo(T point) {
-        T closest = null;
-        var distanceToClosest = 0.0;
-        for (T kMeanPoint : calculatedMeanPoints) {
-            var distance = arguments.getDataLength().getLength(kMeanPoint, point);
-            if (closest == null || distance < distanceToClosest) {
-                closest = kMeanPoint;
-                distanceToClosest = distance;
+    /**
+     * Accumulates chunks of points in parallel and merges partial means, adding every one with weight of its points.
+     */
+    private T calculateMeanInParallel(List<T> points, Supplier<MeanAccumulator<T>> meanAccumulator) {
+        final int chunkCount = parallelRunner.getChunkCount(points.size());
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        final MeanAccumulator<T>[] partials = new MeanAccumulator[chunkCount];
+        final int[] weights = new int[chunkCount];
+        parallelRunner.forEachChunk(points.size(), chunkCount, (chunk, from, to) -> {
+            var partial = meanAccumulator.get();
+            for (int i = from; i < to; i++) {
+                partial.add(points.get(i), 1);
             }
+            partials[chunk] = partial;
+            weights[chunk] = to - from;
+        });
+        var merged = partials[0];
+        for (int j = 1; j < chunkCount; j++) {
+            merged.add(partials[j].getMean(), weights[j]);
         }
-        return new PointAndLength<>(closest, distanceToClosest);
+        return merged.getMean();
     }
 
-    private static class PointAndLength<T> {
-        T t;
-        double length;
+    /**
+     * Returns the biggest length between old and current position of any mean point.
+     */
+    private double calculateMaxMeanPointShift(List<T> oldMeanPoints) {
+        var dataLength = arguments.getDataLength();
+        double maxShift = 0;
+        for (int c = 0; c < RESULTS_COUNT; c++) {
+            var oldMean = oldMeanPoints.get(c);
+            var newMean = calculatedMeanPoints.get(c);
+            if (oldMean != newMean) {
+                maxShift = Math.max(maxShift, dataLength.getLength(oldMean, newMean));
+                iterationCounters.lengthCalculations.increment();
+            }
+        }
+        return maxShift;
+    }
 
-        public PointAndLength(T t, double length) {
-            this.t = t;
-            this.length = length;
+    /**
+     * Finds mean point closest to the point with given index and stores its index and length to it.
+     */
+    private void assignToClosestMeanPoint(int i, T point) {
+        var dataLength = arguments.getDataLength();
+        int closest = 0;
+        var distanceToClosest = Double.POSITIVE_INFINITY;
+        for (int c = 0; c < RESULTS_COUNT; c++) {
+            var distance = dataLength.getLength(calculatedMeanPoints.get(c), point);
+            if (distance < distanceToClosest) {
+                closest = c;
+                distanceToClosest = distance;
+            }
         }
+        labels[i] = closest;
+        lengths[i] = distanceToClosest;
     }
 
     private T getNewRandomGenericInstance() {
-        int random = ThreadLocalRandom.current().nextInt(0, INPUT_POINTS_COUNT);
-        return arguments.getInputPoints().get(random);
+        return arguments.getInputPoints().get(random.nextInt(INPUT_POINTS_COUNT));
     }
 
 
@@ -303,6 +572,18 @@ public class KMeans<T> {
         return calculatedMeanPoints;
     }
 
+    /**
+     * Returns frozen model of current mean points that assigns new points to them, see KMeansModel.
+     * @param indexed whether to use an index, which requires DataLength to be a metric
+     * @return model of current mean points
+     */
+    public KMeansModel<T> getModel(boolean indexed) {
+        var meanPoints = getCalculatedMeanPoints();
+        return indexed
+                ? KMeansModel.indexed(meanPoints, arguments.getDataLength())
+                : KMeansModel.of(meanPoints, arguments.getDataLength());
+    }
+
     /**
      * Returns calculated k-means points in form of a clusters. Some results may be null, especially after low amount of iterations.
      * @return clusters with calculated results.
@@ -311,6 +592,183 @@ public class KMeans<T> {
         return clusters;
     }
 
+    /**
+     * Returns index of the cluster every input point was assigned to in the last iteration, in the same order as input
+     * points. Indexes match the order of getClusters(). In mini-batch mode all points are assigned to current mean
+     * points when this method is called. With setCompressDuplicates equal points share the label of their distinct
+     * point, and with setCoreset only points of the coreset are labelled.
+     * @return labels of input points
+     */
+    public int[] getLabels() {
+        if (!wasIterated) {
+            throw new RuntimeException("Cannot get results before iterating");
+        }
+        if (miniBatch != null) {
+            return calculateLabels();
+        }
+        var pointIndexes = arguments.getPointIndexes();
+        if (pointIndexes != null) {
+            int[] result = new int[pointIndexes.length];
+            for (int i = 0; i < pointIndexes.length; i++) {
+                result[i] = labels[pointIndexes[i]];
+            }
+            return result;
+        }
+        return labels.clone();
+    }
+
+    /**
+     * Assigns all points to current mean points without storing lengths.
+     */
+    private int[] calculateLabels() {
+        var inputPoints = arguments.getInputPoints();
+        var dataLength = arguments.getDataLength();
+        int[] result = new int[INPUT_POINTS_COUNT];
+        parallelRunner.forEachChunk(INPUT_POINTS_COUNT, (chunk, from, to) -> {
+            for (int i = from; i < to; i++) {
+                var point = inputPoints.get(i);
+                double distanceToClosest = Double.POSITIVE_INFINITY;
+                for (int c = 0; c < RESULTS_COUNT; c++) {
+                    var distance = dataLength.getLength(calculatedMeanPoints.get(c), point);
+                    if (distance < distanceToClosest) {
+                        result[i] = c;
+                        distanceToClosest = distance;
+                    }
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Returns new KMeans for input points changed by removing and adding given points, which continues from the current
+     * state instead of starting over. Kept points keep their labels, added points are assigned to closest current mean
+     * points and mean points are recalculated once, so only changed points need length calculations. With
+     * setOptimizationTriangleInequality bounds of kept points are kept too, so following iterations also calculate
+     * few lengths if the data changed little. In mini-batch mode only mean points are kept.
+     * <br>
+     * New input points are kept points in their previous order, followed by added points. This object is not changed.
+     * The new KMeans does not write checkpoints, so checkpoints of this object stay valid for its input points.
+     * @param addedPoints points to add
+     * @param removedIndexes indexes of points to remove, in current input points
+     * @return new KMeans, ready to be iterated
+     */
+    public KMeans<T> update(List<T> addedPoints, int[] removedIndexes) {
+        if (!wasIterated) {
+            throw new RuntimeException("Cannot update before iterating");
+        }
+        if (arguments.getWeights() != null) {
+            throw new RuntimeException("Cannot update KMeans of weighted, compressed or coreset points");
+        }
+        if (addedPoints == null || removedIndexes == null) {
+            throw new IllegalArgumentException("addedPoints and removedIndexes cannot be null");
+        }
+        final boolean[] removed = new boolean[INPUT_POINTS_COUNT];
+        int removedCount = 0;
+        for (var index : removedIndexes) {
+            if (index < 0 || index >= INPUT_POINTS_COUNT) {
+                throw new IllegalArgumentException("Removed index " + index + " is out of range");
+            }
+            if (!removed[index]) {
+                removed[index] = true;
+                removedCount++;
+            }
+        }
+        final int newCount = INPUT_POINTS_COUNT - removedCount + addedPoints.size();
+        if (newCount == 0) {
+            throw new IllegalArgumentException("inputPoints needs at least 1 data point");
+        }
+        var inputPoints = arguments.getInputPoints();
+        List<T> newInputPoints = new ArrayList<>(newCount);
+        int[] previousIndexes = new int[newCount];
+        for (int i = 0; i < INPUT_POINTS_COUNT; i++) {
+            if (!removed[i]) {
+                previousIndexes[newInputPoints.size()] = i;
+                newInputPoints.add(inputPoints.get(i));
+            }
+        }
+        for (var point : addedPoints) {
+            previousIndexes[newInputPoints.size()] = -1;
+            newInputPoints.add(point);
+        }
+
+        var updated = new KMeans<>(arguments.forUpdate(Collections.unmodifiableList(newInputPoints), calculatedMeanPoints));
+        if (labels != null) {
+            updated.continueFrom(this, previousIndexes);
+        }
+        return updated;
+    }
+
+    /**
+     * Takes over labels, lengths and bounds of kept points, assigns new points and calculates mean points.
+     * @param previousIndexes index of every point in input points of <i>previous</i>, or -1 for new points
+     */
+    private void continueFrom(KMeans<T> previous, int[] previousIndexes) {
+        for (int i = 0; i < INPUT_POINTS_COUNT; i++) {
+            if (previousIndexes[i] >= 0) {
+                labels[i] = previous.labels[previousIndexes[i]];
+                lengths[i] = previous.lengths[previousIndexes[i]];
+            }
+        }
+        if (triangleInequalityBounds != null) {
+            if (!triangleInequalityBounds.continueFrom(previous.triangleInequalityBounds, previousIndexes, calculatedMeanPoints, labels, lengths)) {
+                triangleInequalityBounds.assign(calculatedMeanPoints, labels, lengths);
+            }
+        } else {
+            var inputPoints = arguments.getInputPoints();
+            parallelRunner.forEachChunk(INPUT_POINTS_COUNT, (chunk, from, to) -> {
+                for (int i = from; i < to; i++) {
+                    if (previousIndexes[i] < 0) {
+                        assignToClosestMeanPoint(i, inputPoints.get(i));
+                    }
+                }
+            });
+        }
+        labelsAssigned = true;
+        initializeClusters();
+        calculateMeanPoints();
+        wasIterated = true;
+    }
+
+    /**
+     * Returns new KMeans for all input points of KMeans built with setCoreset, with every point assigned to the closest
+     * of current mean points in one iteration. Its clusters, labels and inertia describe all input points, and its mean
+     * points are recalculated from them. This object is not changed.
+     * @return new KMeans after one iteration over all input points
+     */
+    public KMeans<T> assignFullData() {
+        if (!wasIterated) {
+            throw new RuntimeException("Cannot assign full data before iterating");
+        }
+        if (!arguments.isCoreset()) {
+            throw new RuntimeException("Full data can be only assigned for KMeans built with a coreset");
+        }
+        return new KMeans<>(arguments.forFullData(calculatedMeanPoints)).iterate(1);
+    }
+
+    /**
+     * Returns statistics of the last iteration, the same as passed to IterationListener.
+     * @return statistics of the last iteration, or null before iterating
+     */
+    public IterationStatistics getLastIterationStatistics() {
+        return lastIterationStatistics;
+    }
+
+    /**
+     * Returns sum of lengths from points to mean points of their clusters, calculated in the last iteration before mean
+     * points were moved. In mini-batch mode only points of the last batch are summed.
+     * @return inertia
+     */
+    public double getInertia() {
+        if (clusters == null) return Double.POSITIVE_INFINITY;
+
+        double sum = 0;
+        for (var cluster : clusters) {
+            sum += cluster.getLengthSum();
+        }
+        return sum;
+    }
+
     /**
      * Aborts execution of k-means algorithm after current iteration.
      */
@@ -318,6 +776,22 @@ public class KMeans<T> {
         canContinue = false;
     }
 
+    /**
+     * Shuts down threads created for calculations of this object at once, instead of waiting until they end after a
+     * few idle seconds. Executor set with setExecutorService is not shut down. Iterating after closing creates new threads.
+     */
+    @Override
+    public void close() {
+        parallelRunner.close();
+    }
+
+    /**
+     * Stops using the executor given in arguments, following calculations run on threads of this object.
+     */
+    void detachExecutor() {
+        parallelRunner.detachExecutor();
+    }
+
     /**
      * Calculatese deviation for current cluster
      */
@@ -325,11 +799,11 @@ public class KMeans<T> {
         if (calculatedMeanPoints == null) return Double.POSITIVE_INFINITY;
 
         double sum = 0;
-        int weight = 0;
+        double weight = 0;
 
         for (var cluster : clusters) {
-            sum += cluster.getStandardDeviation() * cluster.getSize();
-            weight += cluster.getSize();
+            sum += cluster.getLengthSum();
+            weight += cluster.getWeight();
         }
 
         return sum/weight;
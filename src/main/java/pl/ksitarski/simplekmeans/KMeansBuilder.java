@@ -1,7 +1,14 @@
 package pl.ksitarski.simplekmeans;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
 
 public class KMeansBuilder<T> {
 
@@ -12,9 +19,27 @@ public class KMeansBuilder<T> {
 
     private boolean multithreaded = false;
     private int threadsMax = -1;
+    private ExecutorService executorService = null;
     private OnUpdate onUpdate;
+    private IterationListener iterationListener;
+    private KMeansLogger logger;
+    private Long seed = null;
+    private List<T> initialMeanPoints = null;
+    private int initialIteration = 0;
+    private Path checkpointFile = null;
+    private int checkpointInterval;
+    private PointSerializer<T> checkpointSerializer;
 
     private boolean dontUpdateAllOptimization = false;
+    private boolean triangleInequalityOptimization = false;
+    private Seeding seeding = Seeding.RANDOM;
+    private Supplier<MeanAccumulator<T>> meanAccumulator = null;
+    private boolean clustersWithoutPoints = false;
+    private int miniBatchSize = 0;
+    private LearningRate learningRate = null;
+    private int coresetSize = 0;
+    private double[] weights = null;
+    private boolean compressDuplicates = false;
 
     /**
      * Builder constructor for KMeans
@@ -65,6 +90,158 @@ public class KMeansBuilder<T> {
         return this;
     }
 
+    /**
+     * Runs calculations on given executor instead of creating own threads. The executor is reused by every iteration
+     * and is never shut down by KMeans, so it can be shared by many KMeans objects. When thread count is not set, it is
+     * taken from the parallelism of a ForkJoinPool or from number of available processors for other executors.
+     * Iterating from a task running on the same executor is only safe for a ForkJoinPool.
+     * @param executorService executor to run calculations on, for example ForkJoinPool.commonPool()
+     * @return this
+     */
+    public KMeansBuilder<T> setExecutorService(ExecutorService executorService) {
+        if (executorService == null) {
+            throw new IllegalArgumentException("executorService cannot be null");
+        }
+        this.executorService = executorService;
+        this.multithreaded = true;
+        return this;
+    }
+
+    /**
+     * Enables optimization that skips most length calculations using triangle inequality, while giving the same
+     * results as calculating all of them. Can be only used if DataLength is a metric, so it satisfies triangle
+     * inequality - for example euclidean distance with Math.sqrt, but not squared euclidean distance.
+     * Cannot be combined with setOptimizationSkipUpdatesBasedOnRange.
+     * @return this
+     */
+    public KMeansBuilder<T> setOptimizationTriangleInequality() {
+        this.triangleInequalityOptimization = true;
+        return this;
+    }
+
+    /**
+     * Sets strategy used to choose initial mean points. Default is Seeding.RANDOM.
+     * @param seeding seeding strategy
+     * @return this
+     */
+    public KMeansBuilder<T> setSeeding(Seeding seeding) {
+        if (seeding == null) {
+            throw new IllegalArgumentException("seeding cannot be null");
+        }
+        this.seeding = seeding;
+        return this;
+    }
+
+    /**
+     * Adds a way to calculate mean points incrementally, needed by modes that do not have all points of a cluster at once.
+     * When multithreaded, it is also used to split mean calculation of big clusters between threads.
+     * @param meanAccumulator function that creates new, empty MeanAccumulator
+     * @return this
+     */
+    public KMeansBuilder<T> setMeanAccumulator(Supplier<MeanAccumulator<T>> meanAccumulator) {
+        if (meanAccumulator == null) {
+            throw new IllegalArgumentException("meanAccumulator cannot be null");
+        }
+        this.meanAccumulator = meanAccumulator;
+        return this;
+    }
+
+    /**
+     * Enables optimization that makes clusters keep only their size, sum of lengths and mean point, calculated with
+     * MeanAccumulator, instead of lists of their points. Lists of points are only built when getPoints() of a cluster is
+     * called, and only until the next iteration. Greatly reduces memory use and garbage collection for big data sets.
+     * Requires setMeanAccumulator.
+     * @return this
+     */
+    public KMeansBuilder<T> setOptimizationClustersWithoutPoints() {
+        this.clustersWithoutPoints = true;
+        return this;
+    }
+
+    /**
+     * Enables mini-batch mode: every iteration assigns only <i>batchSize</i> random input points and moves mean points
+     * towards them, each mean point becoming the mean of all points ever assigned to it. Iterations are much cheaper, but
+     * many more of them are needed. In this mode clusters and standard deviation describe the last batch only.
+     * Requires setMeanAccumulator and cannot be combined with other optimizations.
+     * @param batchSize number of points sampled in every iteration
+     * @return this
+     */
+    public KMeansBuilder<T> setMiniBatch(int batchSize) {
+        return setMiniBatch(batchSize, assignedCount -> 1.0 / assignedCount);
+    }
+
+    /**
+     * Enables mini-batch mode with custom learning rate. See setMiniBatch(int).
+     * @param batchSize number of points sampled in every iteration
+     * @param learningRate function that tells how far mean points move towards assigned points
+     * @return this
+     */
+    public KMeansBuilder<T> setMiniBatch(int batchSize, LearningRate learningRate) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize needs to be at least 1");
+        }
+        if (learningRate == null) {
+            throw new IllegalArgumentException("learningRate cannot be null");
+        }
+        this.miniBatchSize = batchSize;
+        this.learningRate = learningRate;
+        return this;
+    }
+
+    /**
+     * Sets weight of every input point: a point with weight 3 counts the same as 3 copies of it when calculating mean
+     * points, inertia and standard deviation, and is more likely to be chosen while seeding. Requires setMeanAccumulator,
+     * because DataToMean cannot take weights into account, and cannot be combined with mini-batch mode.
+     * @param weights positive weights, in the same order as input points
+     * @return this
+     */
+    public KMeansBuilder<T> setWeights(double[] weights) {
+        if (weights == null || weights.length != INPUT_POINTS.size()) {
+            throw new IllegalArgumentException("weights need to have one value per input point");
+        }
+        for (var weight : weights) {
+            if (!(weight > 0) || Double.isInfinite(weight)) {
+                throw new IllegalArgumentException("weights need to be positive and finite, found: " + weight);
+            }
+        }
+        this.weights = weights.clone();
+        return this;
+    }
+
+    /**
+     * Enables a hashing pass that collapses equal input points into a single point weighted by their count (or sum of
+     * their weights), so that iterations calculate lengths only for distinct points. Requires equals and hashCode of
+     * points to be consistent, and setMeanAccumulator. Cannot be combined with mini-batch mode.
+     * <br>
+     * getLabels still returns a label for every input point, but clusters contain distinct points only: getSize of a
+     * cluster counts distinct points, getWeight counts all of them.
+     * @return this
+     */
+    public KMeansBuilder<T> setCompressDuplicates() {
+        this.compressDuplicates = true;
+        return this;
+    }
+
+    /**
+     * Enables reduction of input points to a weighted coreset of about <i>coresetSize</i> points before iterating. The
+     * coreset is sampled in two passes over input points, and then iterations only look at the coreset, so they
+     * calculate <i>coresetSize * resultCount</i> lengths instead of <i>n * resultCount</i>. Mean points are then
+     * approximately as good as the ones calculated on all points, given a coreset big enough compared to the result
+     * count, for example several hundred times bigger. Clusters, labels and standard deviation describe the weighted
+     * coreset; KMeans.assignFullData() returns KMeans with all input points assigned to calculated mean points.
+     * Has no effect when there are not more input points than <i>coresetSize</i>. Requires setMeanAccumulator and
+     * cannot be combined with mini-batch mode.
+     * @param coresetSize number of sampled points
+     * @return this
+     */
+    public KMeansBuilder<T> setCoreset(int coresetSize) {
+        if (coresetSize < 1) {
+            throw new IllegalArgumentException("coresetSize needs to be at least 1");
+        }
+        this.coresetSize = coresetSize;
+        return this;
+    }
+
     /**
      * Adds OnUpdate function
      * @param onUpdate function that is called whenever iteration is completed
@@ -78,17 +255,217 @@ public class KMeansBuilder<T> {
         return this;
     }
 
+    /**
+     * Starts from given mean points instead of choosing them with Seeding, for example from results of a previous run
+     * on similar data.
+     * @param initialMeanPoints exactly <i>resultCount</i> mean points
+     * @return this
+     */
+    public KMeansBuilder<T> setInitialMeanPoints(List<T> initialMeanPoints) {
+        if (initialMeanPoints == null || initialMeanPoints.size() != RESULT_COUNT) {
+            throw new IllegalArgumentException("initialMeanPoints need exactly " + RESULT_COUNT + " points");
+        }
+        if (initialMeanPoints.contains(null)) {
+            throw new IllegalArgumentException("initialMeanPoints cannot contain null");
+        }
+        this.initialMeanPoints = new ArrayList<>(initialMeanPoints);
+        return this;
+    }
+
+    /**
+     * Writes a checkpoint to <i>file</i> every <i>interval</i> iterations and when iterating is stopped with earlyStop().
+     * Checkpoints are written on a background thread, replacing the file only when a whole checkpoint is written, and
+     * contain mean points and number of iterations. Iterating can be resumed from them with resumeFrom.
+     * @param file file to write checkpoints to
+     * @param interval number of iterations between checkpoints
+     * @param serializer function that writes and reads mean points
+     * @return this
+     */
+    public KMeansBuilder<T> setCheckpoint(Path file, int interval, PointSerializer<T> serializer) {
+        if (file == null || serializer == null) {
+            throw new IllegalArgumentException("file and serializer cannot be null");
+        }
+        if (interval < 1) {
+            throw new IllegalArgumentException("interval needs to be at least 1");
+        }
+        this.checkpointFile = file;
+        this.checkpointInterval = interval;
+        this.checkpointSerializer = serializer;
+        return this;
+    }
+
+    /**
+     * Resumes from a checkpoint written by KMeans with the same input points and result count: starts from its mean
+     * points and continues counting iterations from its iteration count.
+     * @param file checkpoint file
+     * @param serializer function that writes and reads mean points
+     * @return this
+     */
+    public KMeansBuilder<T> resumeFrom(Path file, PointSerializer<T> serializer) {
+        if (file == null || serializer == null) {
+            throw new IllegalArgumentException("file and serializer cannot be null");
+        }
+        Checkpoint<T> checkpoint;
+        try {
+            checkpoint = Checkpoint.read(file, serializer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (checkpoint.getInputPointCount() != INPUT_POINTS.size()) {
+            throw new IllegalArgumentException("Checkpoint was written for " + checkpoint.getInputPointCount() + " input points, not " + INPUT_POINTS.size());
+        }
+        setInitialMeanPoints(checkpoint.getMeanPoints());
+        this.initialIteration = checkpoint.getIteration();
+        return this;
+    }
+
+    /**
+     * Sets seed of all random choices, so that runs with the same arguments and thread count give the same results.
+     * Without a seed every run is different.
+     * @param seed seed of random number generator
+     * @return this
+     */
+    public KMeansBuilder<T> setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Adds IterationListener
+     * @param iterationListener function that is called with statistics of every completed iteration
+     * @return this
+     */
+    public KMeansBuilder<T> onIteration(IterationListener iterationListener) {
+        if (iterationListener == null) {
+            throw new IllegalArgumentException("iterationListener cannot be null");
+        }
+        this.iterationListener = iterationListener;
+        return this;
+    }
+
+    /**
+     * Adds KMeansLogger that logs statistics of every completed iteration
+     * @param logger logger
+     * @return this
+     */
+    public KMeansBuilder<T> setLogger(KMeansLogger logger) {
+        if (logger == null) {
+            throw new IllegalArgumentException("logger cannot be null");
+        }
+        this.logger = logger;
+        return this;
+    }
+
     /**
      * Finishes building arguments and returns new KMeans object
      * @return finished arguments
      */
     public KMeans<T> build() {
+        validate();
         return new KMeans<>(buildArgs());
     }
 
+    /**
+     * Runs <i>restartCount</i> independent KMeans, each seeded differently, until they meet given criteria and returns
+     * the one with the lowest inertia. All runs share the same input points and threads; with setThreadCount or a
+     * ForkJoinPool executor they run concurrently, otherwise one after another. Listeners and logger get updates of
+     * all runs, possibly from many threads at once.
+     * @param restartCount number of runs
+     * @param criteria rules that tell when each run stops
+     * @return KMeans with the lowest inertia, which can be iterated further
+     */
+    public KMeans<T> buildBestOf(int restartCount, ConvergenceCriteria criteria) {
+        return buildBestOf(restartCount, criteria, 0);
+    }
+
+    /**
+     * Same as buildBestOf(int, ConvergenceCriteria), but also stops runs that are clearly losing: a run stops when its
+     * inertia is over <i>pruneFactor</i> times the lowest inertia any run has reached so far. Runs are compared after
+     * every iteration, once all of them finished it, so pruning keeps results reproducible with setSeed.
+     * @param restartCount number of runs
+     * @param criteria rules that tell when each run stops
+     * @param pruneFactor factor bigger than 1.0, or 0.0 to never stop runs early
+     * @return KMeans with the lowest inertia, which can be iterated further
+     */
+    public KMeans<T> buildBestOf(int restartCount, ConvergenceCriteria criteria, double pruneFactor) {
+        if (restartCount < 1) {
+            throw new IllegalArgumentException("restartCount needs to be at least 1");
+        }
+        if (criteria == null || !criteria.hasAnyRule()) {
+            throw new IllegalArgumentException("criteria need at least one rule");
+        }
+        if (pruneFactor != 0 && !(pruneFactor > 1)) {
+            throw new IllegalArgumentException("pruneFactor needs to be bigger than 1.0 or 0.0, is: " + pruneFactor);
+        }
+        if (initialMeanPoints != null) {
+            throw new IllegalArgumentException("Restarts cannot be combined with initial mean points");
+        }
+        if (checkpointFile != null) {
+            throw new IllegalArgumentException("Restarts cannot be combined with checkpoints");
+        }
+        validate();
+        return new Restarts<>(buildArgs(), restartCount, criteria, pruneFactor).run();
+    }
 
+    private void validate() {
+        if (dontUpdateAllOptimization && triangleInequalityOptimization) {
+            throw new IllegalArgumentException("Skip updates based on range and triangle inequality optimizations cannot be combined");
+        }
+        if (clustersWithoutPoints && meanAccumulator == null) {
+            throw new IllegalArgumentException("Clusters without points require meanAccumulator");
+        }
+        if (miniBatchSize > 0 && meanAccumulator == null) {
+            throw new IllegalArgumentException("Mini-batch mode requires meanAccumulator");
+        }
+        if (miniBatchSize > 0 && (dontUpdateAllOptimization || triangleInequalityOptimization)) {
+            throw new IllegalArgumentException("Mini-batch mode cannot be combined with other optimizations");
+        }
+        if (coresetSize > 0 && meanAccumulator == null) {
+            throw new IllegalArgumentException("Coreset requires meanAccumulator");
+        }
+        if (coresetSize > 0 && miniBatchSize > 0) {
+            throw new IllegalArgumentException("Coreset cannot be combined with mini-batch mode");
+        }
+        if ((weights != null || compressDuplicates) && meanAccumulator == null) {
+            throw new IllegalArgumentException("Weighted points require meanAccumulator");
+        }
+        if ((weights != null || compressDuplicates) && miniBatchSize > 0) {
+            throw new IllegalArgumentException("Weighted points cannot be combined with mini-batch mode");
+        }
+    }
+
+
+    /**
+     * Builds arguments of input points, which are first compressed to distinct points and then reduced to a coreset,
+     * if enabled.
+     */
     private Arguments<T> buildArgs() {
-        return new Arguments<>(INPUT_POINTS, RESULT_COUNT, dataToMean, dataLength, multithreaded, threadsMax, dontUpdateAllOptimization, onUpdate);
+        var args = buildArgs(INPUT_POINTS, weights, null, null);
+        if (compressDuplicates) {
+            var distinct = DistinctPoints.of(INPUT_POINTS, weights);
+            args = buildArgs(Collections.unmodifiableList(distinct.getPoints()), distinct.getWeights(), distinct.getIndexes(), null);
+        }
+        if (coresetSize == 0 || coresetSize >= args.getInputPoints().size()) {
+            return args;
+        }
+        var random = seed != null ? new Random(seed) : new Random();
+        //KMeans is not created yet, so sampling has a runner of its own, with threads shut down right after it
+        var parallelRunner = ParallelRunner.create(multithreaded, threadsMax, executorService);
+        Coreset<T> coreset;
+        try {
+            coreset = Coreset.sample(args.getInputPoints(), args.getWeights(), coresetSize, meanAccumulator, dataLength, parallelRunner, random);
+        } finally {
+            parallelRunner.close();
+        }
+        return buildArgs(Collections.unmodifiableList(coreset.getPoints()), coreset.getWeights(), null, args);
+    }
+
+    private Arguments<T> buildArgs(List<T> inputPoints, double[] weights, int[] pointIndexes, Arguments<T> fullData) {
+        //every built KMeans gets a writer and a writing thread of its own
+        final var checkpointWriter = checkpointFile != null
+                ? new CheckpointWriter<>(checkpointFile, checkpointInterval, checkpointSerializer)
+                : null;
+        return new Arguments<>(inputPoints, RESULT_COUNT, dataToMean, dataLength, multithreaded, threadsMax, executorService, dontUpdateAllOptimization, triangleInequalityOptimization, seeding, meanAccumulator, clustersWithoutPoints, miniBatchSize, learningRate, onUpdate, iterationListener, logger, seed, initialMeanPoints, initialIteration, checkpointWriter, weights, pointIndexes, fullData);
     }
 
     static class Arguments<T> {
@@ -100,19 +477,73 @@ public class KMeansBuilder<T> {
 
         private final boolean MULTITHREADED;
         private final int threadsMax;
+        private final ExecutorService executorService;
 
         private final boolean dontUpdateAllOptimization;
+        private final boolean triangleInequalityOptimization;
+        private final Seeding seeding;
+        private final Supplier<MeanAccumulator<T>> meanAccumulator;
+        private final boolean clustersWithoutPoints;
+        private final int miniBatchSize;
+        private final LearningRate learningRate;
         private final OnUpdate onUpdate;
+        private final IterationListener iterationListener;
+        private final KMeansLogger logger;
+        private final Long seed;
+        private final List<T> initialMeanPoints;
+        private final int initialIteration;
+        private final CheckpointWriter<T> checkpointWriter;
+        private final double[] weights;
+        private final int[] pointIndexes;
+        private final Arguments<T> fullData;
 
-        private Arguments(List<T> inputPoints, int resultCount, DataToMean<T> dataToMean, DataLength<T> dataLength, boolean multithreaded, int threadsMax, boolean dontUpdateAllOptimization, OnUpdate onUpdate) {
+        private Arguments(List<T> inputPoints, int resultCount, DataToMean<T> dataToMean, DataLength<T> dataLength, boolean multithreaded, int threadsMax, ExecutorService executorService, boolean dontUpdateAllOptimization, boolean triangleInequalityOptimization, Seeding seeding, Supplier<MeanAccumulator<T>> meanAccumulator, boolean clustersWithoutPoints, int miniBatchSize, LearningRate learningRate, OnUpdate onUpdate, IterationListener iterationListener, KMeansLogger logger, Long seed, List<T> initialMeanPoints, int initialIteration, CheckpointWriter<T> checkpointWriter, double[] weights, int[] pointIndexes, Arguments<T> fullData) {
             this.INPUT_POINTS = inputPoints;
             this.RESULT_COUNT = resultCount;
             this.dataToMean = dataToMean;
             this.dataLength = dataLength;
             this.MULTITHREADED = multithreaded;
             this.threadsMax = threadsMax;
+            this.executorService = executorService;
             this.dontUpdateAllOptimization = dontUpdateAllOptimization;
+            this.triangleInequalityOptimization = triangleInequalityOptimization;
+            this.seeding = seeding;
+            this.meanAccumulator = meanAccumulator;
+            this.clustersWithoutPoints = clustersWithoutPoints;
+            this.miniBatchSize = miniBatchSize;
+            this.learningRate = learningRate;
             this.onUpdate = onUpdate;
+            this.iterationListener = iterationListener;
+            this.logger = logger;
+            this.seed = seed;
+            this.initialMeanPoints = initialMeanPoints;
+            this.initialIteration = initialIteration;
+            this.checkpointWriter = checkpointWriter;
+            this.weights = weights;
+            this.pointIndexes = pointIndexes;
+            this.fullData = fullData;
+        }
+
+        /**
+         * Returns copy of these arguments for a single run of Restarts, which does not write checkpoints.
+         */
+        Arguments<T> forRestart(long seed, ExecutorService executorService, IterationListener iterationListener) {
+            return new Arguments<>(INPUT_POINTS, RESULT_COUNT, dataToMean, dataLength, MULTITHREADED, threadsMax, executorService, dontUpdateAllOptimization, triangleInequalityOptimization, seeding, meanAccumulator, clustersWithoutPoints, miniBatchSize, learningRate, onUpdate, iterationListener, logger, seed, initialMeanPoints, initialIteration, null, weights, pointIndexes, fullData);
+        }
+
+        /**
+         * Returns copy of these arguments for changed input points, starting from given mean points. Checkpoints are not
+         * written, as they would replace checkpoints of the original input points.
+         */
+        Arguments<T> forUpdate(List<T> inputPoints, List<T> initialMeanPoints) {
+            return new Arguments<>(inputPoints, RESULT_COUNT, dataToMean, dataLength, MULTITHREADED, threadsMax, executorService, dontUpdateAllOptimization, triangleInequalityOptimization, seeding, meanAccumulator, clustersWithoutPoints, miniBatchSize, learningRate, onUpdate, iterationListener, logger, seed, initialMeanPoints, 0, null, null, null, null);
+        }
+
+        /**
+         * Returns copy of these arguments for all input points of a coreset, starting from given mean points.
+         */
+        Arguments<T> forFullData(List<T> initialMeanPoints) {
+            return new Arguments<>(fullData.INPUT_POINTS, RESULT_COUNT, dataToMean, dataLength, MULTITHREADED, threadsMax, executorService, dontUpdateAllOptimization, triangleInequalityOptimization, seeding, meanAccumulator, clustersWithoutPoints, miniBatchSize, learningRate, onUpdate, iterationListener, logger, seed, initialMeanPoints, 0, null, fullData.weights, fullData.pointIndexes, null);
         }
 
         List<T> getInputPoints() {
@@ -131,10 +562,38 @@ public class KMeansBuilder<T> {
             return threadsMax;
         }
 
+        ExecutorService getExecutorService() {
+            return executorService;
+        }
+
         boolean isDontUpdateAllOptimization() {
             return dontUpdateAllOptimization;
         }
 
+        boolean isTriangleInequalityOptimization() {
+            return triangleInequalityOptimization;
+        }
+
+        Seeding getSeeding() {
+            return seeding;
+        }
+
+        Supplier<MeanAccumulator<T>> getMeanAccumulator() {
+            return meanAccumulator;
+        }
+
+        boolean isClustersWithoutPoints() {
+            return clustersWithoutPoints;
+        }
+
+        int getMiniBatchSize() {
+            return miniBatchSize;
+        }
+
+        LearningRate getLearningRate() {
+            return learningRate;
+        }
+
         DataToMean<T> getDataToMean() {
             return dataToMean;
         }
@@ -146,6 +605,61 @@ public class KMeansBuilder<T> {
         OnUpdate getOnUpdate() {
             return onUpdate;
         }
+
+        IterationListener getIterationListener() {
+            return iterationListener;
+        }
+
+        KMeansLogger getLogger() {
+            return logger;
+        }
+
+        Long getSeed() {
+            return seed;
+        }
+
+        List<T> getInitialMeanPoints() {
+            return initialMeanPoints;
+        }
+
+        int getInitialIteration() {
+            return initialIteration;
+        }
+
+        CheckpointWriter<T> getCheckpointWriter() {
+            return checkpointWriter;
+        }
+
+        /**
+         * Returns weights of input points, or null when every point weighs 1.
+         */
+        double[] getWeights() {
+            return weights;
+        }
+
+        /**
+         * Returns index in input points of every point given to the builder, or null when they are the same points.
+         */
+        int[] getPointIndexes() {
+            return pointIndexes;
+        }
+
+        /**
+         * Returns whether input points are a coreset of all points, see forFullData.
+         */
+        boolean isCoreset() {
+            return fullData != null;
+        }
+
+        /**
+         * Returns number of points given to the builder, before compression or coreset reduction.
+         */
+        int getSourcePointCount() {
+            if (fullData != null) {
+                return fullData.getSourcePointCount();
+            }
+            return pointIndexes != null ? pointIndexes.length : INPUT_POINTS.size();
+        }
     }
 
 
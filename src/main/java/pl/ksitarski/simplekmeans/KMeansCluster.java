@@ -3,60 +3,80 @@ package pl.ksitarski.simplekmeans;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
 
 public class KMeansCluster<T> {
 
     private List<T> points;
-    private List<Double> lengths;
+    private Supplier<List<T>> pointsSupplier;
+    private int size;
+    private double weight;
+    private double lengthSum;
     private T meanPoint;
     private DataToMean<T> dataToMean;
-    private Semaphore accessSemaphore = new Semaphore(1);
-
-    KMeansCluster(boolean threaded, int initialCapacity, DataToMean<T> dataToMean) {
-        if (threaded) {
-            points = Collections.synchronizedList(new ArrayList<>(initialCapacity));
-            lengths = Collections.synchronizedList(new ArrayList<>(initialCapacity));
-        } else {
-            points = new ArrayList<>(initialCapacity);
-            lengths = new ArrayList<>(initialCapacity);
-        }
+
+    KMeansCluster(int initialCapacity, DataToMean<T> dataToMean) {
+        points = new ArrayList<>(initialCapacity);
         this.dataToMean = dataToMean;
     }
 
+    /**
+     * Creates cluster that only keeps statistics of its points, with points supplied when they are first requested.
+     * @param weight sum of weights of points, the same as size for unweighted points
+     * @param lengthSum sum of lengths multiplied by weights of points
+     */
+    KMeansCluster(int size, double weight, double lengthSum, T meanPoint, Supplier<List<T>> pointsSupplier) {
+        this.size = size;
+        this.weight = weight;
+        this.lengthSum = lengthSum;
+        this.meanPoint = meanPoint;
+        this.pointsSupplier = pointsSupplier;
+    }
+
     public T getMean() {
         if (meanPoint != null) return meanPoint;
-        if (points.size() == 0) {
+        if (size == 0) {
             return null;
         }
         meanPoint = dataToMean.getMean(points);
         return meanPoint;
     }
 
-    synchronized void addPoint(T point, double length) {
-        accessSemaphore.acquireUninterruptibly();
+    void setMean(T meanPoint) {
+        this.meanPoint = meanPoint;
+    }
+
+    void addPoint(T point, double length) {
         points.add(point);
-        lengths.add(length);
-        accessSemaphore.release();
+        size++;
+        weight++;
+        lengthSum += length;
     }
 
     public double getStandardDeviation() {
-        accessSemaphore.acquireUninterruptibly();
-        double sum = 0;
-        for (var length : lengths) {
-            sum += length;
-        }
-        double stdDev = sum/getSize();
-        accessSemaphore.release();
-        return stdDev;
+        return lengthSum/weight;
     }
 
     public List<T> getPoints() {
+        if (points == null) {
+            points = pointsSupplier.get();
+        }
         return Collections.unmodifiableList(points);
     }
 
     public int getSize() {
-        return points.size();
+        return size;
+    }
+
+    double getLengthSum() {
+        return lengthSum;
+    }
+
+    /**
+     * @return sum of weights of points, the same as size for unweighted points
+     */
+    public double getWeight() {
+        return weight;
     }
 
 
@@ -0,0 +1,122 @@
+package pl.ksitarski.simplekmeans;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Frozen set of mean points that assigns new points to the closest one. Never changes after it is created, so it can be
+ * shared by any number of threads, and predicting does not allocate.
+ * <br>
+ * Without an index every prediction calculates length to every mean point. With an index, mean points are organized
+ * in a vantage-point tree, so predictions calculate lengths only to a fraction of mean points when there are many of
+ * them. The index requires DataLength to be a metric, and is still exact: it returns the same mean points.
+ */
+public class KMeansModel<T> {
+
+    private final T[] meanPoints;
+    private final DataLength<T> dataLength;
+    private final VantagePointTree<T> index;
+
+    private KMeansModel(List<T> meanPoints, DataLength<T> dataLength, boolean indexed) {
+        @SuppressWarnings("unchecked")
+        T[] array = (T[]) meanPoints.toArray();
+        this.meanPoints = array;
+        this.dataLength = dataLength;
+        this.index = indexed ? new VantagePointTree<>(array, dataLength) : null;
+    }
+
+    /**
+     * Creates model that compares every point with all mean points.
+     * @param meanPoints mean points, for example from KMeans.getCalculatedMeanPoints()
+     * @param dataLength function that gives length between two points
+     * @return model
+     */
+    public static <T> KMeansModel<T> of(List<T> meanPoints, DataLength<T> dataLength) {
+        validate(meanPoints, dataLength);
+        return new KMeansModel<>(meanPoints, dataLength, false);
+    }
+
+    /**
+     * Creates model that finds closest mean points using an index, which is faster for big numbers of mean points.
+     * @param meanPoints mean points, for example from KMeans.getCalculatedMeanPoints()
+     * @param dataLength function that gives length between two points, needs to be a metric, so it satisfies triangle
+     *                   inequality - for example euclidean distance with Math.sqrt, but not squared euclidean distance
+     * @return model
+     */
+    public static <T> KMeansModel<T> indexed(List<T> meanPoints, DataLength<T> dataLength) {
+        validate(meanPoints, dataLength);
+        return new KMeansModel<>(meanPoints, dataLength, true);
+    }
+
+    private static <T> void validate(List<T> meanPoints, DataLength<T> dataLength) {
+        if (meanPoints == null || meanPoints.isEmpty()) {
+            throw new IllegalArgumentException("meanPoints needs at least 1 point");
+        }
+        if (meanPoints.contains(null)) {
+            throw new IllegalArgumentException("meanPoints cannot contain null");
+        }
+        if (dataLength == null) {
+            throw new IllegalArgumentException("dataLength cannot be null");
+        }
+    }
+
+    /**
+     * Returns index of the mean point closest to given point.
+     * @param point point to assign
+     * @return index of closest mean point, matching order of getMeanPoints()
+     */
+    public int predict(T point) {
+        if (index != null) {
+            return index.findClosest(point);
+        }
+        int closest = 0;
+        double distanceToClosest = Double.POSITIVE_INFINITY;
+        for (int c = 0; c < meanPoints.length; c++) {
+            double distance = dataLength.getLength(meanPoints[c], point);
+            if (distance < distanceToClosest) {
+                closest = c;
+                distanceToClosest = distance;
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * Writes index of the closest mean point of every given point to <i>out</i>.
+     * @param points points to assign
+     * @param out array at least as long as <i>points</i>
+     */
+    public void predict(List<T> points, int[] out) {
+        if (out.length < points.size()) {
+            throw new IllegalArgumentException("out needs at least " + points.size() + " elements, has: " + out.length);
+        }
+        for (int i = 0; i < points.size(); i++) {
+            out[i] = predict(points.get(i));
+        }
+    }
+
+    /**
+     * @return mean points of this model
+     */
+    public List<T> getMeanPoints() {
+        List<T> result = new ArrayList<>(meanPoints.length);
+        Collections.addAll(result, meanPoints);
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * @param index index of mean point
+     * @return mean point with given index
+     */
+    public T getMeanPoint(int index) {
+        return meanPoints[index];
+    }
+
+    /**
+     * @return number of mean points
+     */
+    public int getSize() {
+        return meanPoints.length;
+    }
+}
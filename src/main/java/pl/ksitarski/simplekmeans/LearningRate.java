@@ -0,0 +1,13 @@
+package pl.ksitarski.simplekmeans;
+
+@FunctionalInterface
+public interface LearningRate {
+    /**
+     * Returns how far mean point moves towards a newly assigned point in mini-batch mode, 1.0 moving it all the way to
+     * the point and 0.0 not moving it at all. The default rate is 1/<i>assignedCount</i>, which makes every mean point
+     * the mean of all points ever assigned to it.
+     * @param assignedCount number of points assigned to the mean point so far, including the new point
+     * @return learning rate between 0.0 and 1.0
+     */
+    double getLearningRate(long assignedCount);
+}
@@ -0,0 +1,129 @@
+package pl.ksitarski.simplekmeans;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Points read from a memory-mapped binary file of fixed-width records, each record being <i>dimensions</i> float or
+ * double values without any header or padding. Pages are loaded by the operating system as they are read, so the file
+ * can be bigger than the heap.
+ */
+public class MappedPointSource implements DensePointSource {
+
+    /**
+     * Type of values stored in the file.
+     */
+    public enum ValueType {
+        FLOAT(Float.BYTES),
+        DOUBLE(Double.BYTES);
+
+        private final int bytes;
+
+        ValueType(int bytes) {
+            this.bytes = bytes;
+        }
+    }
+
+    private final int pointCount;
+    private final int dimensions;
+    private final int pointsPerSegment;
+    private final DoubleBuffer[] doubleSegments;
+    private final FloatBuffer[] floatSegments;
+
+    private MappedPointSource(int pointCount, int dimensions, int pointsPerSegment, DoubleBuffer[] doubleSegments, FloatBuffer[] floatSegments) {
+        this.pointCount = pointCount;
+        this.dimensions = dimensions;
+        this.pointsPerSegment = pointsPerSegment;
+        this.doubleSegments = doubleSegments;
+        this.floatSegments = floatSegments;
+    }
+
+    /**
+     * Maps given file. The file is mapped read-only and its channel is closed right away; the mapping stays valid until
+     * this object is garbage collected.
+     * @param file file with point records
+     * @param dimensions number of values per point
+     * @param valueType type of stored values
+     * @param byteOrder byte order of stored values, for example ByteOrder.LITTLE_ENDIAN for files written on x86
+     * @return point source reading given file
+     */
+    public static MappedPointSource open(Path file, int dimensions, ValueType valueType, ByteOrder byteOrder) {
+        if (file == null || valueType == null || byteOrder == null) {
+            throw new IllegalArgumentException("file, valueType and byteOrder cannot be null");
+        }
+        if (dimensions < 1) {
+            throw new IllegalArgumentException("dimensions needs to be at least 1");
+        }
+        final long recordBytes = (long) dimensions * valueType.bytes;
+        if (recordBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Single record cannot be bigger than 2GB");
+        }
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size == 0 || size % recordBytes != 0) {
+                throw new IllegalArgumentException("File size " + size + " is not a positive multiple of record size " + recordBytes);
+            }
+            final long pointCount = size / recordBytes;
+            if (pointCount > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("File has more than " + Integer.MAX_VALUE + " points");
+            }
+            //a single mapping cannot exceed 2GB, so the file is mapped in segments of whole records
+            final int pointsPerSegment = (int) Math.min(pointCount, Integer.MAX_VALUE / recordBytes);
+            final int segmentCount = (int) ((pointCount + pointsPerSegment - 1) / pointsPerSegment);
+            var doubleSegments = valueType == ValueType.DOUBLE ? new DoubleBuffer[segmentCount] : null;
+            var floatSegments = valueType == ValueType.FLOAT ? new FloatBuffer[segmentCount] : null;
+            for (int s = 0; s < segmentCount; s++) {
+                long position = (long) s * pointsPerSegment * recordBytes;
+                long length = Math.min(pointsPerSegment * recordBytes, size - position);
+                var mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, length).order(byteOrder);
+                if (doubleSegments != null) {
+                    doubleSegments[s] = mapped.asDoubleBuffer();
+                } else {
+                    floatSegments[s] = mapped.asFloatBuffer();
+                }
+            }
+            return new MappedPointSource((int) pointCount, dimensions, pointsPerSegment, doubleSegments, floatSegments);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public int getPointCount() {
+        return pointCount;
+    }
+
+    @Override
+    public int getDimensions() {
+        return dimensions;
+    }
+
+    @Override
+    public void read(int from, int to, double[] buffer) {
+        int bufferOffset = 0;
+        int point = from;
+        while (point < to) {
+            final int segment = point / pointsPerSegment;
+            final int pointInSegment = point - segment * pointsPerSegment;
+            final int points = Math.min(to - point, pointsPerSegment - pointInSegment);
+            final int index = pointInSegment * dimensions;
+            final int length = points * dimensions;
+            if (doubleSegments != null) {
+                doubleSegments[segment].get(index, buffer, bufferOffset, length);
+            } else {
+                var floats = floatSegments[segment];
+                for (int i = 0; i < length; i++) {
+                    buffer[bufferOffset + i] = floats.get(index + i);
+                }
+            }
+            bufferOffset += length;
+            point += points;
+        }
+    }
+}
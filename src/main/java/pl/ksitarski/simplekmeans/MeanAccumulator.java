@@ -0,0 +1,20 @@
+package pl.ksitarski.simplekmeans;
+
+/**
+ * Mean point that is calculated incrementally, one weighted point at a time, instead of from a whole list of points
+ * like in DataToMean. For numeric points it usually only keeps a weighted sum of coordinates and a sum of weights.
+ */
+public interface MeanAccumulator<T> {
+    /**
+     * Adds point to the mean.
+     * @param point added point
+     * @param weight weight of added point, always greater than 0
+     */
+    void add(T point, double weight);
+
+    /**
+     * Returns weighted mean of all points added so far. Is never called before any point was added.
+     * @return mean point
+     */
+    T getMean();
+}
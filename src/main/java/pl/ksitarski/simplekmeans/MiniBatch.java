@@ -0,0 +1,126 @@
+package pl.ksitarski.simplekmeans;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Mini-batch KMeans: every iteration assigns only a random batch of input points and moves mean points towards them
+ * by a learning rate that decreases with number of points assigned to each mean point so far.
+ */
+class MiniBatch<T> {
+
+    private final List<T> inputPoints;
+    private final int resultCount;
+    private final int batchSize;
+    private final LearningRate learningRate;
+    private final Supplier<MeanAccumulator<T>> meanAccumulator;
+    private final DataLength<T> dataLength;
+    private final ParallelRunner parallelRunner;
+    private final IterationCounters counters;
+
+    private final MovingMeanPoint<T>[] movingMeanPoints;
+    private final int[] batchIndexes;
+    private final int[] batchLabels;
+    private final double[] batchLengths;
+
+    MiniBatch(List<T> inputPoints, int resultCount, int batchSize, LearningRate learningRate,
+              Supplier<MeanAccumulator<T>> meanAccumulator, DataLength<T> dataLength, ParallelRunner parallelRunner,
+              IterationCounters counters) {
+        this.inputPoints = inputPoints;
+        this.resultCount = resultCount;
+        this.batchSize = batchSize;
+        this.learningRate = learningRate;
+        this.meanAccumulator = meanAccumulator;
+        this.dataLength = dataLength;
+        this.parallelRunner = parallelRunner;
+        this.counters = counters;
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        MovingMeanPoint<T>[] movingMeanPoints = new MovingMeanPoint[resultCount];
+        this.movingMeanPoints = movingMeanPoints;
+        this.batchIndexes = new int[batchSize];
+        this.batchLabels = new int[batchSize];
+        this.batchLengths = new double[batchSize];
+    }
+
+    /**
+     * Samples a new batch, assigns it to closest mean points and returns moved mean points.
+     */
+    List<T> iterate(List<T> meanPoints, Random random) {
+        final long assignmentStart = System.nanoTime();
+        final int n = inputPoints.size();
+        for (int b = 0; b < batchSize; b++) {
+            batchIndexes[b] = random.nextInt(n);
+        }
+        parallelRunner.forEachChunk(batchSize, (chunk, from, to) -> {
+            for (int b = from; b < to; b++) {
+                var point = inputPoints.get(batchIndexes[b]);
+                int closest = 0;
+                double distanceToClosest = Double.POSITIVE_INFINITY;
+                for (int c = 0; c < resultCount; c++) {
+                    double distance = dataLength.getLength(meanPoints.get(c), point);
+                    if (distance < distanceToClosest) {
+                        closest = c;
+                        distanceToClosest = distance;
+                    }
+                }
+                batchLabels[b] = closest;
+                batchLengths[b] = distanceToClosest;
+            }
+        });
+        counters.addPointLengthCalculations((long) batchSize * resultCount);
+        final long meanStart = System.nanoTime();
+        counters.assignmentNanos = meanStart - assignmentStart;
+
+        //batch positions grouped by mean point, keeping batch order within each group
+        final int[] groupStarts = new int[resultCount + 1];
+        for (int b = 0; b < batchSize; b++) {
+            groupStarts[batchLabels[b] + 1]++;
+        }
+        for (int c = 0; c < resultCount; c++) {
+            groupStarts[c + 1] += groupStarts[c];
+        }
+        final int[] grouped = new int[batchSize];
+        final int[] positions = Arrays.copyOf(groupStarts, resultCount);
+        for (int b = 0; b < batchSize; b++) {
+            grouped[positions[batchLabels[b]]++] = b;
+        }
+
+        @SuppressWarnings("unchecked")
+        final T[] newMeanPoints = (T[]) meanPoints.toArray();
+        parallelRunner.forEachChunk(resultCount, (chunk, from, to) -> {
+            for (int c = from; c < to; c++) {
+                newMeanPoints[c] = moveMeanPoint(c, meanPoints.get(c), grouped, groupStarts[c], groupStarts[c + 1]);
+            }
+        });
+        counters.meanNanos = System.nanoTime() - meanStart;
+        return Arrays.asList(newMeanPoints);
+    }
+
+    private T moveMeanPoint(int c, T meanPoint, int[] grouped, int from, int to) {
+        if (movingMeanPoints[c] == null) {
+            movingMeanPoints[c] = new MovingMeanPoint<>(meanPoint, 0, meanAccumulator, learningRate);
+        }
+        for (int g = from; g < to; g++) {
+            movingMeanPoints[c].moveTowards(inputPoints.get(batchIndexes[grouped[g]]));
+        }
+        return movingMeanPoints[c].getMean();
+    }
+
+    int getBatchSize() {
+        return batchSize;
+    }
+
+    int[] getBatchIndexes() {
+        return batchIndexes;
+    }
+
+    int[] getBatchLabels() {
+        return batchLabels;
+    }
+
+    double[] getBatchLengths() {
+        return batchLengths;
+    }
+}
@@ -0,0 +1,74 @@
+package pl.ksitarski.simplekmeans;
+
+import java.util.function.Supplier;
+
+/**
+ * Mean point that moves towards every point assigned to it by a learning rate. A move by rate <i>r</i> is the same as
+ * adding the point to a MeanAccumulator with weight <i>r * W / (1 - r)</i>, where <i>W</i> is the weight accumulated so
+ * far. Not thread safe.
+ */
+class MovingMeanPoint<T> {
+
+    private static final double MAX_ACCUMULATED_WEIGHT = 1e100;
+
+    private final Supplier<MeanAccumulator<T>> meanAccumulator;
+    private final LearningRate learningRate;
+
+    private T meanPoint;
+    private MeanAccumulator<T> accumulator = null;
+    private double accumulatedWeight = 0;
+    private boolean meanPointOutdated = false;
+    private long assignedCount;
+
+    /**
+     * @param meanPoint initial mean point
+     * @param assignedCount number of points the initial mean point already represents
+     */
+    MovingMeanPoint(T meanPoint, long assignedCount, Supplier<MeanAccumulator<T>> meanAccumulator, LearningRate learningRate) {
+        this.meanPoint = meanPoint;
+        this.assignedCount = assignedCount;
+        this.meanAccumulator = meanAccumulator;
+        this.learningRate = learningRate;
+    }
+
+    void moveTowards(T point) {
+        double rate = learningRate.getLearningRate(++assignedCount);
+        if (rate <= 0) {
+            return;
+        }
+        if (rate >= 1) {
+            accumulator = meanAccumulator.get();
+            accumulator.add(point, 1);
+            accumulatedWeight = 1;
+            meanPointOutdated = true;
+            return;
+        }
+        if (accumulator == null) {
+            accumulator = meanAccumulator.get();
+            accumulator.add(meanPoint, 1);
+            accumulatedWeight = 1;
+        }
+        double weight = rate * accumulatedWeight / (1 - rate);
+        accumulator.add(point, weight);
+        accumulatedWeight += weight;
+        meanPointOutdated = true;
+        if (accumulatedWeight > MAX_ACCUMULATED_WEIGHT) {
+            //start over from the current mean, only ratios of weights matter
+            meanPoint = getMean();
+            accumulator = null;
+            accumulatedWeight = 0;
+        }
+    }
+
+    T getMean() {
+        if (meanPointOutdated && accumulator != null) {
+            meanPoint = accumulator.getMean();
+        }
+        meanPointOutdated = false;
+        return meanPoint;
+    }
+
+    long getAssignedCount() {
+        return assignedCount;
+    }
+}
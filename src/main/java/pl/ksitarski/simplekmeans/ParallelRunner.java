@@ -0,0 +1,219 @@
+package pl.ksitarski.simplekmeans;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs work split into chunks on an executor that is reused by all iterations of the KMeans object (and by other
+ * objects, if it was supplied by the user). Threads of own pool are daemon threads that end when idle for a while, so
+ * objects that are never closed do not keep them. ForkJoinPools get the work as a recursively split task, so idle threads steal chunks from busy ones.
+ * Other executors get a fixed number of chunks, several per thread, so uneven chunks still balance out.
+ */
+class ParallelRunner {
+
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int MAX_POOL_SIZE = 0x7fff;
+    private static final long KEEP_ALIVE_SECONDS = 10;
+
+    private final int parallelism;
+    private volatile ExecutorService suppliedExecutor;
+    private ForkJoinPool ownPool = null;
+    private volatile ConcurrentHashMap<String, LongAdder> threadNanos = null;
+
+    private ParallelRunner(int parallelism, ExecutorService suppliedExecutor) {
+        this.parallelism = parallelism;
+        this.suppliedExecutor = suppliedExecutor;
+    }
+
+    /**
+     * Creates runner for given configuration. Without an executor and with a single thread all work runs on the
+     * calling thread. Without an executor and with more threads a ForkJoinPool is created on first use and reused.
+     */
+    static ParallelRunner create(boolean multithreaded, int threadsMax, ExecutorService executorService) {
+        if (executorService != null) {
+            int parallelism = threadsMax;
+            if (parallelism < 1) {
+                parallelism = executorService instanceof ForkJoinPool
+                        ? ((ForkJoinPool) executorService).getParallelism()
+                        : Runtime.getRuntime().availableProcessors();
+            }
+            return new ParallelRunner(parallelism, executorService);
+        }
+        return new ParallelRunner(multithreaded ? threadsMax : 1, null);
+    }
+
+    int getParallelism() {
+        return parallelism;
+    }
+
+    boolean isParallel() {
+        return parallelism > 1 || suppliedExecutor != null;
+    }
+
+    /**
+     * Returns default number of chunks for given amount of work.
+     */
+    int getChunkCount(int workCount) {
+        if (!isParallel()) {
+            return 1;
+        }
+        return Math.max(1, Math.min(workCount, parallelism * CHUNKS_PER_THREAD));
+    }
+
+    /**
+     * Splits <i>workCount</i> items into default number of chunks and waits until all of them are processed.
+     */
+    void forEachChunk(int workCount, ChunkTask task) {
+        forEachChunk(workCount, getChunkCount(workCount), task);
+    }
+
+    /**
+     * Starts measuring time every thread spends running chunks.
+     */
+    void startRecordingThreadTimes() {
+        threadNanos = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Stops measuring time of threads and returns time every thread spent running chunks since the start, by thread name.
+     */
+    Map<String, Long> stopRecordingThreadTimes() {
+        var recorded = threadNanos;
+        threadNanos = null;
+        Map<String, Long> result = new HashMap<>();
+        if (recorded != null) {
+            recorded.forEach((thread, nanos) -> result.put(thread, nanos.sum()));
+        }
+        return result;
+    }
+
+    /**
+     * Splits <i>workCount</i> items into <i>chunkCount</i> chunks of almost equal size and waits until all of them are
+     * processed. Chunk <i>c</i> always covers the same range for the same arguments.
+     */
+    void forEachChunk(int workCount, int chunkCount, ChunkTask task) {
+        final var recorder = threadNanos;
+        if (recorder == null) {
+            runChunks(workCount, chunkCount, task);
+            return;
+        }
+        runChunks(workCount, chunkCount, (chunk, from, to) -> {
+            long start = System.nanoTime();
+            task.run(chunk, from, to);
+            recorder.computeIfAbsent(Thread.currentThread().getName(), thread -> new LongAdder()).add(System.nanoTime() - start);
+        });
+    }
+
+    private void runChunks(int workCount, int chunkCount, ChunkTask task) {
+        if (chunkCount <= 1 || !isParallel()) {
+            for (int chunk = 0; chunk < chunkCount; chunk++) {
+                task.run(chunk, chunkStart(workCount, chunkCount, chunk), chunkStart(workCount, chunkCount, chunk + 1));
+            }
+            return;
+        }
+        var executor = getExecutor();
+        if (executor instanceof ForkJoinPool) {
+            ((ForkJoinPool) executor).invoke(new ChunkAction(workCount, chunkCount, 0, chunkCount, task));
+            return;
+        }
+        List<Future<?>> futures = new ArrayList<>(chunkCount);
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            final int finalChunk = chunk;
+            final int from = chunkStart(workCount, chunkCount, chunk);
+            final int to = chunkStart(workCount, chunkCount, chunk + 1);
+            futures.add(executor.submit(() -> task.run(finalChunk, from, to)));
+        }
+        try {
+            for (var future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for worker threads", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException("Exception in worker thread", e.getCause());
+        }
+    }
+
+    private static int chunkStart(int workCount, int chunkCount, int chunk) {
+        return (int) ((long) workCount * chunk / chunkCount);
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (suppliedExecutor != null) {
+            return suppliedExecutor;
+        }
+        if (ownPool == null) {
+            ownPool = newPool(parallelism);
+        }
+        return ownPool;
+    }
+
+    /**
+     * Creates pool of daemon threads that end after a few idle seconds, so it does not need to be shut down.
+     */
+    static ForkJoinPool newPool(int parallelism) {
+        return new ForkJoinPool(parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, false,
+                0, MAX_POOL_SIZE, 1, null, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops using the supplied executor, for example before it is shut down. Following work runs on own pool, created
+     * on first use as for a runner created without an executor.
+     */
+    synchronized void detachExecutor() {
+        suppliedExecutor = null;
+    }
+
+    /**
+     * Shuts down own pool at once instead of waiting for its threads to end when idle. Supplied executors are never
+     * shut down. Using the runner again creates a new pool.
+     */
+    synchronized void close() {
+        if (ownPool != null) {
+            ownPool.shutdown();
+            ownPool = null;
+        }
+    }
+
+    @FunctionalInterface
+    interface ChunkTask {
+        void run(int chunk, int from, int to);
+    }
+
+    private static class ChunkAction extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int workCount;
+        private final int chunkCount;
+        private final int firstChunk;
+        private final int lastChunk;
+        private final ChunkTask task;
+
+        ChunkAction(int workCount, int chunkCount, int firstChunk, int lastChunk, ChunkTask task) {
+            this.workCount = workCount;
+            this.chunkCount = chunkCount;
+            this.firstChunk = firstChunk;
+            this.lastChunk = lastChunk;
+            this.task = task;
+        }
+
+        @Override
+        protected void compute() {
+            if (lastChunk - firstChunk == 1) {
+                task.run(firstChunk, chunkStart(workCount, chunkCount, firstChunk), chunkStart(workCount, chunkCount, lastChunk));
+                return;
+            }
+            int middle = (firstChunk + lastChunk) >>> 1;
+            invokeAll(new ChunkAction(workCount, chunkCount, firstChunk, middle, task),
+                    new ChunkAction(workCount, chunkCount, middle, lastChunk, task));
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package pl.ksitarski.simplekmeans;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Converts points to and from binary form, used to write and read checkpoints and to send points to and from shards.
+ */
+public interface PointSerializer<T> {
+    /**
+     * Writes point to given output.
+     * @param point written point
+     * @param output output to write to
+     */
+    void write(T point, DataOutput output) throws IOException;
+
+    /**
+     * Reads point written by write.
+     * @param input input to read from
+     * @return read point
+     */
+    T read(DataInput input) throws IOException;
+}
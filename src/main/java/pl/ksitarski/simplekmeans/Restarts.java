@@ -0,0 +1,102 @@
+package pl.ksitarski.simplekmeans;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Runs several independently seeded KMeans on the same input points and picks the one with the lowest inertia. With a
+ * ForkJoinPool runs are tasks of the same pool as their own parallel work, so threads stay busy until the last run ends.
+ * Runs advance one iteration at a time together, so pruning compares the same inertias whatever the order of threads,
+ * and the same seed always gives the same result.
+ */
+class Restarts<T> {
+
+    private static final int MIN_ITERATIONS_BEFORE_PRUNING = 3;
+
+    private final KMeansBuilder.Arguments<T> arguments;
+    private final int restartCount;
+    private final ConvergenceCriteria criteria;
+    private final double pruneFactor;
+
+    Restarts(KMeansBuilder.Arguments<T> arguments, int restartCount, ConvergenceCriteria criteria, double pruneFactor) {
+        this.arguments = arguments;
+        this.restartCount = restartCount;
+        this.criteria = criteria;
+        this.pruneFactor = pruneFactor;
+    }
+
+    KMeans<T> run() {
+        var random = arguments.getSeed() != null ? new Random(arguments.getSeed()) : new Random();
+        final long[] seeds = new long[restartCount];
+        for (int r = 0; r < restartCount; r++) {
+            seeds[r] = random.nextLong();
+        }
+        ExecutorService executor = arguments.getExecutorService();
+        final boolean ownPool = executor == null && arguments.isMultithreaded();
+        if (ownPool) {
+            executor = ParallelRunner.newPool(arguments.getThreadsMax());
+        }
+        final KMeans<T>[] runs;
+        try {
+            runs = runAll(seeds, executor);
+        } finally {
+            if (ownPool) {
+                executor.shutdown();
+            }
+        }
+
+        KMeans<T> best = runs[0];
+        for (int r = 1; r < restartCount; r++) {
+            if (runs[r].getInertia() < best.getInertia()) {
+                best = runs[r];
+            }
+        }
+        if (ownPool) {
+            //pool of the runs is shut down, so the best run continues on threads of its own
+            best.detachExecutor();
+        }
+        return best;
+    }
+
+    private KMeans<T>[] runAll(long[] seeds, ExecutorService executor) {
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        final KMeans<T>[] runs = new KMeans[restartCount];
+        //waiting for own tasks is only safe on a ForkJoinPool, other executors could run out of threads
+        final var runner = executor instanceof ForkJoinPool
+                ? ParallelRunner.create(true, restartCount, executor)
+                : ParallelRunner.create(false, 1, null);
+        runner.forEachChunk(restartCount, restartCount,
+                (r, from, to) -> runs[r] = new KMeans<>(arguments.forRestart(seeds[r], executor, arguments.getIterationListener())));
+
+        final long start = System.nanoTime();
+        final boolean[] converged = new boolean[restartCount];
+        double lowestInertia = Double.POSITIVE_INFINITY;
+        int[] active = new int[restartCount];
+        for (int r = 0; r < restartCount; r++) {
+            active[r] = r;
+        }
+        for (int iteration = 1; active.length > 0; iteration++) {
+            final int iterationsDone = iteration;
+            final int[] current = active;
+            runner.forEachChunk(current.length, current.length, (chunk, from, to) -> {
+                final int r = current[chunk];
+                converged[r] = runs[r].iterateOnceUntilConverged(criteria, iterationsDone, start);
+            });
+            for (var r : current) {
+                lowestInertia = Math.min(lowestInertia, runs[r].getLastIterationStatistics().getInertia());
+            }
+            int activeCount = 0;
+            for (var r : current) {
+                final boolean pruned = pruneFactor > 0 && iteration >= MIN_ITERATIONS_BEFORE_PRUNING
+                        && runs[r].getLastIterationStatistics().getInertia() > pruneFactor * lowestInertia;
+                if (!converged[r] && !pruned) {
+                    current[activeCount++] = r;
+                }
+            }
+            active = Arrays.copyOf(current, activeCount);
+        }
+        return runs;
+    }
+}
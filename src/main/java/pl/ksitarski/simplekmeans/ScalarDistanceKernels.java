@@ -0,0 +1,96 @@
+package pl.ksitarski.simplekmeans;
+
+class ScalarDistanceKernels implements DistanceKernels {
+
+    @Override
+    public void squaredEuclidean(double[] point, int pointOffset, double[] means, int meanCount, int dimensions, double[] out) {
+        for (int c = 0; c < meanCount; c++) {
+            out[c] = squaredEuclidean(point, pointOffset, means, c * dimensions, dimensions);
+        }
+    }
+
+    @Override
+    public double squaredEuclidean(double[] point, int pointOffset, double[] means, int meanOffset, int dimensions) {
+        double sum = 0;
+        for (int j = 0; j < dimensions; j++) {
+            double diff = point[pointOffset + j] - means[meanOffset + j];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    @Override
+    public void manhattan(double[] point, int pointOffset, double[] means, int meanCount, int dimensions, double[] out) {
+        for (int c = 0; c < meanCount; c++) {
+            final int meanOffset = c * dimensions;
+            double sum = 0;
+            for (int j = 0; j < dimensions; j++) {
+                sum += Math.abs(point[pointOffset + j] - means[meanOffset + j]);
+            }
+            out[c] = sum;
+        }
+    }
+
+    @Override
+    public void dot(double[] point, int pointOffset, double[] means, int meanCount, int dimensions, double[] out) {
+        for (int c = 0; c < meanCount; c++) {
+            final int meanOffset = c * dimensions;
+            double sum = 0;
+            for (int j = 0; j < dimensions; j++) {
+                sum += point[pointOffset + j] * means[meanOffset + j];
+            }
+            out[c] = sum;
+        }
+    }
+
+    @Override
+    public void dots(double[] points, int pointOffset, int pointCount, double[] means, int meanOffset, int meanCount, int dimensions, double[] out) {
+        //two points times two mean points at once, so every loaded value is used twice
+        int p = 0;
+        for (; p + 1 < pointCount; p += 2) {
+            final int p0 = pointOffset + p * dimensions;
+            final int p1 = p0 + dimensions;
+            int c = 0;
+            for (; c + 1 < meanCount; c += 2) {
+                final int c0 = meanOffset + c * dimensions;
+                final int c1 = c0 + dimensions;
+                double s00 = 0, s01 = 0, s10 = 0, s11 = 0;
+                for (int j = 0; j < dimensions; j++) {
+                    double x0 = points[p0 + j];
+                    double x1 = points[p1 + j];
+                    double m0 = means[c0 + j];
+                    double m1 = means[c1 + j];
+                    s00 += x0 * m0;
+                    s01 += x0 * m1;
+                    s10 += x1 * m0;
+                    s11 += x1 * m1;
+                }
+                out[p * meanCount + c] = s00;
+                out[p * meanCount + c + 1] = s01;
+                out[(p + 1) * meanCount + c] = s10;
+                out[(p + 1) * meanCount + c + 1] = s11;
+            }
+            if (c < meanCount) {
+                final int c0 = meanOffset + c * dimensions;
+                double s00 = 0, s10 = 0;
+                for (int j = 0; j < dimensions; j++) {
+                    s00 += points[p0 + j] * means[c0 + j];
+                    s10 += points[p1 + j] * means[c0 + j];
+                }
+                out[p * meanCount + c] = s00;
+                out[(p + 1) * meanCount + c] = s10;
+            }
+        }
+        if (p < pointCount) {
+            final int p0 = pointOffset + p * dimensions;
+            for (int c = 0; c < meanCount; c++) {
+                final int c0 = meanOffset + c * dimensions;
+                double sum = 0;
+                for (int j = 0; j < dimensions; j++) {
+                    sum += points[p0 + j] * means[c0 + j];
+                }
+                out[p * meanCount + c] = sum;
+            }
+        }
+    }
+}
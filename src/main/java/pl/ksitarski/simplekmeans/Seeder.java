@@ -0,0 +1,245 @@
+package pl.ksitarski.simplekmeans;
+
+import java.util.*;
+
+/**
+ * Chooses initial mean points for KMeans according to selected Seeding.
+ */
+class Seeder<T> {
+
+    private static final int PARALLEL_ROUNDS = 5;
+    private static final int PARALLEL_OVERSAMPLING = 2;
+
+    private final List<T> inputPoints;
+    private final int resultCount;
+    private final DataLength<T> dataLength;
+    private final ParallelRunner parallelRunner;
+    private final Random random;
+    private final double[] pointWeights;
+
+    /**
+     * @param pointWeights weights of input points, which make points proportionally more likely to be chosen, or null
+     *                     when all points weigh the same
+     */
+    Seeder(List<T> inputPoints, int resultCount, DataLength<T> dataLength, ParallelRunner parallelRunner, Random random, double[] pointWeights) {
+        this.inputPoints = inputPoints;
+        this.resultCount = resultCount;
+        this.dataLength = dataLength;
+        this.parallelRunner = parallelRunner;
+        this.random = random;
+        this.pointWeights = pointWeights;
+    }
+
+    List<T> seed(Seeding seeding) {
+        switch (seeding) {
+            case KMEANS_PLUS_PLUS:
+                return seedPlusPlus();
+            case KMEANS_PARALLEL:
+                return seedParallel();
+            default:
+                return seedRandomly();
+        }
+    }
+
+    /**
+     * Picks distinct input points, repeating them only when there are fewer input points than results.
+     */
+    private List<T> seedRandomly() {
+        final int n = inputPoints.size();
+        List<T> result = new ArrayList<>(resultCount);
+        if (resultCount >= n) {
+            result.addAll(inputPoints);
+            while (result.size() < resultCount) {
+                result.add(inputPoints.get(random.nextInt(n)));
+            }
+            return result;
+        }
+        if (pointWeights != null) {
+            double[] remainingWeights = pointWeights.clone();
+            while (result.size() < resultCount) {
+                int index = sampleProportionally(remainingWeights, null);
+                remainingWeights[index] = 0;
+                result.add(inputPoints.get(index));
+            }
+            return result;
+        }
+        Set<Integer> chosen = new HashSet<>();
+        while (result.size() < resultCount) {
+            int index = random.nextInt(n);
+            if (chosen.add(index)) {
+                result.add(inputPoints.get(index));
+            }
+        }
+        return result;
+    }
+
+    private List<T> seedPlusPlus() {
+        final int n = inputPoints.size();
+        List<T> result = new ArrayList<>(resultCount);
+        double[] lengths = new double[n];
+        Arrays.fill(lengths, Double.POSITIVE_INFINITY);
+        T chosen = inputPoints.get(sampleFirst());
+        while (true) {
+            result.add(chosen);
+            if (result.size() == resultCount) {
+                return result;
+            }
+            updateLengths(lengths, null, Collections.singletonList(chosen), 0);
+            chosen = inputPoints.get(sampleProportionally(lengths, pointWeights));
+        }
+    }
+
+    private List<T> seedParallel() {
+        final int n = inputPoints.size();
+        final double[] lengths = new double[n];
+        final int[] closestCandidate = new int[n];
+        Arrays.fill(lengths, Double.POSITIVE_INFINITY);
+        final List<T> candidates = new ArrayList<>();
+        final double oversampling = PARALLEL_OVERSAMPLING * resultCount;
+
+        List<T> newCandidates = Collections.singletonList(inputPoints.get(sampleFirst()));
+        for (int round = 0; round <= PARALLEL_ROUNDS && !newCandidates.isEmpty(); round++) {
+            updateLengths(lengths, closestCandidate, newCandidates, candidates.size());
+            candidates.addAll(newCandidates);
+            if (round == PARALLEL_ROUNDS) {
+                break;
+            }
+            final double cost = sum(lengths, pointWeights);
+            if (cost <= 0) {
+                break;
+            }
+            newCandidates = sampleIndependently(lengths, oversampling / cost);
+        }
+
+        while (candidates.size() < resultCount) {
+            //too few candidates were sampled, fall back to k-means++ on input points
+            T chosen = inputPoints.get(sampleProportionally(lengths, pointWeights));
+            updateLengths(lengths, closestCandidate, Collections.singletonList(chosen), candidates.size());
+            candidates.add(chosen);
+        }
+
+        double[] weights = new double[candidates.size()];
+        for (int i = 0; i < n; i++) {
+            weights[closestCandidate[i]] += pointWeights == null ? 1 : pointWeights[i];
+        }
+        return reduceCandidates(candidates, weights);
+    }
+
+    /**
+     * Returns index of the first chosen point, uniformly random or proportional to weights.
+     */
+    private int sampleFirst() {
+        return pointWeights == null ? random.nextInt(inputPoints.size()) : sampleProportionally(pointWeights, null);
+    }
+
+    /**
+     * Selects every point independently with probability <i>factor * length * weight</i>. Each chunk uses its own generator
+     * seeded from the main one, so the result does not depend on the order in which chunks run.
+     */
+    private List<T> sampleIndependently(double[] lengths, double factor) {
+        final int chunkCount = parallelRunner.getChunkCount(lengths.length);
+        final long[] seeds = new long[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            seeds[i] = random.nextLong();
+        }
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        final List<T>[] sampled = new List[chunkCount];
+        parallelRunner.forEachChunk(lengths.length, chunkCount, (chunk, from, to) -> {
+            var chunkRandom = new SplittableRandom(seeds[chunk]);
+            List<T> chunkSampled = new ArrayList<>();
+            for (int i = from; i < to; i++) {
+                double weight = pointWeights == null ? 1 : pointWeights[i];
+                if (lengths[i] > 0 && chunkRandom.nextDouble() < factor * lengths[i] * weight) {
+                    chunkSampled.add(inputPoints.get(i));
+                }
+            }
+            sampled[chunk] = chunkSampled;
+        });
+        List<T> result = new ArrayList<>();
+        for (var chunkSampled : sampled) {
+            result.addAll(chunkSampled);
+        }
+        return result;
+    }
+
+    /**
+     * Weighted k-means++ over candidates, every candidate weighted by weight of input points closest to it.
+     */
+    private List<T> reduceCandidates(List<T> candidates, double[] weights) {
+        final int m = candidates.size();
+        List<T> result = new ArrayList<>(resultCount);
+        double[] lengths = new double[m];
+        Arrays.fill(lengths, Double.POSITIVE_INFINITY);
+        int chosen = sampleProportionally(weights, null);
+        while (true) {
+            T chosenPoint = candidates.get(chosen);
+            result.add(chosenPoint);
+            if (result.size() == resultCount) {
+                return result;
+            }
+            for (int i = 0; i < m; i++) {
+                if (lengths[i] > 0) {
+                    lengths[i] = Math.min(lengths[i], dataLength.getLength(chosenPoint, candidates.get(i)));
+                }
+            }
+            lengths[chosen] = 0;
+            chosen = sampleProportionally(lengths, weights);
+        }
+    }
+
+    /**
+     * Lowers <i>lengths</i> to lengths to the closest of <i>newPoints</i>, in parallel. When <i>closest</i> is given,
+     * it is updated with index of the closest point, offset by <i>firstIndex</i>.
+     */
+    private void updateLengths(double[] lengths, int[] closest, List<T> newPoints, int firstIndex) {
+        parallelRunner.forEachChunk(lengths.length, (chunk, from, to) -> {
+            for (int i = from; i < to; i++) {
+                var point = inputPoints.get(i);
+                for (int j = 0; j < newPoints.size(); j++) {
+                    if (lengths[i] == 0) {
+                        break;
+                    }
+                    double length = dataLength.getLength(newPoints.get(j), point);
+                    if (length < lengths[i]) {
+                        lengths[i] = length;
+                        if (closest != null) {
+                            closest[i] = firstIndex + j;
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns random index with probability proportional to <i>values[i] * weights[i]</i>, or uniformly random index
+     * if all of them are 0.
+     */
+    private int sampleProportionally(double[] values, double[] weights) {
+        double total = sum(values, weights);
+        if (!(total > 0) || Double.isInfinite(total)) {
+            return random.nextInt(values.length);
+        }
+        double target = random.nextDouble() * total;
+        int lastPositive = 0;
+        for (int i = 0; i < values.length; i++) {
+            double value = weights == null ? values[i] : values[i] * weights[i];
+            if (value > 0) {
+                lastPositive = i;
+                target -= value;
+                if (target < 0) {
+                    return i;
+                }
+            }
+        }
+        return lastPositive;
+    }
+
+    private static double sum(double[] values, double[] weights) {
+        double sum = 0;
+        for (int i = 0; i < values.length; i++) {
+            sum += weights == null ? values[i] : values[i] * weights[i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,23 @@
+package pl.ksitarski.simplekmeans;
+
+/**
+ * Strategy used to choose initial mean points.
+ */
+public enum Seeding {
+    /**
+     * Chooses distinct input points uniformly at random. Cheapest, but usually needs the most iterations.
+     */
+    RANDOM,
+    /**
+     * k-means++: chooses every next point with probability proportional to its length to the closest already chosen
+     * point. Needs <i>resultCount</i> passes over input points. Probabilities use values returned by DataLength directly,
+     * so a squared distance gives the classic k-means++ weighting.
+     */
+    KMEANS_PLUS_PLUS,
+    /**
+     * k-means||: oversamples candidates in a few passes over input points, then reduces them to <i>resultCount</i>
+     * points with weighted k-means++. Needs far fewer passes than k-means++ for large result counts, and every pass
+     * runs on all threads.
+     */
+    KMEANS_PARALLEL
+}
@@ -0,0 +1,36 @@
+package pl.ksitarski.simplekmeans;
+
+import java.util.List;
+
+/**
+ * Partition of input points of ShardedKMeans, as seen by the coordinator. ShardWorker is an in-process shard that holds
+ * its points, SocketShard passes requests to a ShardServer in another process. Other transports only need to pass the
+ * same calls to a ShardWorker wherever its points are.
+ */
+public interface Shard<T> extends AutoCloseable {
+    /**
+     * @return number of points of this shard
+     */
+    int getSize();
+
+    /**
+     * Returns up to <i>count</i> distinct random points of this shard, used to seed mean points.
+     * @param count number of points
+     * @param seed seed of random choice, the same seed gives the same points
+     * @return sampled points, all points if there are fewer than <i>count</i>
+     */
+    List<T> sample(int count, long seed);
+
+    /**
+     * Assigns every point of this shard to the closest of given mean points and returns statistics of clusters.
+     * @param meanPoints current mean points
+     * @return statistics of clusters of this shard, in the same order as mean points
+     */
+    ShardStatistics<T> assign(List<T> meanPoints);
+
+    /**
+     * Releases resources of the transport. Does not change points of the shard.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,84 @@
+package pl.ksitarski.simplekmeans;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary protocol between SocketShard and ShardServer. Every request is a command byte followed by its arguments, and
+ * every response starts with a status byte, followed either by the result or by an error message. Points are written by
+ * PointSerializer, preceded by a flag telling whether the point is null.
+ */
+class ShardProtocol {
+
+    static final int MAGIC = 0x4B4D5348;
+    static final int VERSION = 1;
+
+    static final byte SIZE = 1;
+    static final byte SAMPLE = 2;
+    static final byte ASSIGN = 3;
+    static final byte CLOSE = 4;
+
+    static final byte OK = 0;
+    static final byte ERROR = 1;
+
+    private static final int MAX_INITIAL_CAPACITY = 4096;
+
+    private ShardProtocol() {
+    }
+
+    static <T> void writePoints(List<T> points, DataOutput output, PointSerializer<T> serializer) throws IOException {
+        output.writeInt(points.size());
+        for (var point : points) {
+            output.writeBoolean(point != null);
+            if (point != null) {
+                serializer.write(point, output);
+            }
+        }
+    }
+
+    /**
+     * Reads points written by writePoints. Count comes from the network, so the list grows as points are read instead
+     * of being allocated for the whole count up front.
+     */
+    static <T> List<T> readPoints(DataInput input, PointSerializer<T> serializer) throws IOException {
+        int count = input.readInt();
+        if (count < 0) {
+            throw new IOException("Invalid point count " + count);
+        }
+        List<T> points = new ArrayList<>(Math.min(count, MAX_INITIAL_CAPACITY));
+        for (int i = 0; i < count; i++) {
+            points.add(input.readBoolean() ? serializer.read(input) : null);
+        }
+        return points;
+    }
+
+    static <T> void writeStatistics(ShardStatistics<T> statistics, DataOutput output, PointSerializer<T> serializer) throws IOException {
+        final int k = statistics.getClusterCount();
+        List<T> meanPoints = new ArrayList<>(k);
+        for (int c = 0; c < k; c++) {
+            meanPoints.add(statistics.getMeanPoint(c));
+        }
+        writePoints(meanPoints, output, serializer);
+        for (int c = 0; c < k; c++) {
+            output.writeLong(statistics.getCount(c));
+            output.writeDouble(statistics.getLengthSum(c));
+        }
+        output.writeLong(statistics.getChangedPoints());
+    }
+
+    static <T> ShardStatistics<T> readStatistics(DataInput input, PointSerializer<T> serializer) throws IOException {
+        List<T> meanPoints = readPoints(input, serializer);
+        final int k = meanPoints.size();
+        long[] counts = new long[k];
+        double[] lengthSums = new double[k];
+        for (int c = 0; c < k; c++) {
+            counts[c] = input.readLong();
+            lengthSums[c] = input.readDouble();
+        }
+        long changedPoints = input.readLong();
+        return new ShardStatistics<>(meanPoints, counts, lengthSums, changedPoints);
+    }
+}
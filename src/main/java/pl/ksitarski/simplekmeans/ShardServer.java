@@ -0,0 +1,164 @@
+package pl.ksitarski.simplekmeans;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+/**
+ * Serves a ShardWorker to coordinators connecting with SocketShard, so that points of the shard never leave the
+ * process that holds them. Connections are served one at a time on a background thread, which keeps running until
+ * close() is called, so a worker process only needs to start the server.
+ * <br>
+ * The protocol has no authentication, so by default the server only listens on the loopback address.
+ */
+public class ShardServer<T> implements AutoCloseable {
+
+    private final ShardWorker<T> worker;
+    private final PointSerializer<T> serializer;
+    private final ServerSocket serverSocket;
+    private final Thread thread;
+    private volatile Socket connection = null;
+
+    private ShardServer(ShardWorker<T> worker, PointSerializer<T> serializer, ServerSocket serverSocket) {
+        this.worker = worker;
+        this.serializer = serializer;
+        this.serverSocket = serverSocket;
+        this.thread = new Thread(this::serve, "simplekmeans-shard-server-" + serverSocket.getLocalPort());
+    }
+
+    /**
+     * Starts server listening on the loopback address.
+     * @param worker served shard
+     * @param port port to listen on, or 0 for any free port
+     * @param serializer function that writes and reads points
+     * @return started server
+     */
+    public static <T> ShardServer<T> start(ShardWorker<T> worker, int port, PointSerializer<T> serializer) {
+        return start(worker, InetAddress.getLoopbackAddress(), port, serializer);
+    }
+
+    /**
+     * Starts server listening on given address.
+     * @param worker served shard
+     * @param bindAddress address to listen on
+     * @param port port to listen on, or 0 for any free port
+     * @param serializer function that writes and reads points
+     * @return started server
+     */
+    public static <T> ShardServer<T> start(ShardWorker<T> worker, InetAddress bindAddress, int port, PointSerializer<T> serializer) {
+        if (worker == null || bindAddress == null || serializer == null) {
+            throw new IllegalArgumentException("worker, bindAddress and serializer cannot be null");
+        }
+        ServerSocket serverSocket;
+        try {
+            serverSocket = new ServerSocket(port, 1, bindAddress);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        var server = new ShardServer<>(worker, serializer, serverSocket);
+        server.thread.start();
+        return server;
+    }
+
+    /**
+     * @return port the server listens on
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    private void serve() {
+        while (!serverSocket.isClosed()) {
+            try (var socket = serverSocket.accept()) {
+                connection = socket;
+                if (serverSocket.isClosed()) {
+                    //closed right after accepting, before close() could see this connection
+                    return;
+                }
+                socket.setTcpNoDelay(true);
+                worker.resetLabels();
+                handle(new DataInputStream(new BufferedInputStream(socket.getInputStream())),
+                        new DataOutputStream(new BufferedOutputStream(socket.getOutputStream())));
+            } catch (IOException e) {
+                //connection was lost or server was closed, wait for the next coordinator
+            } finally {
+                connection = null;
+            }
+        }
+    }
+
+    /**
+     * Serves requests of a coordinator. A response is written to a buffer first, so that a failure while writing it
+     * sends only an error, not a part of the result followed by an error.
+     */
+    private void handle(DataInputStream input, DataOutputStream output) throws IOException {
+        if (input.readInt() != ShardProtocol.MAGIC || input.readInt() != ShardProtocol.VERSION) {
+            throw new IOException("Unsupported shard protocol");
+        }
+        while (true) {
+            byte command = input.readByte();
+            if (command == ShardProtocol.CLOSE) {
+                return;
+            }
+            var response = new ByteArrayOutputStream();
+            var responseOutput = new DataOutputStream(response);
+            boolean requestRead = false;
+            try {
+                switch (command) {
+                    case ShardProtocol.SIZE: {
+                        requestRead = true;
+                        responseOutput.writeInt(worker.getSize());
+                        break;
+                    }
+                    case ShardProtocol.SAMPLE: {
+                        int count = input.readInt();
+                        long seed = input.readLong();
+                        requestRead = true;
+                        ShardProtocol.writePoints(worker.sample(count, seed), responseOutput, serializer);
+                        break;
+                    }
+                    case ShardProtocol.ASSIGN: {
+                        var meanPoints = ShardProtocol.readPoints(input, serializer);
+                        requestRead = true;
+                        ShardProtocol.writeStatistics(worker.assign(meanPoints), responseOutput, serializer);
+                        break;
+                    }
+                    default:
+                        throw new IOException("Unknown shard command " + command);
+                }
+            } catch (RuntimeException e) {
+                output.writeByte(ShardProtocol.ERROR);
+                output.writeUTF(String.valueOf(e.getMessage()));
+                output.flush();
+                if (!requestRead) {
+                    //rest of the request cannot be skipped, so the connection cannot be used any more
+                    return;
+                }
+                continue;
+            }
+            output.writeByte(ShardProtocol.OK);
+            response.writeTo(output);
+            output.flush();
+        }
+    }
+
+    /**
+     * Stops listening, disconnects current coordinator and waits until the background thread ends.
+     */
+    @Override
+    public void close() {
+        try {
+            serverSocket.close();
+            var socket = connection;
+            if (socket != null) {
+                socket.close();
+            }
+            thread.join();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
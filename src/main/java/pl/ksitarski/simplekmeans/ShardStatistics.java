@@ -0,0 +1,58 @@
+package pl.ksitarski.simplekmeans;
+
+import java.util.List;
+
+/**
+ * Statistics of clusters of a single shard after assigning its points: mean point, number of points and sum of
+ * lengths of every cluster. Its size depends only on number of clusters, not on number of points, so this is all that
+ * is sent from shards to the coordinator every iteration.
+ */
+public class ShardStatistics<T> {
+
+    private final List<T> meanPoints;
+    private final long[] counts;
+    private final double[] lengthSums;
+    private final long changedPoints;
+
+    /**
+     * @param meanPoints mean point of points of every cluster, null for clusters without points
+     * @param counts number of points of every cluster
+     * @param lengthSums sum of lengths from points of every cluster to the mean point they were assigned to
+     * @param changedPoints number of points assigned to a different cluster than in the previous assignment
+     */
+    public ShardStatistics(List<T> meanPoints, long[] counts, double[] lengthSums, long changedPoints) {
+        if (meanPoints == null || counts == null || lengthSums == null) {
+            throw new IllegalArgumentException("meanPoints, counts and lengthSums cannot be null");
+        }
+        if (counts.length != meanPoints.size() || lengthSums.length != meanPoints.size()) {
+            throw new IllegalArgumentException("meanPoints, counts and lengthSums need to have the same length");
+        }
+        this.meanPoints = meanPoints;
+        this.counts = counts;
+        this.lengthSums = lengthSums;
+        this.changedPoints = changedPoints;
+    }
+
+    public int getClusterCount() {
+        return counts.length;
+    }
+
+    /**
+     * @return mean point of points of given cluster, null if it has no points
+     */
+    public T getMeanPoint(int cluster) {
+        return meanPoints.get(cluster);
+    }
+
+    public long getCount(int cluster) {
+        return counts[cluster];
+    }
+
+    public double getLengthSum(int cluster) {
+        return lengthSums[cluster];
+    }
+
+    public long getChangedPoints() {
+        return changedPoints;
+    }
+}
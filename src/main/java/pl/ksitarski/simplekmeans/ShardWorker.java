@@ -0,0 +1,175 @@
+package pl.ksitarski.simplekmeans;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Shard that holds its points in memory of the current process. It can be given to ShardedKMeans directly, or served
+ * to a coordinator in another process with ShardServer. Labels of points are kept between assignments to count points
+ * that changed cluster, and are forgotten when a new ShardedKMeans is built with the worker or a new coordinator
+ * connects to its ShardServer.
+ */
+public class ShardWorker<T> implements Shard<T> {
+
+    private final List<T> points;
+    private final Supplier<MeanAccumulator<T>> meanAccumulator;
+    private final DataLength<T> dataLength;
+    private final ParallelRunner parallelRunner;
+    private final int[] labels;
+
+    /**
+     * Creates worker that assigns points on the calling thread.
+     * @param points points of this shard
+     * @param meanAccumulator function that creates new, empty MeanAccumulator
+     * @param dataLength function that gives length between two points
+     */
+    public ShardWorker(List<T> points, Supplier<MeanAccumulator<T>> meanAccumulator, DataLength<T> dataLength) {
+        this(points, meanAccumulator, dataLength, 1);
+    }
+
+    /**
+     * Creates worker that assigns points using given number of threads.
+     * @param points points of this shard
+     * @param meanAccumulator function that creates new, empty MeanAccumulator
+     * @param dataLength function that gives length between two points
+     * @param threadCount number of threads
+     */
+    public ShardWorker(List<T> points, Supplier<MeanAccumulator<T>> meanAccumulator, DataLength<T> dataLength, int threadCount) {
+        if (points == null) {
+            throw new IllegalArgumentException("points cannot be null");
+        }
+        if (meanAccumulator == null) {
+            throw new IllegalArgumentException("meanAccumulator cannot be null");
+        }
+        if (dataLength == null) {
+            throw new IllegalArgumentException("dataLength cannot be null");
+        }
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("Thread count cannot be lower than 1");
+        }
+        this.points = Collections.unmodifiableList(points);
+        this.meanAccumulator = meanAccumulator;
+        this.dataLength = dataLength;
+        this.parallelRunner = ParallelRunner.create(threadCount > 1, threadCount, null);
+        this.labels = new int[points.size()];
+        Arrays.fill(labels, -1);
+    }
+
+    @Override
+    public int getSize() {
+        return points.size();
+    }
+
+    /**
+     * Picks distinct indexes with Floyd's algorithm, so it takes time proportional to <i>count</i>, not to the number
+     * of points.
+     */
+    @Override
+    public List<T> sample(int count, long seed) {
+        final int n = points.size();
+        if (count >= n) {
+            return new ArrayList<>(points);
+        }
+        var random = new Random(seed);
+        Set<Integer> chosen = new LinkedHashSet<>();
+        for (int j = n - count; j < n; j++) {
+            int index = random.nextInt(j + 1);
+            chosen.add(chosen.contains(index) ? j : index);
+        }
+        List<T> result = new ArrayList<>(count);
+        for (var index : chosen) {
+            result.add(points.get(index));
+        }
+        return result;
+    }
+
+    /**
+     * Every thread accumulates statistics of its own range of points, and these are merged per cluster, adding every
+     * partial mean with weight of its points.
+     */
+    @Override
+    public synchronized ShardStatistics<T> assign(List<T> meanPoints) {
+        if (meanPoints == null || meanPoints.isEmpty() || meanPoints.contains(null)) {
+            throw new IllegalArgumentException("meanPoints needs at least 1 point and cannot contain null");
+        }
+        final int k = meanPoints.size();
+        final int n = points.size();
+        final int chunkCount = Math.max(1, Math.min(parallelRunner.getParallelism(), n));
+        final long[][] counts = new long[chunkCount][k];
+        final double[][] lengthSums = new double[chunkCount][k];
+        final long[] changedPoints = new long[chunkCount];
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        final MeanAccumulator<T>[][] accumulators = new MeanAccumulator[chunkCount][k];
+        parallelRunner.forEachChunk(n, chunkCount, (chunk, from, to) -> {
+            for (int i = from; i < to; i++) {
+                var point = points.get(i);
+                int closest = 0;
+                double distanceToClosest = Double.POSITIVE_INFINITY;
+                for (int c = 0; c < k; c++) {
+                    double distance = dataLength.getLength(meanPoints.get(c), point);
+                    if (distance < distanceToClosest) {
+                        closest = c;
+                        distanceToClosest = distance;
+                    }
+                }
+                if (labels[i] != closest) {
+                    labels[i] = closest;
+                    changedPoints[chunk]++;
+                }
+                if (accumulators[chunk][closest] == null) {
+                    accumulators[chunk][closest] = meanAccumulator.get();
+                }
+                accumulators[chunk][closest].add(point, 1);
+                counts[chunk][closest]++;
+                lengthSums[chunk][closest] += distanceToClosest;
+            }
+        });
+
+        List<T> means = new ArrayList<>(k);
+        long[] mergedCounts = new long[k];
+        double[] mergedLengthSums = new double[k];
+        long mergedChangedPoints = 0;
+        for (int c = 0; c < k; c++) {
+            MeanAccumulator<T> merged = null;
+            for (int j = 0; j < chunkCount; j++) {
+                if (accumulators[j][c] == null) {
+                    continue;
+                }
+                if (merged == null) {
+                    merged = accumulators[j][c];
+                } else {
+                    merged.add(accumulators[j][c].getMean(), counts[j][c]);
+                }
+                mergedCounts[c] += counts[j][c];
+                mergedLengthSums[c] += lengthSums[j][c];
+            }
+            means.add(merged == null ? null : merged.getMean());
+        }
+        for (var changed : changedPoints) {
+            mergedChangedPoints += changed;
+        }
+        return new ShardStatistics<>(means, mergedCounts, mergedLengthSums, mergedChangedPoints);
+    }
+
+    /**
+     * Forgets labels of the previous coordinator, so that all points count as changed in the first assignment.
+     */
+    synchronized void resetLabels() {
+        Arrays.fill(labels, -1);
+    }
+
+    /**
+     * Shuts down threads used for assigning points. Points stay in memory as long as the worker is referenced, and
+     * assigning again creates new threads.
+     */
+    @Override
+    public void close() {
+        parallelRunner.close();
+    }
+}
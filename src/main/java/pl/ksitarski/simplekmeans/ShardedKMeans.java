@@ -0,0 +1,293 @@
+package pl.ksitarski.simplekmeans;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Coordinator of KMeans over input points split between shards, which may live in other processes. Every iteration
+ * sends current mean points to all shards at once, every shard assigns its points and returns only statistics of
+ * clusters (see ShardStatistics), and the coordinator merges them into next mean points. Both ways only
+ * <i>resultCount</i> points and numbers are sent, whatever the number of input points.
+ * <br>
+ * Shards are not closed by ShardedKMeans, close() only releases its own threads. A cluster that has no points in any shard keeps its mean point.
+ */
+public class ShardedKMeans<T> implements AutoCloseable {
+
+    private final ShardedKMeansBuilder.Arguments<T> arguments;
+    private final List<Shard<T>> shards;
+    private final ParallelRunner parallelRunner;
+    private final Random random;
+    private final int RESULTS_COUNT;
+    private final long INPUT_POINTS_COUNT;
+
+    private List<T> calculatedMeanPoints;
+    private long[] clusterSizes = null;
+    private double inertia = Double.POSITIVE_INFINITY;
+    private double percentProgress = 0;
+    private boolean wasIterated = false;
+    private volatile boolean canContinue = true;
+    private int iterationNumber = 0;
+    private IterationStatistics lastIterationStatistics = null;
+
+    ShardedKMeans(ShardedKMeansBuilder.Arguments<T> args) {
+        this.arguments = args;
+        this.shards = args.getShards();
+        this.RESULTS_COUNT = args.getResultCount();
+        //shards mostly wait for their transport, so every shard gets its own thread
+        this.parallelRunner = ParallelRunner.create(shards.size() > 1, shards.size(), null);
+        this.random = args.getSeed() != null ? new Random(args.getSeed()) : new Random();
+        for (var shard : shards) {
+            if (shard instanceof ShardWorker) {
+                //labels of a previous ShardedKMeans would not count points changed in the first iteration
+                ((ShardWorker<T>) shard).resetLabels();
+            }
+        }
+        final int[] sizes = new int[shards.size()];
+        parallelRunner.forEachChunk(shards.size(), shards.size(), (chunk, from, to) -> sizes[chunk] = shards.get(chunk).getSize());
+        long count = 0;
+        for (var size : sizes) {
+            count += size;
+        }
+        if (count < RESULTS_COUNT) {
+            parallelRunner.close();
+            throw new IllegalArgumentException("Shards need at least resultCount points, have: " + count);
+        }
+        this.INPUT_POINTS_COUNT = count;
+        initializeCalculatedMeanPoints(sizes);
+    }
+
+    /**
+     * Seeds mean points from a sample of every shard, weighting sampled points by size of their shard.
+     */
+    private void initializeCalculatedMeanPoints(int[] sizes) {
+        if (arguments.getInitialMeanPoints() != null) {
+            calculatedMeanPoints = new ArrayList<>(arguments.getInitialMeanPoints());
+            return;
+        }
+        final long[] seeds = new long[shards.size()];
+        for (int s = 0; s < seeds.length; s++) {
+            seeds[s] = random.nextLong();
+        }
+        final List<List<T>> samples = new ArrayList<>(Collections.nCopies(shards.size(), null));
+        parallelRunner.forEachChunk(shards.size(), shards.size(),
+                (chunk, from, to) -> samples.set(chunk, shards.get(chunk).sample(arguments.getSeedSampleSize(), seeds[chunk])));
+        List<T> points = new ArrayList<>();
+        List<Double> weights = new ArrayList<>();
+        for (int s = 0; s < samples.size(); s++) {
+            for (var point : samples.get(s)) {
+                points.add(point);
+                weights.add(sizes[s] * 1.0 / samples.get(s).size());
+            }
+        }
+        double[] pointWeights = new double[weights.size()];
+        for (int i = 0; i < pointWeights.length; i++) {
+            pointWeights[i] = weights.get(i);
+        }
+        var seeder = new Seeder<>(points, RESULTS_COUNT, arguments.getDataLength(), ParallelRunner.create(false, 1, null), random, pointWeights);
+        calculatedMeanPoints = seeder.seed(arguments.getSeeding());
+    }
+
+    /**
+     * Runs <i>iterationCount</i> iterations of KMeans.
+     * @param iterationCount iterations of KMeans.
+     * @return returns this object for easier chaining of methods.
+     */
+    public ShardedKMeans<T> iterate(int iterationCount) {
+        if (iterationCount <= 0) {
+            throw new IllegalArgumentException("Iteration count cannot be lower or equal 0, is: " + iterationCount);
+        }
+        canContinue = true;
+        updateProgress(0);
+        for (int i = 0; i < iterationCount; i++) {
+            if (!canContinue) {
+                break;
+            }
+            singleIteration();
+            updateProgress((i + 1) * 1.0 / iterationCount);
+        }
+        return this;
+    }
+
+    /**
+     * Iterates until given convergence criteria are met, the same way as KMeans.iterateUntilConverged.
+     * @param criteria rules that tell when to stop
+     * @return this object for easier chaining of methods.
+     */
+    public ShardedKMeans<T> iterateUntilConverged(ConvergenceCriteria criteria) {
+        if (criteria == null || !criteria.hasAnyRule()) {
+            throw new IllegalArgumentException("criteria need at least one rule");
+        }
+        canContinue = true;
+        updateProgress(0);
+        final long start = System.nanoTime();
+        final int pointCount = (int) Math.min(INPUT_POINTS_COUNT, Integer.MAX_VALUE);
+        int iterationsDone = 0;
+        while (canContinue) {
+            singleIteration();
+            iterationsDone++;
+            final long elapsedNanos = System.nanoTime() - start;
+            if (criteria.shouldStop(lastIterationStatistics, pointCount, iterationsDone, elapsedNanos)) {
+                updateProgress(1);
+                break;
+            }
+            updateProgress(criteria.getProgress(iterationsDone, elapsedNanos));
+        }
+        return this;
+    }
+
+    private void singleIteration() {
+        final long start = System.nanoTime();
+        final List<T> meanPoints = Collections.unmodifiableList(new ArrayList<>(calculatedMeanPoints));
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        final ShardStatistics<T>[] statistics = new ShardStatistics[shards.size()];
+        parallelRunner.forEachChunk(shards.size(), shards.size(), (chunk, from, to) -> {
+            var shardStatistics = shards.get(chunk).assign(meanPoints);
+            if (shardStatistics.getClusterCount() != RESULTS_COUNT) {
+                throw new IllegalStateException("Shard " + chunk + " returned statistics of " + shardStatistics.getClusterCount() + " clusters");
+            }
+            statistics[chunk] = shardStatistics;
+        });
+        final long meanStart = System.nanoTime();
+
+        final var meanAccumulator = arguments.getMeanAccumulator();
+        final var dataLength = arguments.getDataLength();
+        List<T> newMeanPoints = new ArrayList<>(RESULTS_COUNT);
+        long[] sizes = new long[RESULTS_COUNT];
+        double lengthSum = 0;
+        long changedPoints = 0;
+        double maxShift = 0;
+        int shiftCalculations = 0;
+        for (int c = 0; c < RESULTS_COUNT; c++) {
+            MeanAccumulator<T> merged = null;
+            for (var shardStatistics : statistics) {
+                if (shardStatistics.getCount(c) == 0) {
+                    continue;
+                }
+                if (merged == null) {
+                    merged = meanAccumulator.get();
+                }
+                merged.add(shardStatistics.getMeanPoint(c), shardStatistics.getCount(c));
+                sizes[c] += shardStatistics.getCount(c);
+                lengthSum += shardStatistics.getLengthSum(c);
+            }
+            var oldMean = meanPoints.get(c);
+            var newMean = merged == null ? oldMean : merged.getMean();
+            if (newMean != oldMean) {
+                maxShift = Math.max(maxShift, dataLength.getLength(oldMean, newMean));
+                shiftCalculations++;
+            }
+            newMeanPoints.add(newMean);
+        }
+        for (var shardStatistics : statistics) {
+            changedPoints += shardStatistics.getChangedPoints();
+        }
+        calculatedMeanPoints = newMeanPoints;
+        clusterSizes = sizes;
+        inertia = lengthSum;
+        wasIterated = true;
+        iterationNumber++;
+
+        final long end = System.nanoTime();
+        lastIterationStatistics = new IterationStatistics(iterationNumber, end - start, meanStart - start, end - meanStart,
+                INPUT_POINTS_COUNT * RESULTS_COUNT + shiftCalculations, 0, (int) Math.min(changedPoints, Integer.MAX_VALUE),
+                0, maxShift, inertia, Collections.emptyMap());
+        if (arguments.getLogger() != null) {
+            arguments.getLogger().log(lastIterationStatistics.toString());
+        }
+        if (arguments.getIterationListener() != null) {
+            arguments.getIterationListener().onIteration(lastIterationStatistics);
+        }
+    }
+
+    private void updateProgress(double progress) {
+        this.percentProgress = progress;
+        if (arguments.getOnUpdate() != null) {
+            arguments.getOnUpdate().onUpdate(progress);
+        }
+    }
+
+    /**
+     * Gets progress as a double between 0.0 and 1.0
+     * @return percentProgress
+     */
+    public double getProgress() {
+        return percentProgress;
+    }
+
+    /**
+     * Returns calculated k-means points in form of a list.
+     * @return list with calculated results.
+     */
+    public List<T> getCalculatedMeanPoints() {
+        if (!wasIterated) {
+            throw new RuntimeException("Cannot get results before iterating");
+        }
+        return Collections.unmodifiableList(calculatedMeanPoints);
+    }
+
+    /**
+     * Returns number of points of every cluster in all shards, assigned in the last iteration.
+     * @return sizes of clusters, in the same order as calculated mean points
+     */
+    public long[] getClusterSizes() {
+        if (!wasIterated) {
+            throw new RuntimeException("Cannot get results before iterating");
+        }
+        return clusterSizes.clone();
+    }
+
+    /**
+     * Returns frozen model of current mean points that assigns new points to them, see KMeansModel.
+     * @param indexed whether to use an index, which requires DataLength to be a metric
+     * @return model of current mean points
+     */
+    public KMeansModel<T> getModel(boolean indexed) {
+        var meanPoints = getCalculatedMeanPoints();
+        return indexed
+                ? KMeansModel.indexed(meanPoints, arguments.getDataLength())
+                : KMeansModel.of(meanPoints, arguments.getDataLength());
+    }
+
+    /**
+     * Returns sum of lengths from points of all shards to mean points of their clusters, calculated in the last
+     * iteration before mean points were moved.
+     * @return inertia
+     */
+    public double getInertia() {
+        return inertia;
+    }
+
+    /**
+     * Returns inertia divided by number of input points.
+     * @return standard deviation
+     */
+    public double getStandardDeviation() {
+        return inertia / INPUT_POINTS_COUNT;
+    }
+
+    /**
+     * Returns statistics of the last iteration, the same as passed to IterationListener.
+     * @return statistics of the last iteration, or null before iterating
+     */
+    public IterationStatistics getLastIterationStatistics() {
+        return lastIterationStatistics;
+    }
+
+    /**
+     * Aborts execution of k-means algorithm after current iteration.
+     */
+    public void earlyStop() {
+        canContinue = false;
+    }
+
+    /**
+     * Shuts down threads that call shards. Shards themselves are not closed. Iterating after closing creates new
+     * threads.
+     */
+    @Override
+    public void close() {
+        parallelRunner.close();
+    }
+}
@@ -0,0 +1,228 @@
+package pl.ksitarski.simplekmeans;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+public class ShardedKMeansBuilder<T> {
+
+    private static final int SEED_SAMPLE_PER_RESULT = 20;
+
+    private final List<Shard<T>> SHARDS;
+    private final int RESULT_COUNT;
+    private final Supplier<MeanAccumulator<T>> meanAccumulator;
+    private final DataLength<T> dataLength;
+
+    private Seeding seeding = Seeding.RANDOM;
+    private int seedSampleSize;
+    private List<T> initialMeanPoints = null;
+    private OnUpdate onUpdate;
+    private IterationListener iterationListener;
+    private KMeansLogger logger;
+    private Long seed = null;
+
+    /**
+     * Builder constructor for ShardedKMeans
+     * @param shards shards that hold input points, for example ShardWorkers or SocketShards
+     * @param resultCount number of result points
+     * @param meanAccumulator function that creates new, empty MeanAccumulator, used to merge statistics of shards
+     * @param dataLength function that gives length between two points
+     */
+    public ShardedKMeansBuilder(List<? extends Shard<T>> shards, int resultCount, Supplier<MeanAccumulator<T>> meanAccumulator, DataLength<T> dataLength) {
+        if (shards == null || shards.isEmpty() || shards.contains(null)) {
+            throw new IllegalArgumentException("shards needs at least 1 shard and cannot contain null");
+        }
+        if (resultCount < 1) {
+            throw new IllegalArgumentException("resultCount needs to be at least 1");
+        }
+        if (meanAccumulator == null) {
+            throw new IllegalArgumentException("meanAccumulator cannot be null");
+        }
+        if (dataLength == null) {
+            throw new IllegalArgumentException("dataLength cannot be null");
+        }
+        this.SHARDS = new ArrayList<>(shards);
+        this.RESULT_COUNT = resultCount;
+        this.meanAccumulator = meanAccumulator;
+        this.dataLength = dataLength;
+        this.seedSampleSize = SEED_SAMPLE_PER_RESULT * resultCount;
+    }
+
+    /**
+     * Sets how initial mean points are picked from points sampled from every shard. Default is Seeding.RANDOM.
+     * @param seeding seeding method
+     * @return this
+     */
+    public ShardedKMeansBuilder<T> setSeeding(Seeding seeding) {
+        if (seeding == null) {
+            throw new IllegalArgumentException("seeding cannot be null");
+        }
+        this.seeding = seeding;
+        return this;
+    }
+
+    /**
+     * Sets number of points sampled from every shard to seed mean points. Sampled points are weighted by size of their
+     * shard, so bigger shards get proportionally more mean points. Default is 20 * <i>resultCount</i>.
+     * @param seedSampleSize number of points sampled from every shard, at least <i>resultCount</i>
+     * @return this
+     */
+    public ShardedKMeansBuilder<T> setSeedSampleSize(int seedSampleSize) {
+        if (seedSampleSize < RESULT_COUNT) {
+            throw new IllegalArgumentException("seedSampleSize needs to be at least resultCount");
+        }
+        this.seedSampleSize = seedSampleSize;
+        return this;
+    }
+
+    /**
+     * Starts from given mean points instead of seeding.
+     * @param initialMeanPoints exactly <i>resultCount</i> points
+     * @return this
+     */
+    public ShardedKMeansBuilder<T> setInitialMeanPoints(List<T> initialMeanPoints) {
+        if (initialMeanPoints == null || initialMeanPoints.size() != RESULT_COUNT || initialMeanPoints.contains(null)) {
+            throw new IllegalArgumentException("initialMeanPoints needs exactly resultCount points, none of them null");
+        }
+        this.initialMeanPoints = new ArrayList<>(initialMeanPoints);
+        return this;
+    }
+
+    /**
+     * Sets seed of all random choices, so that runs with the same shards give the same results.
+     * @param seed seed of random number generator
+     * @return this
+     */
+    public ShardedKMeansBuilder<T> setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Adds OnUpdate function
+     * @param onUpdate function that is called whenever iteration is completed
+     * @return this
+     */
+    public ShardedKMeansBuilder<T> onUpdate(OnUpdate onUpdate) {
+        if (onUpdate == null) {
+            throw new IllegalArgumentException("onUpdate cannot be null");
+        }
+        this.onUpdate = onUpdate;
+        return this;
+    }
+
+    /**
+     * Adds listener of statistics of every iteration. Assignment time is the time of the slowest shard, including
+     * transport.
+     * @param iterationListener function that is called after every iteration
+     * @return this
+     */
+    public ShardedKMeansBuilder<T> onIteration(IterationListener iterationListener) {
+        if (iterationListener == null) {
+            throw new IllegalArgumentException("iterationListener cannot be null");
+        }
+        this.iterationListener = iterationListener;
+        return this;
+    }
+
+    /**
+     * Logs statistics of every iteration with given logger.
+     * @param logger logger of iteration statistics
+     * @return this
+     */
+    public ShardedKMeansBuilder<T> setLogger(KMeansLogger logger) {
+        if (logger == null) {
+            throw new IllegalArgumentException("logger cannot be null");
+        }
+        this.logger = logger;
+        return this;
+    }
+
+    /**
+     * Finishes building arguments and returns new ShardedKMeans object. Seeding asks every shard for a sample of its
+     * points.
+     * @return finished arguments
+     */
+    public ShardedKMeans<T> build() {
+        return new ShardedKMeans<>(buildArgs());
+    }
+
+
+    private Arguments<T> buildArgs() {
+        return new Arguments<>(SHARDS, RESULT_COUNT, meanAccumulator, dataLength, seeding, seedSampleSize, initialMeanPoints, onUpdate, iterationListener, logger, seed);
+    }
+
+    static class Arguments<T> {
+
+        private final List<Shard<T>> SHARDS;
+        private final int RESULT_COUNT;
+        private final Supplier<MeanAccumulator<T>> meanAccumulator;
+        private final DataLength<T> dataLength;
+
+        private final Seeding seeding;
+        private final int seedSampleSize;
+        private final List<T> initialMeanPoints;
+        private final OnUpdate onUpdate;
+        private final IterationListener iterationListener;
+        private final KMeansLogger logger;
+        private final Long seed;
+
+        private Arguments(List<Shard<T>> shards, int resultCount, Supplier<MeanAccumulator<T>> meanAccumulator, DataLength<T> dataLength, Seeding seeding, int seedSampleSize, List<T> initialMeanPoints, OnUpdate onUpdate, IterationListener iterationListener, KMeansLogger logger, Long seed) {
+            this.SHARDS = shards;
+            this.RESULT_COUNT = resultCount;
+            this.meanAccumulator = meanAccumulator;
+            this.dataLength = dataLength;
+            this.seeding = seeding;
+            this.seedSampleSize = seedSampleSize;
+            this.initialMeanPoints = initialMeanPoints;
+            this.onUpdate = onUpdate;
+            this.iterationListener = iterationListener;
+            this.logger = logger;
+            this.seed = seed;
+        }
+
+        List<Shard<T>> getShards() {
+            return SHARDS;
+        }
+
+        int getResultCount() {
+            return RESULT_COUNT;
+        }
+
+        Supplier<MeanAccumulator<T>> getMeanAccumulator() {
+            return meanAccumulator;
+        }
+
+        DataLength<T> getDataLength() {
+            return dataLength;
+        }
+
+        Seeding getSeeding() {
+            return seeding;
+        }
+
+        int getSeedSampleSize() {
+            return seedSampleSize;
+        }
+
+        List<T> getInitialMeanPoints() {
+            return initialMeanPoints;
+        }
+
+        OnUpdate getOnUpdate() {
+            return onUpdate;
+        }
+
+        IterationListener getIterationListener() {
+            return iterationListener;
+        }
+
+        KMeansLogger getLogger() {
+            return logger;
+        }
+
+        Long getSeed() {
+            return seed;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package pl.ksitarski.simplekmeans;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Shard served by a ShardServer, possibly in another process or on another machine. Every call sends a request over
+ * a single connection and waits for the response; calls of one SocketShard are serialized.
+ */
+public class SocketShard<T> implements Shard<T> {
+
+    private final Socket socket;
+    private final DataInputStream input;
+    private final DataOutputStream output;
+    private final PointSerializer<T> serializer;
+    private int size = -1;
+
+    private SocketShard(Socket socket, PointSerializer<T> serializer) throws IOException {
+        this.socket = socket;
+        this.input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        this.serializer = serializer;
+    }
+
+    /**
+     * Connects to a ShardServer. Calls wait for the server as long as it takes, so a server that stopped responding
+     * blocks the coordinator; connect with a timeout to fail instead.
+     * @param host host of the server, for example "localhost"
+     * @param port port of the server
+     * @param serializer function that writes and reads points, the same as used by the server
+     * @return connected shard
+     * @throws UncheckedIOException if connecting failed
+     */
+    public static <T> SocketShard<T> connect(String host, int port, PointSerializer<T> serializer) {
+        return connect(host, port, serializer, 0);
+    }
+
+    /**
+     * Connects to a ShardServer, failing when connecting or waiting for any response takes longer than
+     * <i>timeout</i>. A call that timed out closes the connection, as the late response would be read by the next call.
+     * @param host host of the server, for example "localhost"
+     * @param port port of the server
+     * @param serializer function that writes and reads points, the same as used by the server
+     * @param timeout longest time of connecting and of waiting for a response, which includes assigning all points of
+     *                the shard
+     * @return connected shard
+     * @throws UncheckedIOException if connecting failed or timed out
+     */
+    public static <T> SocketShard<T> connect(String host, int port, PointSerializer<T> serializer, Duration timeout) {
+        if (timeout == null || timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("timeout needs to be positive");
+        }
+        return connect(host, port, serializer, (int) Math.min(timeout.toMillis(), Integer.MAX_VALUE));
+    }
+
+    private static <T> SocketShard<T> connect(String host, int port, PointSerializer<T> serializer, int timeoutMillis) {
+        if (host == null || serializer == null) {
+            throw new IllegalArgumentException("host and serializer cannot be null");
+        }
+        var socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(host, port), timeoutMillis);
+            socket.setSoTimeout(timeoutMillis);
+            socket.setTcpNoDelay(true);
+            var shard = new SocketShard<>(socket, serializer);
+            shard.output.writeInt(ShardProtocol.MAGIC);
+            shard.output.writeInt(ShardProtocol.VERSION);
+            return shard;
+        } catch (IOException e) {
+            try {
+                socket.close();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Size of a shard never changes, so it is asked for only once.
+     */
+    @Override
+    public synchronized int getSize() {
+        if (size < 0) {
+            size = call(() -> {
+                output.writeByte(ShardProtocol.SIZE);
+                readStatus();
+                return input.readInt();
+            });
+        }
+        return size;
+    }
+
+    @Override
+    public synchronized List<T> sample(int count, long seed) {
+        return call(() -> {
+            output.writeByte(ShardProtocol.SAMPLE);
+            output.writeInt(count);
+            output.writeLong(seed);
+            readStatus();
+            return ShardProtocol.readPoints(input, serializer);
+        });
+    }
+
+    @Override
+    public synchronized ShardStatistics<T> assign(List<T> meanPoints) {
+        return call(() -> {
+            output.writeByte(ShardProtocol.ASSIGN);
+            ShardProtocol.writePoints(meanPoints, output, serializer);
+            readStatus();
+            return ShardProtocol.readStatistics(input, serializer);
+        });
+    }
+
+    /**
+     * Runs a call, closing the connection when it failed partway, for example in PointSerializer, as the rest of the
+     * request or response would be read as the next one. An error reported by the server leaves the connection usable.
+     */
+    private <R> R call(Call<R> call) {
+        try {
+            return call.run();
+        } catch (ServerError e) {
+            throw e;
+        } catch (IOException e) {
+            throw disconnect(new UncheckedIOException(e));
+        } catch (RuntimeException e) {
+            throw disconnect(e);
+        }
+    }
+
+    /**
+     * Sends buffered request and reads status of the response, throwing errors reported by the server.
+     */
+    private void readStatus() throws IOException {
+        output.flush();
+        if (input.readByte() == ShardProtocol.ERROR) {
+            throw new ServerError("Shard failed: " + input.readUTF());
+        }
+    }
+
+    private RuntimeException disconnect(RuntimeException e) {
+        try {
+            socket.close();
+        } catch (IOException suppressed) {
+            e.addSuppressed(suppressed);
+        }
+        return e;
+    }
+
+    private interface Call<R> {
+        R run() throws IOException;
+    }
+
+    /**
+     * Error reported by the server. Its whole response is read, so the connection stays usable.
+     */
+    private static class ServerError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        ServerError(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Ends the connection, so the server can accept another coordinator.
+     */
+    @Override
+    public synchronized void close() {
+        try (socket) {
+            if (!socket.isClosed()) {
+                output.writeByte(ShardProtocol.CLOSE);
+                output.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,393 @@
+package pl.ksitarski.simplekmeans;
+import java.util.*;
+
+/**
+ * Spherical KMeans for sparse points, for example TF-IDF vectors of documents. Points are compared by cosine: every
+ * point is assigned to the mean point with the highest dot product, as mean points are kept normalized to unit length,
+ * and the length between them is 1 - cosine similarity. New mean points are normalized sums of normalized points of
+ * their clusters.
+ * <br>
+ * Mean points are dense, but stored dimension by dimension, so that a nonzero value of a point is multiplied by
+ * adjacent values of all mean points. Their sums are accumulated only for dimensions present in points of a cluster,
+ * so an iteration takes time proportional to the number of nonzero values times result count, not to dimensions.
+ * Memory is <i>resultCount * dimensions</i> doubles for mean points and a few arrays of <i>dimensions</i> values per
+ * thread.
+ */
+public class SparseKMeans implements AutoCloseable {
+
+    private final SparseKMeansBuilder.Arguments arguments;
+
+    private final int[] rowOffsets;
+    private final int[] columns;
+    private final double[] values;
+    private final double[] inverseNorms;
+
+    private final double[] meanValues;
+    private final int[][] meanColumns;
+    private final int[] labels;
+    private int[] clusterSizes;
+    private double lengthSum;
+
+    private double percentProgress = 0;
+
+    private boolean wasIterated = false;
+
+    private final ParallelRunner parallelRunner;
+    private final Random random;
+    private final UpdateWorkspace[] workspaces;
+
+    private volatile boolean canContinue = true;
+
+    private final int INPUT_POINTS_COUNT;
+    private final int RESULTS_COUNT;
+    private final int DIMENSIONS;
+
+    SparseKMeans(SparseKMeansBuilder.Arguments args) {
+        this.arguments = args;
+        var inputPoints = args.getInputPoints();
+        this.rowOffsets = inputPoints.getRowOffsets();
+        this.columns = inputPoints.getColumns();
+        this.values = inputPoints.getValues();
+        this.INPUT_POINTS_COUNT = inputPoints.getPointCount();
+        this.RESULTS_COUNT = args.getResultCount();
+        this.DIMENSIONS = inputPoints.getDimensions();
+        this.parallelRunner = ParallelRunner.create(args.isMultithreaded(), args.getThreadsMax(), args.getExecutorService());
+        this.random = args.getSeed() != null ? new Random(args.getSeed()) : new Random();
+        this.inverseNorms = new double[INPUT_POINTS_COUNT];
+        parallelRunner.forEachChunk(INPUT_POINTS_COUNT, (chunk, from, to) -> {
+            for (int i = from; i < to; i++) {
+                double squaredNorm = 0;
+                for (int j = rowOffsets[i]; j < rowOffsets[i + 1]; j++) {
+                    squaredNorm += values[j] * values[j];
+                }
+                inverseNorms[i] = squaredNorm > 0 ? 1 / Math.sqrt(squaredNorm) : 0;
+            }
+        });
+        this.meanValues = new double[RESULTS_COUNT * DIMENSIONS];
+        this.meanColumns = new int[RESULTS_COUNT][0];
+        this.labels = new int[INPUT_POINTS_COUNT];
+        this.workspaces = new UpdateWorkspace[Math.min(parallelRunner.getParallelism(), RESULTS_COUNT)];
+        initializeRandomlyCalculatedMeanPoints();
+    }
+
+    private void initializeRandomlyCalculatedMeanPoints() {
+        for (int c = 0; c < RESULTS_COUNT; c++) {
+            copyRandomPointTo(c);
+        }
+    }
+
+    /**
+     * Runs <i>iterationCount</i> iterations of KMeans.
+     * @param iterationCount iterations of KMeans.
+     * @return returns this object for easier chaining of methods.
+     */
+    public SparseKMeans iterate(int iterationCount) {
+        if (iterationCount <= 0) {
+            throw new IllegalArgumentException("Iteration count cannot be lower or equal 0, is: " + iterationCount);
+        }
+        setupIteration();
+        for (int i = 0; i < iterationCount; i++) {
+            if (!canContinue) {
+                break;
+            }
+            singleIteration();
+            wasIterated = true;
+            updateProgress((i+1)*1.0/iterationCount*1.0);
+        }
+        return this;
+    }
+
+    /**
+     * Iterates until standard deviation delta is smaller than given delta. In this mode progress percentage is approximation.
+     * @param delta minimum difference between the standard deviation of two consecutive iterations that causes execution to stop
+     * @return this object for easier chaining of methods.
+     */
+    public SparseKMeans iterateUntilStandardDeviationDeltaSmallerOrEqualTo(double delta) {
+        return iterateUntilStandardDeviationDeltaSmallerOrEqualTo(delta, 0);
+    }
+
+    /**
+     * Iterates until standard deviation delta is smaller than given delta. In this mode progress percentage is approximation.
+     * @param delta minimum difference between the standard deviation of two consecutive iterations that causes execution to stop
+     * @param iterationCountSafeguard maximum number of iterations. Numbers below 1 are ignored.
+     * @return this object for easier chaining of methods.
+     */
+    public SparseKMeans iterateUntilStandardDeviationDeltaSmallerOrEqualTo(double delta, int iterationCountSafeguard) {
+        setupIteration();
+        double lastStdDev = Double.MAX_VALUE;
+        boolean iterate = true;
+        int iterationsDone = 0;
+        while (iterate) {
+            if (!canContinue) {
+                break;
+            }
+            singleIteration();
+            wasIterated = true;
+            double stdDev = getStandardDeviation();
+            double currentDelta = lastStdDev - stdDev;
+            iterationsDone++;
+
+            if (currentDelta < delta || (iterationsDone >= iterationCountSafeguard && iterationCountSafeguard > 0)) {
+                iterate = false;
+            }
+
+            //aproximate progress
+            double progress = delta / currentDelta;
+            if (progress > 1) progress = 1;
+
+            updateProgress(progress);
+            lastStdDev = stdDev;
+        }
+        return this;
+    }
+
+    private void setupIteration() {
+        canContinue = true;
+        updateProgress(0);
+    }
+
+    private void singleIteration() {
+        final int chunkCount = parallelRunner.getChunkCount(INPUT_POINTS_COUNT);
+        final int[][] counts = new int[chunkCount][];
+        final double[] lengthSums = new double[chunkCount];
+        parallelRunner.forEachChunk(INPUT_POINTS_COUNT, chunkCount, (chunk, from, to) -> {
+            counts[chunk] = new int[RESULTS_COUNT];
+            lengthSums[chunk] = assignPoints(from, to, counts[chunk]);
+        });
+        int[] sizes = new int[RESULTS_COUNT];
+        double lengthSum = 0;
+        for (int j = 0; j < chunkCount; j++) {
+            for (int c = 0; c < RESULTS_COUNT; c++) {
+                sizes[c] += counts[j][c];
+            }
+            lengthSum += lengthSums[j];
+        }
+        clusterSizes = sizes;
+        this.lengthSum = lengthSum;
+        calculateMeanPoints();
+    }
+
+    /**
+     * Assigns points from <i>from</i> (inclusive) to <i>to</i> (exclusive) to mean points with the highest dot
+     * product, counting points of every cluster.
+     * @return sum of lengths of assigned points
+     */
+    private double assignPoints(int from, int to, int[] counts) {
+        final int k = RESULTS_COUNT;
+        final double[] means = meanValues;
+        final double[] dots = new double[k];
+        double lengthSum = 0;
+        for (int i = from; i < to; i++) {
+            Arrays.fill(dots, 0);
+            for (int j = rowOffsets[i]; j < rowOffsets[i + 1]; j++) {
+                final double value = values[j];
+                final int meanOffset = columns[j] * k;
+                for (int c = 0; c < k; c++) {
+                    dots[c] += value * means[meanOffset + c];
+                }
+            }
+            int closest = 0;
+            for (int c = 1; c < k; c++) {
+                if (dots[c] > dots[closest]) {
+                    closest = c;
+                }
+            }
+            labels[i] = closest;
+            counts[closest]++;
+            lengthSum += 1 - dots[closest] * inverseNorms[i];
+        }
+        return lengthSum;
+    }
+
+    /**
+     * Sums normalized points of every cluster, visiting points grouped by label. Clusters are split between threads,
+     * and every thread writes only mean points of its own clusters.
+     */
+    private void calculateMeanPoints() {
+        final int[] starts = new int[RESULTS_COUNT + 1];
+        for (int c = 0; c < RESULTS_COUNT; c++) {
+            starts[c + 1] = starts[c] + clusterSizes[c];
+        }
+        final int[] members = new int[INPUT_POINTS_COUNT];
+        final int[] positions = Arrays.copyOf(starts, RESULTS_COUNT);
+        for (int i = 0; i < INPUT_POINTS_COUNT; i++) {
+            members[positions[labels[i]]++] = i;
+        }
+        final boolean[] empty = new boolean[RESULTS_COUNT];
+        parallelRunner.forEachChunk(RESULTS_COUNT, workspaces.length, (chunk, from, to) -> {
+            if (workspaces[chunk] == null) {
+                workspaces[chunk] = new UpdateWorkspace(DIMENSIONS);
+            }
+            for (int c = from; c < to; c++) {
+                empty[c] = !sumCluster(c, members, starts[c], starts[c + 1], workspaces[chunk]);
+            }
+        });
+        //empty clusters are reseeded in order, so results do not depend on thread count
+        for (int c = 0; c < RESULTS_COUNT; c++) {
+            if (empty[c]) {
+                copyRandomPointTo(c);
+            }
+        }
+    }
+
+    /**
+     * Sets mean point of cluster <i>c</i> to the normalized sum of normalized points at indexes <i>members[from]</i>
+     * to <i>members[to - 1]</i>.
+     * @return false if the sum is zero, so there is no mean point
+     */
+    private boolean sumCluster(int c, int[] members, int from, int to, UpdateWorkspace workspace) {
+        final double[] sums = workspace.sums;
+        final int[] stamps = workspace.stamps;
+        final int stamp = ++workspace.stamp;
+        int touchedCount = 0;
+        for (int m = from; m < to; m++) {
+            final int i = members[m];
+            final double inverseNorm = inverseNorms[i];
+            for (int j = rowOffsets[i]; j < rowOffsets[i + 1]; j++) {
+                final int column = columns[j];
+                if (stamps[column] != stamp) {
+                    stamps[column] = stamp;
+                    sums[column] = 0;
+                    workspace.touched[touchedCount++] = column;
+                }
+                sums[column] += values[j] * inverseNorm;
+            }
+        }
+        double squaredNorm = 0;
+        for (int t = 0; t < touchedCount; t++) {
+            squaredNorm += sums[workspace.touched[t]] * sums[workspace.touched[t]];
+        }
+        if (!(squaredNorm > 0)) {
+            return false;
+        }
+        final double inverseNorm = 1 / Math.sqrt(squaredNorm);
+        final int[] meanPointColumns = Arrays.copyOf(workspace.touched, touchedCount);
+        final double[] meanPointValues = new double[touchedCount];
+        for (int t = 0; t < touchedCount; t++) {
+            meanPointValues[t] = sums[meanPointColumns[t]] * inverseNorm;
+        }
+        setMeanPoint(c, meanPointColumns, meanPointValues, 0, 1);
+        return true;
+    }
+
+    /**
+     * Replaces mean point of cluster <i>c</i> with given nonzero values, starting at <i>offset</i> of
+     * <i>newValues</i> and multiplied by <i>scale</i>. Only columns of the old and the new mean point are written.
+     */
+    private void setMeanPoint(int c, int[] newColumns, double[] newValues, int offset, double scale) {
+        final int k = RESULTS_COUNT;
+        for (var column : meanColumns[c]) {
+            meanValues[column * k + c] = 0;
+        }
+        for (int t = 0; t < newColumns.length; t++) {
+            meanValues[newColumns[t] * k + c] = newValues[offset + t] * scale;
+        }
+        meanColumns[c] = newColumns;
+    }
+
+    private void copyRandomPointTo(int meanIndex) {
+        final int i = random.nextInt(INPUT_POINTS_COUNT);
+        final int from = rowOffsets[i];
+        setMeanPoint(meanIndex, Arrays.copyOfRange(columns, from, rowOffsets[i + 1]), values, from, inverseNorms[i]);
+    }
+
+    /**
+     * Buffers of a thread calculating mean points. <i>stamps</i> tell which dimensions were already touched by the
+     * current cluster, so <i>sums</i> never need to be cleared as a whole.
+     */
+    private static class UpdateWorkspace {
+        final double[] sums;
+        final int[] stamps;
+        final int[] touched;
+        int stamp = 0;
+
+        UpdateWorkspace(int dimensions) {
+            sums = new double[dimensions];
+            stamps = new int[dimensions];
+            touched = new int[dimensions];
+        }
+    }
+
+    private void updateProgress(double progress) {
+        this.percentProgress = progress;
+        if (arguments.getOnUpdate() != null) {
+            arguments.getOnUpdate().onUpdate(progress);
+        }
+    }
+
+    /**
+     * Gets progress as a double between 0.0 and 1.0
+     * @return percentProgress
+     */
+    public double getProgress() {
+        return percentProgress;
+    }
+
+    /**
+     * Returns calculated k-means points in form of a list, each point as a dense array of <i>dimensions</i> values of
+     * unit length.
+     * @return list with calculated results.
+     */
+    public List<double[]> getCalculatedMeanPoints() {
+        if (!wasIterated) {
+            throw new RuntimeException("Cannot get results before iterating");
+        }
+        List<double[]> result = new ArrayList<>(RESULTS_COUNT);
+        for (int c = 0; c < RESULTS_COUNT; c++) {
+            double[] meanPoint = new double[DIMENSIONS];
+            for (var column : meanColumns[c]) {
+                meanPoint[column] = meanValues[column * RESULTS_COUNT + c];
+            }
+            result.add(meanPoint);
+        }
+        return result;
+    }
+
+    /**
+     * Returns index of the cluster every input point was assigned to in the last iteration, in the same order as input
+     * points.
+     * @return labels of input points
+     */
+    public int[] getLabels() {
+        if (!wasIterated) {
+            throw new RuntimeException("Cannot get results before iterating");
+        }
+        return labels.clone();
+    }
+
+    /**
+     * Returns number of points assigned to every mean point in the last iteration.
+     * @return cluster sizes, in the same order as calculated mean points
+     */
+    public int[] getClusterSizes() {
+        if (!wasIterated) {
+            throw new RuntimeException("Cannot get results before iterating");
+        }
+        return clusterSizes.clone();
+    }
+
+    /**
+     * Aborts execution of k-means algorithm after current iteration.
+     */
+    public void earlyStop() {
+        canContinue = false;
+    }
+
+    /**
+     * Shuts down threads created for calculations of this object at once, instead of waiting until they end after a
+     * few idle seconds. Executor set with setExecutorService is not shut down. Iterating after closing creates new threads.
+     */
+    @Override
+    public void close() {
+        parallelRunner.close();
+    }
+
+    /**
+     * Calculates mean length between points and mean points of their clusters in the last iteration, which is mean
+     * cosine distance.
+     */
+    public double getStandardDeviation() {
+        if (!wasIterated) return Double.POSITIVE_INFINITY;
+        return lengthSum / INPUT_POINTS_COUNT;
+    }
+}
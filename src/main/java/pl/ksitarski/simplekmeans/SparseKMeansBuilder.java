@@ -0,0 +1,153 @@
+package pl.ksitarski.simplekmeans;
+
+import java.util.concurrent.ExecutorService;
+
+public class SparseKMeansBuilder {
+
+    private final SparseVectors INPUT_POINTS;
+    private final int RESULT_COUNT;
+
+    private boolean multithreaded = false;
+    private int threadsMax = -1;
+    private ExecutorService executorService = null;
+    private OnUpdate onUpdate;
+    private Long seed = null;
+
+    /**
+     * Builder constructor for SparseKMeans
+     * @param inputPoints sparse input points
+     * @param resultCount number of result points
+     */
+    public SparseKMeansBuilder(SparseVectors inputPoints, int resultCount) {
+        if (inputPoints == null) {
+            throw new IllegalArgumentException("inputPoints cannot be null");
+        }
+        if (resultCount < 1) {
+            throw new IllegalArgumentException("resultCount needs to be at least 1");
+        }
+        if ((long) resultCount * inputPoints.getDimensions() > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("resultCount * dimensions mean point values do not fit in an array");
+        }
+        this.INPUT_POINTS = inputPoints;
+        this.RESULT_COUNT = resultCount;
+    }
+
+    /**
+     * Enables multithreading with given thread count
+     * @param count number of threads
+     * @return this
+     */
+    public SparseKMeansBuilder setThreadCount(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Thread count cannot be lower than 1");
+        }
+        this.threadsMax = count;
+        this.multithreaded = true;
+        return this;
+    }
+
+    /**
+     * Runs calculations on given executor instead of creating own threads. The executor is reused by every iteration
+     * and is never shut down by KMeans, so it can be shared by many KMeans objects. When thread count is not set, it is
+     * taken from the parallelism of a ForkJoinPool or from number of available processors for other executors.
+     * @param executorService executor to run calculations on, for example ForkJoinPool.commonPool()
+     * @return this
+     */
+    public SparseKMeansBuilder setExecutorService(ExecutorService executorService) {
+        if (executorService == null) {
+            throw new IllegalArgumentException("executorService cannot be null");
+        }
+        this.executorService = executorService;
+        this.multithreaded = true;
+        return this;
+    }
+
+    /**
+     * Sets seed of all random choices, so that runs with the same arguments give the same results, whatever the
+     * thread count. Without a seed every run is different.
+     * @param seed seed of random number generator
+     * @return this
+     */
+    public SparseKMeansBuilder setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Adds OnUpdate function
+     * @param onUpdate function that is called whenever iteration is completed
+     * @return this
+     */
+    public SparseKMeansBuilder onUpdate(OnUpdate onUpdate) {
+        if (onUpdate == null) {
+            throw new IllegalArgumentException("onUpdate cannot be null");
+        }
+        this.onUpdate = onUpdate;
+        return this;
+    }
+
+    /**
+     * Finishes building arguments and returns new SparseKMeans object
+     * @return finished arguments
+     */
+    public SparseKMeans build() {
+        return new SparseKMeans(buildArgs());
+    }
+
+
+    private Arguments buildArgs() {
+        return new Arguments(INPUT_POINTS, RESULT_COUNT, multithreaded, threadsMax, executorService, onUpdate, seed);
+    }
+
+    static class Arguments {
+
+        private final SparseVectors INPUT_POINTS;
+        private final int RESULT_COUNT;
+
+        private final boolean MULTITHREADED;
+        private final int threadsMax;
+        private final ExecutorService executorService;
+
+        private final OnUpdate onUpdate;
+        private final Long seed;
+
+        private Arguments(SparseVectors inputPoints, int resultCount, boolean multithreaded, int threadsMax, ExecutorService executorService, OnUpdate onUpdate, Long seed) {
+            this.INPUT_POINTS = inputPoints;
+            this.RESULT_COUNT = resultCount;
+            this.MULTITHREADED = multithreaded;
+            this.threadsMax = threadsMax;
+            this.executorService = executorService;
+            this.onUpdate = onUpdate;
+            this.seed = seed;
+        }
+
+        SparseVectors getInputPoints() {
+            return INPUT_POINTS;
+        }
+
+        int getResultCount() {
+            return RESULT_COUNT;
+        }
+
+        boolean isMultithreaded() {
+            return MULTITHREADED;
+        }
+
+        int getThreadsMax() {
+            return threadsMax;
+        }
+
+        ExecutorService getExecutorService() {
+            return executorService;
+        }
+
+        OnUpdate getOnUpdate() {
+            return onUpdate;
+        }
+
+        Long getSeed() {
+            return seed;
+        }
+    }
+
+}
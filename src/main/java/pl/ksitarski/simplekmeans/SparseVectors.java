@@ -0,0 +1,115 @@
+package pl.ksitarski.simplekmeans;
+
+/**
+ * Sparse points in compressed sparse row (CSR) form: nonzero values of point <i>i</i> are stored at indexes
+ * <i>rowOffsets[i]</i> to <i>rowOffsets[i + 1] - 1</i> of <i>values</i>, with their dimensions at the same indexes of
+ * <i>columns</i>. Arrays are not copied, so they must not change while they are clustered.
+ */
+public class SparseVectors {
+
+    private final int dimensions;
+    private final int[] rowOffsets;
+    private final int[] columns;
+    private final double[] values;
+
+    /**
+     * @param dimensions number of dimensions of every point
+     * @param rowOffsets index of the first nonzero value of every point, followed by the number of all nonzero values
+     * @param columns dimension of every nonzero value, strictly increasing within every point
+     * @param values nonzero values
+     */
+    public SparseVectors(int dimensions, int[] rowOffsets, int[] columns, double[] values) {
+        if (dimensions < 1) {
+            throw new IllegalArgumentException("dimensions needs to be at least 1");
+        }
+        if (rowOffsets == null || columns == null || values == null) {
+            throw new IllegalArgumentException("rowOffsets, columns and values cannot be null");
+        }
+        if (rowOffsets.length < 2 || rowOffsets[0] != 0) {
+            throw new IllegalArgumentException("rowOffsets needs at least 1 data point and has to start with 0");
+        }
+        if (columns.length != values.length || rowOffsets[rowOffsets.length - 1] != values.length) {
+            throw new IllegalArgumentException("columns and values need to have as many elements as the last row offset");
+        }
+        for (int i = 0; i + 1 < rowOffsets.length; i++) {
+            if (rowOffsets[i + 1] < rowOffsets[i]) {
+                throw new IllegalArgumentException("rowOffsets cannot decrease, found at point " + i);
+            }
+            for (int j = rowOffsets[i]; j < rowOffsets[i + 1]; j++) {
+                if (columns[j] < 0 || columns[j] >= dimensions || (j > rowOffsets[i] && columns[j] <= columns[j - 1])) {
+                    throw new IllegalArgumentException("columns of point " + i + " need to be strictly increasing and lower than dimensions");
+                }
+            }
+        }
+        this.dimensions = dimensions;
+        this.rowOffsets = rowOffsets;
+        this.columns = columns;
+        this.values = values;
+    }
+
+    /**
+     * Creates sparse points from dense points stored row-major, keeping only values other than 0.
+     * @param points points stored row-major, point <i>i</i> occupies indexes <i>i * dimensions</i> to <i>(i + 1) * dimensions - 1</i>
+     * @param dimensions number of values per point
+     * @return sparse points
+     */
+    public static SparseVectors fromDense(double[] points, int dimensions) {
+        if (dimensions < 1) {
+            throw new IllegalArgumentException("dimensions needs to be at least 1");
+        }
+        if (points == null || points.length % dimensions != 0) {
+            throw new IllegalArgumentException("points length needs to be a multiple of dimensions");
+        }
+        int nonZeroCount = 0;
+        for (var value : points) {
+            if (value != 0) {
+                nonZeroCount++;
+            }
+        }
+        final int n = points.length / dimensions;
+        int[] rowOffsets = new int[n + 1];
+        int[] columns = new int[nonZeroCount];
+        double[] values = new double[nonZeroCount];
+        int index = 0;
+        for (int i = 0; i < n; i++) {
+            rowOffsets[i] = index;
+            for (int j = 0; j < dimensions; j++) {
+                double value = points[i * dimensions + j];
+                if (value != 0) {
+                    columns[index] = j;
+                    values[index] = value;
+                    index++;
+                }
+            }
+        }
+        rowOffsets[n] = index;
+        return new SparseVectors(dimensions, rowOffsets, columns, values);
+    }
+
+    public int getPointCount() {
+        return rowOffsets.length - 1;
+    }
+
+    public int getDimensions() {
+        return dimensions;
+    }
+
+    /**
+     * @return number of nonzero values of all points
+     */
+    public int getNonZeroCount() {
+        return values.length;
+    }
+
+    int[] getRowOffsets() {
+        return rowOffsets;
+    }
+
+    int[] getColumns() {
+        return columns;
+    }
+
+    double[] getValues() {
+        return values;
+    }
+}
@@ -0,0 +1,133 @@
+package pl.ksitarski.simplekmeans;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.Stream;
+
+/**
+ * Online KMeans that accepts points one at a time and keeps only mean points and counts, so memory does not depend on
+ * number of accepted points. First <i>resultCount</i> accepted points become initial mean points, every next point
+ * moves its closest mean point towards itself. Points can be accepted from many threads at once and results can be
+ * read at any time.
+ */
+public class StreamingKMeans<T> {
+
+    private final StreamingKMeansBuilder.Arguments<T> arguments;
+    private final int RESULTS_COUNT;
+
+    private final AtomicReferenceArray<T> meanPoints;
+    private final MovingMeanPoint<T>[] movingMeanPoints;
+    private volatile int initializedCount = 0;
+    private final AtomicLong acceptedCount = new AtomicLong();
+
+    StreamingKMeans(StreamingKMeansBuilder.Arguments<T> args) {
+        this.arguments = args;
+        this.RESULTS_COUNT = args.getResultCount();
+        this.meanPoints = new AtomicReferenceArray<>(RESULTS_COUNT);
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        MovingMeanPoint<T>[] movingMeanPoints = new MovingMeanPoint[RESULTS_COUNT];
+        this.movingMeanPoints = movingMeanPoints;
+    }
+
+    /**
+     * Accepts single point, moving mean point closest to it.
+     * @param point accepted point
+     */
+    public void accept(T point) {
+        if (point == null) {
+            throw new IllegalArgumentException("point cannot be null");
+        }
+        acceptedCount.incrementAndGet();
+        if (initializedCount < RESULTS_COUNT && tryInitializeMeanPoint(point)) {
+            return;
+        }
+        int closest = getClosestMeanPointIndex(point);
+        var movingMeanPoint = movingMeanPoints[closest];
+        synchronized (movingMeanPoint) {
+            movingMeanPoint.moveTowards(point);
+            meanPoints.set(closest, movingMeanPoint.getMean());
+        }
+    }
+
+    /**
+     * Accepts all points in order.
+     * @param points accepted points
+     */
+    public void acceptAll(Iterable<T> points) {
+        for (var point : points) {
+            accept(point);
+        }
+    }
+
+    /**
+     * Accepts all points of a stream. Parallel streams accept points from many threads at once.
+     * @param points accepted points
+     */
+    public void acceptAll(Stream<T> points) {
+        points.forEach(this::accept);
+    }
+
+    private synchronized boolean tryInitializeMeanPoint(T point) {
+        int index = initializedCount;
+        if (index >= RESULTS_COUNT) {
+            return false;
+        }
+        movingMeanPoints[index] = new MovingMeanPoint<>(point, 1, arguments.getMeanAccumulator(), arguments.getLearningRate());
+        meanPoints.set(index, point);
+        initializedCount = index + 1;
+        return true;
+    }
+
+    private int getClosestMeanPointIndex(T point) {
+        var dataLength = arguments.getDataLength();
+        int closest = 0;
+        double distanceToClosest = Double.POSITIVE_INFINITY;
+        for (int c = 0; c < RESULTS_COUNT; c++) {
+            double distance = dataLength.getLength(meanPoints.get(c), point);
+            if (distance < distanceToClosest) {
+                closest = c;
+                distanceToClosest = distance;
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * Returns current mean points. Until <i>resultCount</i> points are accepted, the list contains only as many mean
+     * points as there were accepted points.
+     * @return list with calculated results.
+     */
+    public List<T> getCalculatedMeanPoints() {
+        int count = initializedCount;
+        List<T> result = new ArrayList<>(count);
+        for (int c = 0; c < count; c++) {
+            result.add(meanPoints.get(c));
+        }
+        return result;
+    }
+
+    /**
+     * Returns number of points assigned to every mean point so far, in the same order as calculated mean points.
+     * @return counts of assigned points
+     */
+    public long[] getAssignedCounts() {
+        int count = initializedCount;
+        long[] result = new long[count];
+        for (int c = 0; c < count; c++) {
+            synchronized (movingMeanPoints[c]) {
+                result[c] = movingMeanPoints[c].getAssignedCount();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns number of accepted points.
+     * @return number of accepted points
+     */
+    public long getAcceptedCount() {
+        return acceptedCount.get();
+    }
+}
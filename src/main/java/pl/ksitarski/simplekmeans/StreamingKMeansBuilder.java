@@ -0,0 +1,92 @@
+package pl.ksitarski.simplekmeans;
+
+import java.util.function.Supplier;
+
+public class StreamingKMeansBuilder<T> {
+
+    private final int RESULT_COUNT;
+    private final Supplier<MeanAccumulator<T>> meanAccumulator;
+    private final DataLength<T> dataLength;
+
+    private LearningRate learningRate = assignedCount -> 1.0 / assignedCount;
+
+    /**
+     * Builder constructor for StreamingKMeans
+     * @param resultCount number of result points
+     * @param meanAccumulator function that creates new, empty MeanAccumulator
+     * @param dataLength function that gives length between two points
+     */
+    public StreamingKMeansBuilder(int resultCount, Supplier<MeanAccumulator<T>> meanAccumulator, DataLength<T> dataLength) {
+        if (resultCount < 1) {
+            throw new IllegalArgumentException("resultCount needs to be at least 1");
+        }
+        if (meanAccumulator == null) {
+            throw new IllegalArgumentException("meanAccumulator cannot be null");
+        }
+        if (dataLength == null) {
+            throw new IllegalArgumentException("dataLength cannot be null");
+        }
+        this.RESULT_COUNT = resultCount;
+        this.meanAccumulator = meanAccumulator;
+        this.dataLength = dataLength;
+    }
+
+    /**
+     * Sets how far mean points move towards accepted points. Default rate 1/<i>assignedCount</i> makes every mean point
+     * the mean of all points ever assigned to it; a constant rate makes mean points follow data that changes over time.
+     * @param learningRate function that tells how far mean points move towards assigned points
+     * @return this
+     */
+    public StreamingKMeansBuilder<T> setLearningRate(LearningRate learningRate) {
+        if (learningRate == null) {
+            throw new IllegalArgumentException("learningRate cannot be null");
+        }
+        this.learningRate = learningRate;
+        return this;
+    }
+
+    /**
+     * Finishes building arguments and returns new StreamingKMeans object
+     * @return finished arguments
+     */
+    public StreamingKMeans<T> build() {
+        return new StreamingKMeans<>(buildArgs());
+    }
+
+
+    private Arguments<T> buildArgs() {
+        return new Arguments<>(RESULT_COUNT, meanAccumulator, dataLength, learningRate);
+    }
+
+    static class Arguments<T> {
+
+        private final int RESULT_COUNT;
+        private final Supplier<MeanAccumulator<T>> meanAccumulator;
+        private final DataLength<T> dataLength;
+        private final LearningRate learningRate;
+
+        private Arguments(int resultCount, Supplier<MeanAccumulator<T>> meanAccumulator, DataLength<T> dataLength, LearningRate learningRate) {
+            this.RESULT_COUNT = resultCount;
+            this.meanAccumulator = meanAccumulator;
+            this.dataLength = dataLength;
+            this.learningRate = learningRate;
+        }
+
+        int getResultCount() {
+            return RESULT_COUNT;
+        }
+
+        Supplier<MeanAccumulator<T>> getMeanAccumulator() {
+            return meanAccumulator;
+        }
+
+        DataLength<T> getDataLength() {
+            return dataLength;
+        }
+
+        LearningRate getLearningRate() {
+            return learningRate;
+        }
+    }
+
+}
@@ -0,0 +1,275 @@
+package pl.ksitarski.simplekmeans;
+
+import java.util.List;
+
+/**
+ * Exact assignment of points to closest mean points that skips most length calculations using triangle inequality,
+ * so DataLength needs to be a metric. For every point it keeps a lower bound of lengths to other mean points, which is
+ * lowered by the distance mean points moved after each iteration. Length to the assigned mean point is always
+ * calculated, so lengths stay exact.
+ * <br>
+ * For small result counts a single lower bound to the second closest mean point is kept (Hamerly's algorithm), for
+ * bigger ones one lower bound per mean point (Elkan's algorithm), which skips more calculations for more memory.
+ */
+class TriangleInequalityBounds<T> {
+
+    private static final int ELKAN_MIN_RESULT_COUNT = 20;
+    private static final long ELKAN_MAX_BOUNDS = 1L << 26;
+
+    private final List<T> inputPoints;
+    private final int resultCount;
+    private final DataLength<T> dataLength;
+    private final ParallelRunner parallelRunner;
+    private final IterationCounters counters;
+    private final boolean elkan;
+
+    private boolean initialized = false;
+    private final double[] lowerBounds;
+    private final double[] halfMinMeanLengths;
+    private final double[] halfMeanLengths;
+    private final double[] meanDrifts;
+
+    TriangleInequalityBounds(List<T> inputPoints, int resultCount, DataLength<T> dataLength, ParallelRunner parallelRunner,
+                             IterationCounters counters) {
+        this.inputPoints = inputPoints;
+        this.resultCount = resultCount;
+        this.dataLength = dataLength;
+        this.parallelRunner = parallelRunner;
+        this.counters = counters;
+        this.elkan = resultCount >= ELKAN_MIN_RESULT_COUNT && (long) inputPoints.size() * resultCount <= ELKAN_MAX_BOUNDS;
+        this.lowerBounds = new double[elkan ? inputPoints.size() * resultCount : inputPoints.size()];
+        this.halfMinMeanLengths = new double[resultCount];
+        this.halfMeanLengths = elkan ? new double[resultCount * resultCount] : null;
+        this.meanDrifts = new double[resultCount];
+    }
+
+    /**
+     * Assigns all points to their closest mean points, writing results to <i>labels</i> and <i>lengths</i>.
+     */
+    void assign(List<T> meanPoints, int[] labels, double[] lengths) {
+        calculateMeanLengths(meanPoints);
+        final boolean first = !initialized;
+        parallelRunner.forEachChunk(inputPoints.size(), (chunk, from, to) -> {
+            long lengthCalculations = 0;
+            int changedPoints = 0;
+            for (int i = from; i < to; i++) {
+                int oldLabel = labels[i];
+                if (first) {
+                    lengthCalculations += assignFully(meanPoints, labels, lengths, i);
+                } else if (elkan) {
+                    lengthCalculations += assignElkan(meanPoints, labels, lengths, i);
+                } else {
+                    lengthCalculations += assignHamerly(meanPoints, labels, lengths, i);
+                }
+                if (first || labels[i] != oldLabel) {
+                    changedPoints++;
+                }
+            }
+            counters.addPointLengthCalculations(lengthCalculations);
+            counters.changedPoints.add(changedPoints);
+        });
+        initialized = true;
+    }
+
+    /**
+     * Takes over bounds of kept points from <i>previous</i>, which needs to have ended with the same mean points, and
+     * assigns new points without using bounds. Labels and lengths of kept points need to be taken over already.
+     * @param previousIndexes index of every point in input points of <i>previous</i>, or -1 for new points
+     * @return false if nothing was taken over, because <i>previous</i> never assigned points or kept another kind of bounds
+     */
+    boolean continueFrom(TriangleInequalityBounds<T> previous, int[] previousIndexes, List<T> meanPoints, int[] labels, double[] lengths) {
+        if (!previous.initialized || previous.elkan != elkan) {
+            return false;
+        }
+        final int boundsPerPoint = elkan ? resultCount : 1;
+        parallelRunner.forEachChunk(inputPoints.size(), (chunk, from, to) -> {
+            for (int i = from; i < to; i++) {
+                if (previousIndexes[i] < 0) {
+                    assignFully(meanPoints, labels, lengths, i);
+                } else {
+                    System.arraycopy(previous.lowerBounds, previousIndexes[i] * boundsPerPoint, lowerBounds, i * boundsPerPoint, boundsPerPoint);
+                }
+            }
+        });
+        initialized = true;
+        return true;
+    }
+
+    /**
+     * Lowers bounds by the distance every mean point moved. Needs to be called whenever mean points change.
+     * @return biggest distance any mean point moved
+     */
+    double onMeanPointsChanged(List<T> oldMeanPoints, List<T> newMeanPoints, int[] labels) {
+        if (!initialized) {
+            throw new IllegalStateException("Mean points cannot change before first assignment");
+        }
+        double maxDrift = 0;
+        int maxDriftIndex = -1;
+        double secondMaxDrift = 0;
+        for (int c = 0; c < resultCount; c++) {
+            var oldMean = oldMeanPoints.get(c);
+            var newMean = newMeanPoints.get(c);
+            if (oldMean == newMean) {
+                meanDrifts[c] = 0;
+            } else {
+                meanDrifts[c] = dataLength.getLength(oldMean, newMean);
+                counters.lengthCalculations.increment();
+            }
+            if (meanDrifts[c] > maxDrift) {
+                secondMaxDrift = maxDrift;
+                maxDrift = meanDrifts[c];
+                maxDriftIndex = c;
+            } else if (meanDrifts[c] > secondMaxDrift) {
+                secondMaxDrift = meanDrifts[c];
+            }
+        }
+        final double finalMaxDrift = maxDrift;
+        final int finalMaxDriftIndex = maxDriftIndex;
+        final double finalSecondMaxDrift = secondMaxDrift;
+        parallelRunner.forEachChunk(inputPoints.size(), (chunk, from, to) -> {
+            for (int i = from; i < to; i++) {
+                if (elkan) {
+                    final int offset = i * resultCount;
+                    for (int c = 0; c < resultCount; c++) {
+                        lowerBounds[offset + c] = Math.max(0, lowerBounds[offset + c] - meanDrifts[c]);
+                    }
+                } else {
+                    double drift = labels[i] == finalMaxDriftIndex ? finalSecondMaxDrift : finalMaxDrift;
+                    lowerBounds[i] = Math.max(0, lowerBounds[i] - drift);
+                }
+            }
+        });
+        return maxDrift;
+    }
+
+    /**
+     * Calculates half of the length from every mean point to the closest other one and, for Elkan's algorithm, half of
+     * lengths between all pairs of mean points.
+     */
+    private void calculateMeanLengths(List<T> meanPoints) {
+        if (!initialized) {
+            return;
+        }
+        counters.lengthCalculations.add(elkan ? resultCount * (resultCount - 1L) / 2 : resultCount * (resultCount - 1L));
+        if (elkan) {
+            parallelRunner.forEachChunk(resultCount, (chunk, from, to) -> {
+                for (int a = from; a < to; a++) {
+                    for (int b = a + 1; b < resultCount; b++) {
+                        double halfLength = dataLength.getLength(meanPoints.get(a), meanPoints.get(b)) / 2;
+                        halfMeanLengths[a * resultCount + b] = halfLength;
+                        halfMeanLengths[b * resultCount + a] = halfLength;
+                    }
+                }
+            });
+            for (int a = 0; a < resultCount; a++) {
+                double min = Double.POSITIVE_INFINITY;
+                for (int b = 0; b < resultCount; b++) {
+                    if (a != b) {
+                        min = Math.min(min, halfMeanLengths[a * resultCount + b]);
+                    }
+                }
+                halfMinMeanLengths[a] = min;
+            }
+        } else {
+            parallelRunner.forEachChunk(resultCount, (chunk, from, to) -> {
+                for (int a = from; a < to; a++) {
+                    double min = Double.POSITIVE_INFINITY;
+                    for (int b = 0; b < resultCount; b++) {
+                        if (a != b) {
+                            min = Math.min(min, dataLength.getLength(meanPoints.get(a), meanPoints.get(b)));
+                        }
+                    }
+                    halfMinMeanLengths[a] = min / 2;
+                }
+            });
+        }
+    }
+
+    /**
+     * Assigns point without using bounds and initializes its bounds. Returns number of calculated lengths, as do other
+     * assign methods.
+     */
+    private int assignFully(List<T> meanPoints, int[] labels, double[] lengths, int i) {
+        var point = inputPoints.get(i);
+        int closest = 0;
+        double closestLength = Double.POSITIVE_INFINITY;
+        double secondClosestLength = Double.POSITIVE_INFINITY;
+        for (int c = 0; c < resultCount; c++) {
+            double length = dataLength.getLength(meanPoints.get(c), point);
+            if (elkan) {
+                lowerBounds[i * resultCount + c] = length;
+            }
+            if (length < closestLength) {
+                secondClosestLength = closestLength;
+                closestLength = length;
+                closest = c;
+            } else if (length < secondClosestLength) {
+                secondClosestLength = length;
+            }
+        }
+        labels[i] = closest;
+        lengths[i] = closestLength;
+        if (!elkan) {
+            lowerBounds[i] = secondClosestLength;
+        }
+        return resultCount;
+    }
+
+    private int assignHamerly(List<T> meanPoints, int[] labels, double[] lengths, int i) {
+        var point = inputPoints.get(i);
+        int label = labels[i];
+        double upperBound = dataLength.getLength(meanPoints.get(label), point);
+        if (upperBound < Math.max(halfMinMeanLengths[label], lowerBounds[i])) {
+            lengths[i] = upperBound;
+            return 1;
+        }
+        int closest = label;
+        double closestLength = upperBound;
+        double secondClosestLength = Double.POSITIVE_INFINITY;
+        for (int c = 0; c < resultCount; c++) {
+            if (c == label) {
+                continue;
+            }
+            double length = dataLength.getLength(meanPoints.get(c), point);
+            if (length < closestLength || (length == closestLength && c < closest)) {
+                secondClosestLength = closestLength;
+                closestLength = length;
+                closest = c;
+            } else if (length < secondClosestLength) {
+                secondClosestLength = length;
+            }
+        }
+        labels[i] = closest;
+        lengths[i] = closestLength;
+        lowerBounds[i] = secondClosestLength;
+        return resultCount;
+    }
+
+    private int assignElkan(List<T> meanPoints, int[] labels, double[] lengths, int i) {
+        var point = inputPoints.get(i);
+        final int offset = i * resultCount;
+        int closest = labels[i];
+        double closestLength = dataLength.getLength(meanPoints.get(closest), point);
+        int lengthCalculations = 1;
+        lowerBounds[offset + closest] = closestLength;
+        if (closestLength >= halfMinMeanLengths[closest]) {
+            for (int c = 0; c < resultCount; c++) {
+                if (c == closest
+                        || closestLength < lowerBounds[offset + c]
+                        || closestLength < halfMeanLengths[closest * resultCount + c]) {
+                    continue;
+                }
+                double length = dataLength.getLength(meanPoints.get(c), point);
+                lengthCalculations++;
+                lowerBounds[offset + c] = length;
+                if (length < closestLength || (length == closestLength && c < closest)) {
+                    closestLength = length;
+                    closest = c;
+                }
+            }
+        }
+        labels[i] = closest;
+        lengths[i] = closestLength;
+        return lengthCalculations;
+    }
+}
@@ -0,0 +1,110 @@
+package pl.ksitarski.simplekmeans;
+
+import java.util.Arrays;
+
+/**
+ * Vantage-point tree over a fixed set of points, for exact nearest neighbour search under a metric. Every node splits
+ * remaining points by the median of their lengths to the node point; a search skips the half that, by triangle
+ * inequality, cannot contain anything closer than the best point found so far. Nodes are kept in flat arrays, and
+ * search state is kept per thread, so searching does not allocate.
+ */
+class VantagePointTree<T> {
+
+    private final T[] points;
+    private final DataLength<T> dataLength;
+
+    private final int[] nodePoints;
+    private final double[] thresholds;
+    private final int[] insideChildren;
+    private final int[] outsideChildren;
+    private int nodeCount = 0;
+
+    private final ThreadLocal<Search> searches = ThreadLocal.withInitial(Search::new);
+
+    VantagePointTree(T[] points, DataLength<T> dataLength) {
+        this.points = points;
+        this.dataLength = dataLength;
+        this.nodePoints = new int[points.length];
+        this.thresholds = new double[points.length];
+        this.insideChildren = new int[points.length];
+        this.outsideChildren = new int[points.length];
+        int[] indexes = new int[points.length];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = i;
+        }
+        build(indexes, 0, indexes.length, new double[points.length]);
+    }
+
+    /**
+     * Builds node for points with indexes <i>indexes[from..to)</i>, using the first of them as node point.
+     * @return index of the node, or -1 for no points
+     */
+    private int build(int[] indexes, int from, int to, double[] lengths) {
+        if (from >= to) {
+            return -1;
+        }
+        final int node = nodeCount++;
+        final int nodePoint = indexes[from];
+        nodePoints[node] = nodePoint;
+        if (to - from == 1) {
+            insideChildren[node] = -1;
+            outsideChildren[node] = -1;
+            return node;
+        }
+        for (int i = from + 1; i < to; i++) {
+            lengths[indexes[i]] = dataLength.getLength(points[nodePoint], points[indexes[i]]);
+        }
+        //sort remaining indexes by length to node point
+        Integer[] sorted = new Integer[to - from - 1];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = indexes[from + 1 + i];
+        }
+        Arrays.sort(sorted, (a, b) -> Double.compare(lengths[a], lengths[b]));
+        for (int i = 0; i < sorted.length; i++) {
+            indexes[from + 1 + i] = sorted[i];
+        }
+        final int middle = from + 1 + sorted.length / 2;
+        //points before middle are inside: not further than threshold, points from middle are outside: not closer
+        thresholds[node] = lengths[indexes[middle]];
+        insideChildren[node] = build(indexes, from + 1, middle, lengths);
+        outsideChildren[node] = build(indexes, middle, to, lengths);
+        return node;
+    }
+
+    int findClosest(T point) {
+        var search = searches.get();
+        search.closest = -1;
+        search.closestLength = Double.POSITIVE_INFINITY;
+        search(0, point, search);
+        return search.closest;
+    }
+
+    private void search(int node, T point, Search search) {
+        if (node < 0) {
+            return;
+        }
+        final int nodePoint = nodePoints[node];
+        final double length = dataLength.getLength(points[nodePoint], point);
+        if (length < search.closestLength || (length == search.closestLength && nodePoint < search.closest)) {
+            search.closest = nodePoint;
+            search.closestLength = length;
+        }
+        final double threshold = thresholds[node];
+        if (length < threshold) {
+            search(insideChildren[node], point, search);
+            if (length + search.closestLength >= threshold) {
+                search(outsideChildren[node], point, search);
+            }
+        } else {
+            search(outsideChildren[node], point, search);
+            if (length - search.closestLength <= threshold) {
+                search(insideChildren[node], point, search);
+            }
+        }
+    }
+
+    private static class Search {
+        private int closest;
+        private double closestLength;
+    }
+}
@@ -0,0 +1,146 @@
+package pl.ksitarski.simplekmeans;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * DistanceKernels using the Vector API. Every mean point is accumulated in full vector lanes, with a scalar tail for
+ * dimensions that do not fill a whole vector.
+ */
+class VectorDistanceKernels implements DistanceKernels {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public void squaredEuclidean(double[] point, int pointOffset, double[] means, int meanCount, int dimensions, double[] out) {
+        for (int c = 0; c < meanCount; c++) {
+            out[c] = squaredEuclidean(point, pointOffset, means, c * dimensions, dimensions);
+        }
+    }
+
+    @Override
+    public double squaredEuclidean(double[] point, int pointOffset, double[] means, int meanOffset, int dimensions) {
+        final int upperBound = SPECIES.loopBound(dimensions);
+        var sums = DoubleVector.zero(SPECIES);
+        int j = 0;
+        for (; j < upperBound; j += SPECIES.length()) {
+            var diff = DoubleVector.fromArray(SPECIES, point, pointOffset + j)
+                    .sub(DoubleVector.fromArray(SPECIES, means, meanOffset + j));
+            sums = diff.fma(diff, sums);
+        }
+        double sum = sums.reduceLanes(VectorOperators.ADD);
+        for (; j < dimensions; j++) {
+            double diff = point[pointOffset + j] - means[meanOffset + j];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    @Override
+    public void manhattan(double[] point, int pointOffset, double[] means, int meanCount, int dimensions, double[] out) {
+        final int upperBound = SPECIES.loopBound(dimensions);
+        for (int c = 0; c < meanCount; c++) {
+            final int meanOffset = c * dimensions;
+            var sums = DoubleVector.zero(SPECIES);
+            int j = 0;
+            for (; j < upperBound; j += SPECIES.length()) {
+                var diff = DoubleVector.fromArray(SPECIES, point, pointOffset + j)
+                        .sub(DoubleVector.fromArray(SPECIES, means, meanOffset + j));
+                sums = sums.add(diff.abs());
+            }
+            double sum = sums.reduceLanes(VectorOperators.ADD);
+            for (; j < dimensions; j++) {
+                sum += Math.abs(point[pointOffset + j] - means[meanOffset + j]);
+            }
+            out[c] = sum;
+        }
+    }
+
+    @Override
+    public void dot(double[] point, int pointOffset, double[] means, int meanCount, int dimensions, double[] out) {
+        final int upperBound = SPECIES.loopBound(dimensions);
+        for (int c = 0; c < meanCount; c++) {
+            final int meanOffset = c * dimensions;
+            var sums = DoubleVector.zero(SPECIES);
+            int j = 0;
+            for (; j < upperBound; j += SPECIES.length()) {
+                sums = DoubleVector.fromArray(SPECIES, point, pointOffset + j)
+                        .fma(DoubleVector.fromArray(SPECIES, means, meanOffset + j), sums);
+            }
+            double sum = sums.reduceLanes(VectorOperators.ADD);
+            for (; j < dimensions; j++) {
+                sum += point[pointOffset + j] * means[meanOffset + j];
+            }
+            out[c] = sum;
+        }
+    }
+
+    @Override
+    public void dots(double[] points, int pointOffset, int pointCount, double[] means, int meanOffset, int meanCount, int dimensions, double[] out) {
+        final int upperBound = SPECIES.loopBound(dimensions);
+        int p = 0;
+        for (; p + 1 < pointCount; p += 2) {
+            final int p0 = pointOffset + p * dimensions;
+            final int p1 = p0 + dimensions;
+            int c = 0;
+            for (; c + 1 < meanCount; c += 2) {
+                final int c0 = meanOffset + c * dimensions;
+                final int c1 = c0 + dimensions;
+                var s00 = DoubleVector.zero(SPECIES);
+                var s01 = DoubleVector.zero(SPECIES);
+                var s10 = DoubleVector.zero(SPECIES);
+                var s11 = DoubleVector.zero(SPECIES);
+                int j = 0;
+                for (; j < upperBound; j += SPECIES.length()) {
+                    var x0 = DoubleVector.fromArray(SPECIES, points, p0 + j);
+                    var x1 = DoubleVector.fromArray(SPECIES, points, p1 + j);
+                    var m0 = DoubleVector.fromArray(SPECIES, means, c0 + j);
+                    var m1 = DoubleVector.fromArray(SPECIES, means, c1 + j);
+                    s00 = x0.fma(m0, s00);
+                    s01 = x0.fma(m1, s01);
+                    s10 = x1.fma(m0, s10);
+                    s11 = x1.fma(m1, s11);
+                }
+                double sum00 = s00.reduceLanes(VectorOperators.ADD);
+                double sum01 = s01.reduceLanes(VectorOperators.ADD);
+                double sum10 = s10.reduceLanes(VectorOperators.ADD);
+                double sum11 = s11.reduceLanes(VectorOperators.ADD);
+                for (; j < dimensions; j++) {
+                    sum00 += points[p0 + j] * means[c0 + j];
+                    sum01 += points[p0 + j] * means[c1 + j];
+                    sum10 += points[p1 + j] * means[c0 + j];
+                    sum11 += points[p1 + j] * means[c1 + j];
+                }
+                out[p * meanCount + c] = sum00;
+                out[p * meanCount + c + 1] = sum01;
+                out[(p + 1) * meanCount + c] = sum10;
+                out[(p + 1) * meanCount + c + 1] = sum11;
+            }
+            if (c < meanCount) {
+                dot(points, p0, means, meanOffset + c * dimensions, dimensions, out, p * meanCount + c);
+                dot(points, p1, means, meanOffset + c * dimensions, dimensions, out, (p + 1) * meanCount + c);
+            }
+        }
+        if (p < pointCount) {
+            for (int c = 0; c < meanCount; c++) {
+                dot(points, pointOffset + p * dimensions, means, meanOffset + c * dimensions, dimensions, out, p * meanCount + c);
+            }
+        }
+    }
+
+    private static void dot(double[] points, int pointOffset, double[] means, int meanOffset, int dimensions, double[] out, int outIndex) {
+        final int upperBound = SPECIES.loopBound(dimensions);
+        var sums = DoubleVector.zero(SPECIES);
+        int j = 0;
+        for (; j < upperBound; j += SPECIES.length()) {
+            sums = DoubleVector.fromArray(SPECIES, points, pointOffset + j)
+                    .fma(DoubleVector.fromArray(SPECIES, means, meanOffset + j), sums);
+        }
+        double sum = sums.reduceLanes(VectorOperators.ADD);
+        for (; j < dimensions; j++) {
+            sum += points[pointOffset + j] * means[meanOffset + j];
+        }
+        out[outIndex] = sum;
+    }
+}
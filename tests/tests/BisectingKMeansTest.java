@@ -0,0 +1,94 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+import pl.ksitarski.simplekmeans.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BisectingKMeansTest {
+
+    private final int COUNT = 100;
+    private final int BIG_COUNT = 20000; //should be bigger than 100
+    private final int THREAD_COUNT = 4;
+
+    @Test
+    void splitsIntoResultCountClustersTest() {
+        var sample = KMeansTest.getSample(BIG_COUNT);
+        var bisecting = new BisectingKMeansBuilder<>(sample, COUNT, KMeansTest.getDataToMean(), KMeansTest.getDataLength())
+                .setThreadCount(THREAD_COUNT)
+                .build()
+                .run();
+        var clusters = bisecting.getClusters();
+        assertEquals(COUNT, clusters.size());
+        assertEquals(1.0, bisecting.getProgress());
+        int sum = 0;
+        for (var cluster : clusters) {
+            assertTrue(cluster.getSize() > 0);
+            assertEquals(cluster.getSize(), cluster.getPoints().size());
+            sum += cluster.getSize();
+        }
+        assertEquals(BIG_COUNT, sum);
+
+        var single = new BisectingKMeansBuilder<>(sample, 1, KMeansTest.getDataToMean(), KMeansTest.getDataLength()).build().run();
+        assertTrue(bisecting.getInertia() < single.getInertia() / 10);
+    }
+
+    @Test
+    void centroidTreeTest() {
+        var sample = KMeansTest.getSample(BIG_COUNT);
+        var bisecting = new BisectingKMeansBuilder<>(sample, COUNT, KMeansTest.getDataToMean(), KMeansTest.getDataLength())
+                .setSeed(5)
+                .build()
+                .run();
+        var tree = bisecting.getCentroidTree();
+        assertEquals(COUNT, tree.getLeafCount());
+        assertTrue(tree.getDepth() >= 7);
+        assertEquals(BIG_COUNT, tree.getRoot().getSize());
+
+        //points mostly descend to the clusters they were split into
+        var clusters = bisecting.getClusters();
+        int matching = 0;
+        for (int c = 0; c < clusters.size(); c++) {
+            for (var point : clusters.get(c).getPoints()) {
+                if (tree.predict(point) == c) {
+                    matching++;
+                }
+            }
+        }
+        assertTrue(matching > BIG_COUNT * 0.9);
+    }
+
+    @Test
+    void sameResultsForAnyThreadCountTest() {
+        var sample = KMeansTest.getSample(BIG_COUNT);
+        var sequential = new BisectingKMeansBuilder<>(sample, COUNT, KMeansTest.getDataToMean(), KMeansTest.getDataLength())
+                .setSeed(11)
+                .build()
+                .run();
+        var parallel = new BisectingKMeansBuilder<>(sample, COUNT, KMeansTest.getDataToMean(), KMeansTest.getDataLength())
+                .setSeed(11)
+                .setThreadCount(THREAD_COUNT)
+                .build()
+                .run();
+        assertEquals(sequential.getCalculatedMeanPoints(), parallel.getCalculatedMeanPoints());
+    }
+
+    @Test
+    void identicalPointsTest() {
+        List<ExampleData> sample = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            sample.add(new ExampleData(1, 1));
+            sample.add(new ExampleData(5, 5));
+            sample.add(new ExampleData(-3, 8));
+        }
+        var bisecting = new BisectingKMeansBuilder<>(sample, 10, KMeansTest.getDataToMean(), KMeansTest.getDataLength()).build().run();
+        assertEquals(3, bisecting.getClusters().size());
+        assertEquals(0.0, bisecting.getInertia());
+        assertThrows(RuntimeException.class, bisecting::run);
+    }
+}
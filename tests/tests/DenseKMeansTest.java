@@ -0,0 +1,249 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pl.ksitarski.simplekmeans.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DenseKMeansTest {
+
+    private final int COUNT = 10; //must be bigger than 1
+    private final int BIG_COUNT = 20000; //should be bigger than 100
+    private final int THREAD_COUNT = 4;
+
+    @Test
+    void simplePredefinedSampleTest() {
+        double[] points = {2, 3, 1, -1, 4, 5, -2, 0, 54, -65, 33, 54};
+        var kMeans = new DenseKMeansBuilder(points, 2, points.length / 2).build();
+        kMeans.iterate(50);
+        var results = kMeans.getCalculatedMeanPoints();
+
+        for (int i = 0; i < points.length; i += 2) {
+            assertTrue(containsPoint(results, new double[]{points[i], points[i + 1]}));
+        }
+    }
+
+    @Test
+    void sameResultsAsGenericTest() {
+        List<ExampleData> genericPoints = new ArrayList<>();
+        double[] densePoints = new double[3 * 50 * 2];
+        double[][] centers = {{-30, -30}, {0, 30}, {30, -10}};
+        int index = 0;
+        for (var center : centers) {
+            for (int i = 0; i < 50; i++) {
+                var noise = new ExampleData();
+                double x = center[0] + noise.getValue1() / 25.0;
+                double y = center[1] + noise.getValue2() / 25.0;
+                genericPoints.add(new ExampleData(x, y));
+                densePoints[index++] = x;
+                densePoints[index++] = y;
+            }
+        }
+
+        //both runs start from the first point of every blob, so they cannot end in different local minima
+        List<ExampleData> initialMeanPoints = new ArrayList<>();
+        double[] denseInitialMeanPoints = new double[centers.length * 2];
+        for (int c = 0; c < centers.length; c++) {
+            var point = genericPoints.get(c * 50);
+            initialMeanPoints.add(point);
+            denseInitialMeanPoints[c * 2] = point.getValue1();
+            denseInitialMeanPoints[c * 2 + 1] = point.getValue2();
+        }
+
+        var generic = new KMeansBuilder<>(genericPoints, centers.length, KMeansTest.getDataToMean(), KMeansTest.getDataLength())
+                .setInitialMeanPoints(initialMeanPoints)
+                .build();
+        generic.iterateUntilStandardDeviationDeltaSmallerOrEqualTo(0.0, 1000);
+        var dense = new DenseKMeansBuilder(densePoints, 2, centers.length)
+                .setInitialMeanPoints(denseInitialMeanPoints)
+                .build();
+        dense.iterateUntilStandardDeviationDeltaSmallerOrEqualTo(0.0, 1000);
+
+        assertEquals(generic.getStandardDeviation(), dense.getStandardDeviation(), 1e-9);
+        for (var mean : generic.getCalculatedMeanPoints()) {
+            assertTrue(containsPoint(dense.getCalculatedMeanPoints(), new double[]{mean.getValue1(), mean.getValue2()}));
+        }
+        for (var center : centers) {
+            assertTrue(dense.getCalculatedMeanPoints().stream().anyMatch(mean -> Math.abs(mean[0] - center[0]) < 10 && Math.abs(mean[1] - center[1]) < 10));
+        }
+    }
+
+    @Test
+    void multithreadedTest() {
+        double[] points = getBigCorrectSample();
+        var kMeans = new DenseKMeansBuilder(points, 2, COUNT).setThreadCount(THREAD_COUNT).build();
+        kMeans.iterate(5);
+        double stdDevBefore = kMeans.getStandardDeviation();
+        kMeans.iterate(10);
+        double stdDevAfter = kMeans.getStandardDeviation();
+        assertTrue(stdDevBefore > stdDevAfter);
+
+        int sum = 0;
+        for (var size : kMeans.getClusterSizes()) {
+            sum += size;
+        }
+        assertEquals(BIG_COUNT, sum);
+    }
+
+    @Test
+    void floatInputTest() {
+        float[] points = {1, 1, 1, 1, 9, 9, 9, 9};
+        var kMeans = new DenseKMeansBuilder(points, 2, 1).build();
+        kMeans.iterate(1);
+        assertArrayEquals(new double[]{5, 5}, kMeans.getCalculatedMeanPoints().get(0), 1e-9);
+    }
+
+    @Test
+    void mappedPointSourceTest(@TempDir Path directory) throws IOException {
+        double[] points = getBigCorrectSample();
+        var doubleFile = directory.resolve("points.f64");
+        var floatFile = directory.resolve("points.f32");
+        var doubleBytes = ByteBuffer.allocate(points.length * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        var floatBytes = ByteBuffer.allocate(points.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (var value : points) {
+            doubleBytes.putDouble(value);
+            floatBytes.putFloat((float) value);
+        }
+        Files.write(doubleFile, doubleBytes.array());
+        Files.write(floatFile, floatBytes.array());
+
+        var doubleSource = MappedPointSource.open(doubleFile, 2, MappedPointSource.ValueType.DOUBLE, ByteOrder.LITTLE_ENDIAN);
+        var floatSource = MappedPointSource.open(floatFile, 2, MappedPointSource.ValueType.FLOAT, ByteOrder.LITTLE_ENDIAN);
+        assertEquals(BIG_COUNT, doubleSource.getPointCount());
+        double[] buffer = new double[4];
+        doubleSource.read(10, 12, buffer);
+        assertArrayEquals(Arrays.copyOfRange(points, 20, 24), buffer);
+        floatSource.read(10, 12, buffer);
+        assertArrayEquals(Arrays.copyOfRange(points, 20, 24), buffer, 1e-4);
+
+        for (var source : List.of(doubleSource, floatSource)) {
+            var kMeans = new DenseKMeansBuilder(source, COUNT).setThreadCount(THREAD_COUNT).build();
+            kMeans.iterate(5);
+            double stdDevBefore = kMeans.getStandardDeviation();
+            kMeans.iterate(10);
+            assertTrue(stdDevBefore > kMeans.getStandardDeviation());
+        }
+    }
+
+    @Test
+    void denseDistanceTest() {
+        double[] a = {1, -2, 3, 0, 5, 6, 7, 8, 9};
+        double[] b = {2, 2, -3, 1, 5, 0, 7, 1, 1};
+        double squared = 0, manhattan = 0, dot = 0, normA = 0, normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            squared += (a[i] - b[i]) * (a[i] - b[i]);
+            manhattan += Math.abs(a[i] - b[i]);
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        assertEquals(squared, DenseDistance.SQUARED_EUCLIDEAN.getLength(a, b), 1e-9);
+        assertEquals(manhattan, DenseDistance.MANHATTAN.getLength(a, b), 1e-9);
+        assertEquals(1 - dot / Math.sqrt(normA * normB), DenseDistance.COSINE.getLength(a, b), 1e-9);
+        assertEquals(1, DenseDistance.COSINE.getLength(a, new double[a.length]));
+
+        assertThrows(IllegalArgumentException.class, () -> DenseDistance.MANHATTAN.getLength(a, new double[a.length - 1]));
+
+        //arithmetic means do not minimize every length, so only check that points go to the closest mean point
+        double[] points = getBigCorrectSample();
+        for (var distance : DenseDistance.values()) {
+            var kMeans = new DenseKMeansBuilder(points, 2, COUNT).setDistance(distance).setSeed(11).setThreadCount(THREAD_COUNT).build();
+            kMeans.iterate(5);
+            var means = kMeans.getCalculatedMeanPoints();
+            kMeans.iterate(1);
+            int[] sizes = new int[COUNT];
+            for (int i = 0; i < BIG_COUNT; i++) {
+                double[] point = {points[i * 2], points[i * 2 + 1]};
+                int closest = 0;
+                for (int c = 1; c < COUNT; c++) {
+                    if (distance.getLength(point, means.get(c)) < distance.getLength(point, means.get(closest))) {
+                        closest = c;
+                    }
+                }
+                sizes[closest]++;
+            }
+            assertArrayEquals(sizes, kMeans.getClusterSizes());
+            assertEquals(BIG_COUNT, Arrays.stream(kMeans.getClusterSizes()).sum());
+        }
+    }
+
+    @Test
+    void blockedAssignmentTest() {
+        //enough mean points and dimensions for tiled assignment
+        final int d = 16;
+        final int k = 40;
+        final int n = 4000;
+        var random = new Random(7);
+        double[] points = new double[n * d];
+        for (int i = 0; i < n; i++) {
+            int center = random.nextInt(k);
+            for (int j = 0; j < d; j++) {
+                points[i * d + j] = (center * 31 + j * 17) % 100 + random.nextGaussian();
+            }
+        }
+        var kMeans = new DenseKMeansBuilder(points, d, k).setSeed(3).setThreadCount(THREAD_COUNT).build();
+        kMeans.iterateUntilStandardDeviationDeltaSmallerOrEqualTo(0.0, 100);
+        var means = kMeans.getCalculatedMeanPoints();
+
+        //once mean points stopped moving, clusters are the same as assigned by a plain scan
+        int[] sizes = new int[k];
+        double lengthSum = 0;
+        for (int i = 0; i < n; i++) {
+            int closest = 0;
+            double closestLength = Double.POSITIVE_INFINITY;
+            for (int c = 0; c < k; c++) {
+                double length = 0;
+                for (int j = 0; j < d; j++) {
+                    double diff = points[i * d + j] - means.get(c)[j];
+                    length += diff * diff;
+                }
+                if (length < closestLength) {
+                    closest = c;
+                    closestLength = length;
+                }
+            }
+            sizes[closest]++;
+            lengthSum += closestLength;
+        }
+        assertArrayEquals(sizes, kMeans.getClusterSizes());
+        assertEquals(lengthSum / n, kMeans.getStandardDeviation(), 1e-9);
+    }
+
+    private static boolean containsPoint(List<double[]> points, double[] point) {
+        for (var candidate : points) {
+            boolean same = true;
+            for (int i = 0; i < point.length; i++) {
+                if (Math.abs(candidate[i] - point[i]) > 1e-9) {
+                    same = false;
+                    break;
+                }
+            }
+            if (same) return true;
+        }
+        return false;
+    }
+
+    private double[] getBigCorrectSample() {
+        double[] data = new double[BIG_COUNT * 2];
+        for (int i = 0; i < BIG_COUNT; i++) {
+            var point = new ExampleData();
+            data[i * 2] = point.getValue1();
+            data[i * 2 + 1] = point.getValue2();
+        }
+        return data;
+    }
+}
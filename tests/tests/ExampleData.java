@@ -44,6 +44,11 @@ public class ExampleData {
         return false;
     }
 
+    @Override
+    public int hashCode() {
+        return 31 * Double.hashCode(value1) + Double.hashCode(value2);
+    }
+
     private static Random random;
 
     private static double getRandomDouble() {
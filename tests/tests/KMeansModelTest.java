@@ -0,0 +1,58 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+import pl.ksitarski.simplekmeans.*;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KMeansModelTest {
+
+    private final int COUNT = 10; //must be bigger than 1
+    private final int BIG_COUNT = 20000; //should be bigger than 100
+
+    @Test
+    void predictMatchesLabelsTest() {
+        var sample = KMeansTest.getSample(BIG_COUNT);
+        var kMeans = new KMeansBuilder<>(sample, COUNT, KMeansTest.getDataToMean(), KMeansTest.getDataLength()).build();
+        kMeans.iterateUntilConverged(new ConvergenceCriteria().setMaxChangedPointsFraction(0.0).setMaxIterations(500));
+        //labels come from mean points before the last move, which converged, so they did not change
+        var model = kMeans.getModel(false);
+        int[] predicted = new int[sample.size()];
+        model.predict(sample, predicted);
+        assertArrayEquals(kMeans.getLabels(), predicted);
+        assertEquals(COUNT, model.getSize());
+        assertEquals(kMeans.getCalculatedMeanPoints(), model.getMeanPoints());
+    }
+
+    @Test
+    void indexedModelTest() {
+        var meanPoints = KMeansTest.getSample(1000);
+        AtomicLong lengthCalculations = new AtomicLong();
+        DataLength<ExampleData> metric = (obj1, obj2) -> {
+            lengthCalculations.incrementAndGet();
+            return Math.hypot(obj1.getValue1() - obj2.getValue1(), obj1.getValue2() - obj2.getValue2());
+        };
+        var linear = KMeansModel.of(meanPoints, metric);
+        var indexed = KMeansModel.indexed(meanPoints, metric);
+        var queries = KMeansTest.getSample(2000);
+        lengthCalculations.set(0);
+        for (var query : queries) {
+            assertEquals(linear.predict(query), indexed.predict(query));
+        }
+        long indexedCalculations = lengthCalculations.get() - (long) queries.size() * meanPoints.size();
+        assertTrue(indexedCalculations < (long) queries.size() * meanPoints.size() / 4);
+    }
+
+    @Test
+    void invalidModelTest() {
+        assertThrows(IllegalArgumentException.class, () -> KMeansModel.of(new ArrayList<ExampleData>(), KMeansTest.getDataLength()));
+        var model = KMeansModel.of(KMeansTest.getSample(3), KMeansTest.getDataLength());
+        assertThrows(IllegalArgumentException.class, () -> model.predict(KMeansTest.getSample(3), new int[2]));
+    }
+}
@@ -1,10 +1,23 @@
 package tests;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import pl.ksitarski.simplekmeans.*;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
@@ -94,6 +107,28 @@ class KMeansTest {
         assertTrue(stdDevBefore > stdDevAfter);
     }
 
+    @Test
+    void sharedExecutorTest() {
+        var executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        try {
+            var kMeans = new KMeansBuilder<>(getBigCorrectSample(), COUNT, getDataToMean(), getDataLength()).setExecutorService(executor).build();
+            var otherKMeans = new KMeansBuilder<>(getBigCorrectSample(), COUNT, getDataToMean(), getDataLength()).setExecutorService(executor).build();
+            kMeans.iterate(5);
+            otherKMeans.iterate(5);
+            double stdDevBefore = kMeans.getStandardDeviation();
+            for (int i = 0; i < 10; i++) {
+                kMeans.iterate(1);
+                otherKMeans.iterate(1);
+            }
+            double stdDevAfter = kMeans.getStandardDeviation();
+            assertTrue(stdDevBefore > stdDevAfter);
+            kMeans.close();
+            assertFalse(executor.isShutdown());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
 
     //test that checks correctness on  small predefined sample
     @Test
@@ -126,6 +161,439 @@ class KMeansTest {
 
     }
 
+    @Test
+    void seedingPredefinedSampleTest() {
+        ArrayList<ExampleData> arrayList = new ArrayList<>();
+        arrayList.add(new ExampleData(2, 3));
+        arrayList.add(new ExampleData(1, -1));
+        arrayList.add(new ExampleData(4, 5));
+        arrayList.add(new ExampleData(-2, 0));
+        arrayList.add(new ExampleData(54, -65));
+        arrayList.add(new ExampleData(33, 54));
+        for (var seeding : Seeding.values()) {
+            var kMeans = new KMeansBuilder<>(arrayList, arrayList.size(), getDataToMean(), getDataLength()).setSeeding(seeding).build();
+            kMeans.iterate(1);
+            var results = kMeans.getCalculatedMeanPoints();
+            for (var input : arrayList) {
+                assertTrue(results.contains(input));
+            }
+        }
+    }
+
+    @Test
+    void seedingBigSampleTest() {
+        for (var seeding : Seeding.values()) {
+            var kMeans = new KMeansBuilder<>(getBigCorrectSample(), COUNT, getDataToMean(), getDataLength())
+                    .setSeeding(seeding)
+                    .setThreadCount(THREAD_COUNT)
+                    .build();
+            kMeans.iterate(5);
+            double stdDevBefore = kMeans.getStandardDeviation();
+            kMeans.iterate(10);
+            double stdDevAfter = kMeans.getStandardDeviation();
+            assertTrue(stdDevBefore >= stdDevAfter);
+            assertEquals(COUNT, distinctCount(kMeans.getCalculatedMeanPoints()));
+        }
+    }
+
+    @Test
+    void triangleInequalityOptimizationTest() {
+        //5 result points use bounds to the second closest point, 25 use bounds to every point
+        for (int resultCount : new int[]{5, 25}) {
+            var kMeans = new KMeansBuilder<>(getBigCorrectSample().subList(0, 2000), resultCount, getDataToMean(), getMetricDataLength())
+                    .setOptimizationTriangleInequality()
+                    .setSeeding(Seeding.KMEANS_PLUS_PLUS)
+                    .setThreadCount(THREAD_COUNT)
+                    .build();
+            kMeans.iterate(300);
+            var means = kMeans.getCalculatedMeanPoints();
+            var clusters = kMeans.getClusters();
+            for (int c = 0; c < clusters.size(); c++) {
+                for (var point : clusters.get(c).getPoints()) {
+                    double length = getMetricDataLength().getLength(means.get(c), point);
+                    for (var mean : means) {
+                        assertTrue(length <= getMetricDataLength().getLength(mean, point));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void labelsTest() {
+        var sample = getBigCorrectSample();
+        var kMeans = new KMeansBuilder<>(sample, COUNT, getDataToMean(), getDataLength()).setThreadCount(THREAD_COUNT).build();
+        kMeans.iterate(5);
+        var labels = kMeans.getLabels();
+        var clusters = kMeans.getClusters();
+        assertEquals(sample.size(), labels.length);
+        int[] sizes = new int[COUNT];
+        for (int i = 0; i < labels.length; i++) {
+            sizes[labels[i]]++;
+            assertTrue(clusters.get(labels[i]).getPoints().contains(sample.get(i)));
+        }
+        for (int i = 0; i < COUNT; i++) {
+            assertEquals(clusters.get(i).getSize(), sizes[i]);
+        }
+    }
+
+    @Test
+    void iterationStatisticsTest() {
+        var sample = getBigCorrectSample();
+        List<IterationStatistics> statistics = new ArrayList<>();
+        List<String> logged = new ArrayList<>();
+        var kMeans = new KMeansBuilder<>(sample, COUNT, getDataToMean(), getDataLength())
+                .setThreadCount(THREAD_COUNT)
+                .onIteration(statistics::add)
+                .setLogger(logged::add)
+                .build();
+        kMeans.iterate(3);
+        kMeans.iterate(2);
+
+        assertEquals(5, statistics.size());
+        assertEquals(5, logged.size());
+        for (int i = 0; i < statistics.size(); i++) {
+            var iteration = statistics.get(i);
+            assertEquals(i + 1, iteration.getIteration());
+            //lengths from all points to all mean points, and from old to new mean points
+            assertTrue(iteration.getLengthCalculations() >= (long) BIG_COUNT * COUNT);
+            assertTrue(iteration.getLengthCalculations() <= (long) BIG_COUNT * COUNT + COUNT);
+            assertEquals(0, iteration.getSkippedLengthCalculations());
+            assertTrue(iteration.getAssignmentNanos() + iteration.getMeanNanos() <= iteration.getTotalNanos());
+            assertFalse(iteration.getThreadNanos().isEmpty());
+        }
+        assertEquals(BIG_COUNT, statistics.get(0).getChangedPoints());
+        assertTrue(statistics.get(4).getChangedPoints() < BIG_COUNT);
+        assertEquals(statistics.get(4), kMeans.getLastIterationStatistics());
+        assertEquals(kMeans.getStandardDeviation() * BIG_COUNT, kMeans.getInertia(), 1e-6 * kMeans.getInertia());
+        assertEquals(kMeans.getInertia(), kMeans.getLastIterationStatistics().getInertia());
+
+        var optimized = new KMeansBuilder<>(sample, COUNT, getDataToMean(), getMetricDataLength())
+                .setOptimizationTriangleInequality()
+                .build();
+        optimized.iterate(10);
+        assertTrue(optimized.getLastIterationStatistics().getSkippedLengthCalculations() > 0);
+    }
+
+    @Test
+    void convergenceCriteriaTest() {
+        var sample = getBigCorrectSample();
+        var kMeans = new KMeansBuilder<>(sample, COUNT, getDataToMean(), getDataLength()).setThreadCount(THREAD_COUNT).build();
+        kMeans.iterateUntilConverged(new ConvergenceCriteria().setMaxChangedPointsFraction(0.0));
+        assertEquals(0, kMeans.getLastIterationStatistics().getChangedPoints());
+        assertEquals(0.0, kMeans.getLastIterationStatistics().getMaxMeanPointShift());
+        int iterations = kMeans.getLastIterationStatistics().getIteration();
+        kMeans.iterateUntilConverged(new ConvergenceCriteria().setMaxMeanPointShift(0.0));
+        assertEquals(iterations + 1, kMeans.getLastIterationStatistics().getIteration());
+
+        kMeans = new KMeansBuilder<>(sample, COUNT, getDataToMean(), getDataLength()).build();
+        kMeans.iterateUntilConverged(new ConvergenceCriteria().setMaxChangedPointsFraction(0.0).setMaxIterations(2));
+        assertEquals(2, kMeans.getLastIterationStatistics().getIteration());
+        assertEquals(1.0, kMeans.getProgress());
+
+        kMeans = new KMeansBuilder<>(sample, COUNT, getDataToMean(), getDataLength()).build();
+        kMeans.iterateUntilConverged(new ConvergenceCriteria().setMaxChangedPointsFraction(0.0).setTimeBudget(Duration.ofNanos(1)));
+        assertEquals(1, kMeans.getLastIterationStatistics().getIteration());
+
+        assertThrows(IllegalArgumentException.class, () -> new KMeansBuilder<>(sample, COUNT, getDataToMean(), getDataLength()).build()
+                .iterateUntilConverged(new ConvergenceCriteria()));
+    }
+
+    @Test
+    void parallelMeanTest() {
+        var sample = getBigCorrectSample();
+        //few clusters, so that each of them is split between threads
+        var kMeans = new KMeansBuilder<>(sample, 2, getDataToMean(), getDataLength())
+                .setThreadCount(THREAD_COUNT)
+                .setMeanAccumulator(getMeanAccumulator())
+                .build();
+        kMeans.iterate(5);
+        var means = kMeans.getCalculatedMeanPoints();
+        var clusters = kMeans.getClusters();
+        for (int i = 0; i < clusters.size(); i++) {
+            var expected = getDataToMean().getMean(clusters.get(i).getPoints());
+            assertEquals(expected.getValue1(), means.get(i).getValue1(), 1e-9);
+            assertEquals(expected.getValue2(), means.get(i).getValue2(), 1e-9);
+        }
+    }
+
+    @Test
+    void seedTest() {
+        var sample = getBigCorrectSample();
+        Supplier<KMeans<ExampleData>> build = () -> new KMeansBuilder<>(sample, COUNT, getDataToMean(), getDataLength())
+                .setThreadCount(THREAD_COUNT)
+                .setSeeding(Seeding.KMEANS_PARALLEL)
+                .setSeed(42)
+                .build();
+        var first = build.get().iterate(5);
+        var second = build.get().iterate(5);
+        assertEquals(first.getCalculatedMeanPoints(), second.getCalculatedMeanPoints());
+        assertEquals(first.getInertia(), second.getInertia());
+    }
+
+    @Test
+    void bestOfTest() {
+        var sample = getBigCorrectSample();
+        var criteria = new ConvergenceCriteria().setMaxChangedPointsFraction(0.0).setMaxIterations(100);
+        List<IterationStatistics> statistics = Collections.synchronizedList(new ArrayList<>());
+        var best = new KMeansBuilder<>(sample, COUNT, getDataToMean(), getDataLength())
+                .setThreadCount(THREAD_COUNT)
+                .setSeed(7)
+                .onIteration(statistics::add)
+                .buildBestOf(6, criteria, 1.5);
+        var again = new KMeansBuilder<>(sample, COUNT, getDataToMean(), getDataLength())
+                .setThreadCount(THREAD_COUNT)
+                .setSeed(7)
+                .buildBestOf(6, criteria, 1.5);
+        assertEquals(again.getInertia(), best.getInertia());
+        assertEquals(again.getCalculatedMeanPoints(), best.getCalculatedMeanPoints());
+        again.close();
+        assertEquals(BIG_COUNT, sumOfSizes(best.getClusters()));
+        double lowestInertia = Double.POSITIVE_INFINITY;
+        for (var iteration : statistics) {
+            lowestInertia = Math.min(lowestInertia, iteration.getInertia());
+        }
+        assertEquals(lowestInertia, best.getInertia());
+        //the best run can be iterated further, although threads of the runs are shut down
+        best.iterate(1);
+        best.close();
+
+        var sequential = new KMeansBuilder<>(sample, COUNT, getDataToMean(), getDataLength()).setSeed(7).buildBestOf(3, criteria);
+        assertTrue(sequential.getInertia() > 0);
+    }
+
+    @Test
+    void initialMeanPointsTest() {
+        var sample = getBigCorrectSample();
+        var kMeans = new KMeansBuilder<>(sample, COUNT, getDataToMean(), getDataLength()).setThreadCount(THREAD_COUNT).build();
+        kMeans.iterateUntilConverged(new ConvergenceCriteria().setMaxChangedPointsFraction(0.0));
+        var warm = new KMeansBuilder<>(sample, COUNT, getDataToMean(), getDataLength())
+                .setInitialMeanPoints(kMeans.getCalculatedMeanPoints())
+                .build();
+        warm.iterate(1);
+        assertEquals(kMeans.getCalculatedMeanPoints(), warm.getCalculatedMeanPoints());
+
+        assertThrows(IllegalArgumentException.class, () -> new KMeansBuilder<>(sample, COUNT, getDataToMean(), getDataLength())
+                .setInitialMeanPoints(sample.subList(0, COUNT - 1)));
+    }
+
+    @Test
+    void updateTest() {
+        var sample = getBigCorrectSample();
+        var kMeans = new KMeansBuilder<>(sample, COUNT, getDataToMean(), getMetricDataLength())
+                .setThreadCount(THREAD_COUNT)
+                .setOptimizationTriangleInequality()
+                .build();
+        var criteria = new ConvergenceCriteria().setMaxChangedPointsFraction(0.0).setMaxIterations(500);
+        kMeans.iterateUntilConverged(criteria);
+
+        int changedCount = BIG_COUNT / 100;
+        List<ExampleData> added = new ArrayList<>();
+        int[] removed = new int[changedCount];
+        for (int i = 0; i < changedCount; i++) {
+            added.add(new ExampleData());
+            removed[i] = i * 100;
+        }
+        var updated = kMeans.update(added, removed);
+        assertEquals(BIG_COUNT, updated.getLabels().length);
+        assertEquals(BIG_COUNT, sumOfSizes(updated.getClusters()));
+        assertTrue(updated.getClusters().stream().anyMatch(cluster -> cluster.getPoints().contains(sample.get(1))));
+        assertFalse(updated.getClusters().stream().anyMatch(cluster -> cluster.getPoints().contains(sample.get(0))));
+
+        updated.iterate(1);
+        assertTrue(updated.getLastIterationStatistics().getSkippedLengthCalculations() > (long) BIG_COUNT * COUNT / 2);
+        updated.iterateUntilConverged(criteria);
+        assertEquals(BIG_COUNT, sumOfSizes(updated.getClusters()));
+    }
+
+    @Test
+    void checkpointTest(@TempDir Path directory) {
+        var sample = getBigCorrectSample();
+        var file = directory.resolve("kmeans.checkpoint");
+        var kMeans = new KMeansBuilder<>(sample, COUNT, getDataToMean(), getDataLength())
+                .setThreadCount(THREAD_COUNT)
+                .setCheckpoint(file, 5, getPointSerializer())
+                .build();
+        kMeans.iterate(12);
+        kMeans.flushCheckpoints();
+        var meansAfterTen = new KMeansBuilder<>(sample, COUNT, getDataToMean(), getDataLength())
+                .resumeFrom(file, getPointSerializer())
+                .build();
+        meansAfterTen.iterate(2);
+        assertEquals(12, meansAfterTen.getLastIterationStatistics().getIteration());
+        assertEquals(kMeans.getCalculatedMeanPoints(), meansAfterTen.getCalculatedMeanPoints());
+
+        //updated KMeans has different input points, so it does not overwrite checkpoints
+        kMeans.update(new ArrayList<>(), new int[]{0}).iterate(10);
+        kMeans.flushCheckpoints();
+        var resumedAfterUpdate = new KMeansBuilder<>(sample, COUNT, getDataToMean(), getDataLength())
+                .resumeFrom(file, getPointSerializer())
+                .build();
+        resumedAfterUpdate.iterate(1);
+        assertEquals(11, resumedAfterUpdate.getLastIterationStatistics().getIteration());
+
+        List<KMeans<ExampleData>> stopped = new ArrayList<>();
+        stopped.add(new KMeansBuilder<>(sample, COUNT, getDataToMean(), getDataLength())
+                .setCheckpoint(file, 100, getPointSerializer())
+                .onIteration(statistics -> stopped.get(0).earlyStop())
+                .build());
+        stopped.get(0).iterate(50);
+        stopped.get(0).flushCheckpoints();
+        var resumed = new KMeansBuilder<>(sample, COUNT, getDataToMean(), getDataLength())
+                .resumeFrom(file, getPointSerializer())
+                .build();
+        resumed.iterate(1);
+        assertEquals(2, resumed.getLastIterationStatistics().getIteration());
+
+        assertThrows(IllegalArgumentException.class, () -> new KMeansBuilder<>(sample.subList(1, BIG_COUNT), COUNT, getDataToMean(), getDataLength())
+                .resumeFrom(file, getPointSerializer()));
+    }
+
+    @Test
+    void clustersWithoutPointsTest() {
+        var sample = getBigCorrectSample();
+        var kMeans = new KMeansBuilder<>(sample, COUNT, getDataToMean(), getDataLength())
+                .setMeanAccumulator(getMeanAccumulator())
+                .setOptimizationClustersWithoutPoints()
+                .setThreadCount(THREAD_COUNT)
+                .build();
+        kMeans.iterate(5);
+        double stdDevBefore = kMeans.getStandardDeviation();
+        kMeans.iterate(10);
+        assertTrue(stdDevBefore > kMeans.getStandardDeviation());
+        assertEquals(BIG_COUNT, sumOfSizes(kMeans.getClusters()));
+
+        var clusters = kMeans.getClusters();
+        var labels = kMeans.getLabels();
+        for (int c = 0; c < COUNT; c++) {
+            var points = clusters.get(c).getPoints();
+            assertEquals(clusters.get(c).getSize(), points.size());
+            var mean = getDataToMean().getMean(points);
+            assertEquals(mean.getValue1(), clusters.get(c).getMean().getValue1(), 1e-9);
+            assertEquals(mean.getValue2(), clusters.get(c).getMean().getValue2(), 1e-9);
+        }
+        for (int i = 0; i < 100; i++) {
+            assertTrue(clusters.get(labels[i]).getPoints().contains(sample.get(i)));
+        }
+
+        kMeans.iterate(1);
+        var staleCluster = kMeans.getClusters().get(0);
+        kMeans.iterate(1);
+        assertThrows(IllegalStateException.class, staleCluster::getPoints);
+    }
+
+    @Test
+    void miniBatchTest() {
+        var sample = getBigCorrectSample();
+        var lloyd = new KMeansBuilder<>(sample, COUNT, getDataToMean(), getDataLength())
+                .setSeeding(Seeding.KMEANS_PLUS_PLUS)
+                .build();
+        lloyd.iterate(50);
+        var miniBatch = new KMeansBuilder<>(sample, COUNT, getDataToMean(), getDataLength())
+                .setSeeding(Seeding.KMEANS_PLUS_PLUS)
+                .setMeanAccumulator(getMeanAccumulator())
+                .setMiniBatch(500)
+                .setThreadCount(THREAD_COUNT)
+                .build();
+        miniBatch.iterate(200);
+        assertEquals(500, sumOfSizes(miniBatch.getClusters()));
+
+        double lloydLength = sumOfLengths(sample, lloyd.getCalculatedMeanPoints(), lloyd.getLabels());
+        double miniBatchLength = sumOfLengths(sample, miniBatch.getCalculatedMeanPoints(), miniBatch.getLabels());
+        assertTrue(miniBatchLength < lloydLength * 1.15);
+    }
+
+    @Test
+    void coresetTest() {
+        var sample = getBigCorrectSample();
+        var lloyd = new KMeansBuilder<>(sample, COUNT, getDataToMean(), getDataLength())
+                .setSeeding(Seeding.KMEANS_PLUS_PLUS)
+                .build();
+        lloyd.iterate(30);
+        var coreset = new KMeansBuilder<>(sample, COUNT, getDataToMean(), getDataLength())
+                .setSeeding(Seeding.KMEANS_PLUS_PLUS)
+                .setMeanAccumulator(getMeanAccumulator())
+                .setCoreset(2000)
+                .setThreadCount(THREAD_COUNT)
+                .setSeed(3)
+                .build();
+        coreset.iterate(30);
+        assertTrue(sumOfSizes(coreset.getClusters()) <= 2000);
+        assertTrue(coreset.getLastIterationStatistics().getLengthCalculations() <= 2000L * COUNT + COUNT);
+        assertThrows(RuntimeException.class, () -> coreset.update(new ArrayList<>(), new int[0]));
+
+        var full = coreset.assignFullData();
+        assertEquals(BIG_COUNT, sumOfSizes(full.getClusters()));
+        assertEquals(BIG_COUNT, full.getLabels().length);
+        assertTrue(full.getInertia() < lloyd.getInertia() * 1.15);
+        //weighted inertia of the coreset estimates inertia of all points
+        assertEquals(full.getInertia(), coreset.getInertia(), full.getInertia() * 0.2);
+
+        assertThrows(RuntimeException.class, lloyd::assignFullData);
+        assertThrows(IllegalArgumentException.class, () -> new KMeansBuilder<>(sample, COUNT, getDataToMean(), getDataLength()).setCoreset(100).build());
+    }
+
+    @Test
+    void weightedPointsTest() {
+        List<ExampleData> distinct = getBigCorrectSample().subList(0, 2000);
+        List<ExampleData> sample = new ArrayList<>();
+        double[] counts = new double[distinct.size()];
+        for (int i = 0; i < distinct.size(); i++) {
+            counts[i] = 1 + i % 5;
+            for (int j = 0; j < counts[i]; j++) {
+                var point = distinct.get(i);
+                sample.add(new ExampleData(point.getValue1(), point.getValue2()));
+            }
+        }
+        var initialMeanPoints = distinct.subList(0, COUNT);
+
+        var plain = new KMeansBuilder<>(sample, COUNT, getDataToMean(), getDataLength())
+                .setInitialMeanPoints(initialMeanPoints)
+                .build();
+        plain.iterate(10);
+        var weighted = new KMeansBuilder<>(distinct, COUNT, getDataToMean(), getDataLength())
+                .setMeanAccumulator(getMeanAccumulator())
+                .setWeights(counts)
+                .setInitialMeanPoints(initialMeanPoints)
+                .setThreadCount(THREAD_COUNT)
+                .build();
+        weighted.iterate(10);
+        var compressed = new KMeansBuilder<>(sample, COUNT, getDataToMean(), getDataLength())
+                .setMeanAccumulator(getMeanAccumulator())
+                .setCompressDuplicates()
+                .setInitialMeanPoints(initialMeanPoints)
+                .setThreadCount(THREAD_COUNT)
+                .build();
+        compressed.iterate(10);
+
+        assertEquals(weighted.getCalculatedMeanPoints(), compressed.getCalculatedMeanPoints());
+        for (int c = 0; c < COUNT; c++) {
+            var plainMean = plain.getCalculatedMeanPoints().get(c);
+            var weightedMean = weighted.getCalculatedMeanPoints().get(c);
+            assertEquals(plainMean.getValue1(), weightedMean.getValue1(), 1e-9);
+            assertEquals(plainMean.getValue2(), weightedMean.getValue2(), 1e-9);
+        }
+        assertEquals(plain.getInertia(), compressed.getInertia(), 1e-6);
+        assertEquals(plain.getStandardDeviation(), compressed.getStandardDeviation(), 1e-9);
+
+        assertEquals(distinct.size(), sumOfSizes(compressed.getClusters()));
+        double weightSum = 0;
+        for (var cluster : compressed.getClusters()) {
+            weightSum += cluster.getWeight();
+        }
+        assertEquals(sample.size(), weightSum, 1e-9);
+        assertTrue(compressed.getLastIterationStatistics().getLengthCalculations() <= (long) distinct.size() * COUNT + COUNT);
+        var labels = compressed.getLabels();
+        assertEquals(sample.size(), labels.length);
+        var plainLabels = plain.getLabels();
+        for (int i = 0; i < sample.size(); i++) {
+            assertEquals(plainLabels[i], labels[i]);
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> new KMeansBuilder<>(distinct, COUNT, getDataToMean(), getDataLength()).setWeights(new double[1]));
+        assertThrows(IllegalArgumentException.class, () -> new KMeansBuilder<>(distinct, COUNT, getDataToMean(), getDataLength()).setWeights(counts).build());
+    }
+
     @Test
     void iterateUntilTest() {
         ArrayList<ExampleData> arrayList = new ArrayList<>();
@@ -184,6 +652,30 @@ class KMeansTest {
         return count;
     }
 
+    private static int sumOfSizes(List<KMeansCluster<ExampleData>> clusters) {
+        int sum = 0;
+        for (var cluster : clusters) {
+            sum += cluster.getSize();
+        }
+        return sum;
+    }
+
+    private static double sumOfLengths(List<ExampleData> points, List<ExampleData> means, int[] labels) {
+        double sum = 0;
+        for (int i = 0; i < points.size(); i++) {
+            sum += getDataLength().getLength(means.get(labels[i]), points.get(i));
+        }
+        return sum;
+    }
+
+    private static int distinctCount(List list) {
+        List distinct = new ArrayList();
+        for (var element : list) {
+            if (!distinct.contains(element)) distinct.add(element);
+        }
+        return distinct.size();
+    }
+
     private static boolean doListsDiffer(List list1, List list2) {
         if (list1.size() != list2.size()) return true;
         for (int i = 0; i < list1.size(); i++) {
@@ -192,11 +684,38 @@ class KMeansTest {
         return false;
     }
 
-    private static DataLength<ExampleData> getDataLength() {
+    static List<ExampleData> getSample(int count) {
+        List<ExampleData> sample = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            sample.add(new ExampleData());
+        }
+        return sample;
+    }
+
+    static DataLength<ExampleData> getDataLength() {
         return (obj1, obj2) -> Math.abs(square(obj1.getValue1() - obj2.getValue1()) + square(obj1.getValue2() - obj2.getValue2()));
     }
 
-    private static DataToMean<ExampleData> getDataToMean() {
+    private static DataLength<ExampleData> getMetricDataLength() {
+        return (obj1, obj2) -> Math.sqrt(square(obj1.getValue1() - obj2.getValue1()) + square(obj1.getValue2() - obj2.getValue2()));
+    }
+
+    static PointSerializer<ExampleData> getPointSerializer() {
+        return new PointSerializer<>() {
+            @Override
+            public void write(ExampleData point, DataOutput output) throws IOException {
+                output.writeDouble(point.getValue1());
+                output.writeDouble(point.getValue2());
+            }
+
+            @Override
+            public ExampleData read(DataInput input) throws IOException {
+                return new ExampleData(input.readDouble(), input.readDouble());
+            }
+        };
+    }
+
+    static DataToMean<ExampleData> getDataToMean() {
         return input -> {
             double sumValue1 = 0;
             double sumValue2 = 0;
@@ -210,6 +729,26 @@ class KMeansTest {
         };
     }
 
+    static Supplier<MeanAccumulator<ExampleData>> getMeanAccumulator() {
+        return () -> new MeanAccumulator<>() {
+            private double sumValue1 = 0;
+            private double sumValue2 = 0;
+            private double weightSum = 0;
+
+            @Override
+            public void add(ExampleData point, double weight) {
+                sumValue1 += point.getValue1() * weight;
+                sumValue2 += point.getValue2() * weight;
+                weightSum += weight;
+            }
+
+            @Override
+            public ExampleData getMean() {
+                return new ExampleData(sumValue1/weightSum, sumValue2/weightSum);
+            }
+        };
+    }
+
     private static double square(double v) {
         return v * v;
     }
@@ -0,0 +1,189 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+import pl.ksitarski.simplekmeans.*;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardedKMeansTest {
+
+    private final int COUNT = 10;
+    private final int BIG_COUNT = 20000; //should be bigger than 100
+    private final int SHARD_COUNT = 3;
+
+    @Test
+    void sameResultsAsKMeansTest() {
+        var sample = KMeansTest.getSample(BIG_COUNT);
+        var initialMeanPoints = sample.subList(0, COUNT);
+        var kMeans = new KMeansBuilder<>(sample, COUNT, KMeansTest.getDataToMean(), KMeansTest.getDataLength())
+                .setInitialMeanPoints(initialMeanPoints)
+                .build();
+        kMeans.iterate(10);
+        var sharded = new ShardedKMeansBuilder<>(getWorkers(sample), COUNT, KMeansTest.getMeanAccumulator(), KMeansTest.getDataLength())
+                .setInitialMeanPoints(initialMeanPoints)
+                .build();
+        sharded.iterate(10);
+        sharded.close();
+
+        for (int c = 0; c < COUNT; c++) {
+            var expected = kMeans.getCalculatedMeanPoints().get(c);
+            var actual = sharded.getCalculatedMeanPoints().get(c);
+            assertEquals(expected.getValue1(), actual.getValue1(), 1e-9);
+            assertEquals(expected.getValue2(), actual.getValue2(), 1e-9);
+            assertEquals(kMeans.getClusters().get(c).getSize(), sharded.getClusterSizes()[c]);
+        }
+        assertEquals(kMeans.getInertia(), sharded.getInertia(), 1e-6);
+        assertEquals(kMeans.getStandardDeviation(), sharded.getStandardDeviation(), 1e-9);
+    }
+
+    @Test
+    void socketShardsTest() {
+        var sample = KMeansTest.getSample(BIG_COUNT);
+        var workers = getWorkers(sample);
+        List<ShardServer<ExampleData>> servers = new ArrayList<>();
+        List<SocketShard<ExampleData>> shards = new ArrayList<>();
+        try {
+            for (var worker : workers) {
+                var server = ShardServer.start(worker, 0, KMeansTest.getPointSerializer());
+                servers.add(server);
+                shards.add(SocketShard.connect("localhost", server.getPort(), KMeansTest.getPointSerializer()));
+            }
+            var criteria = new ConvergenceCriteria().setMaxChangedPointsFraction(0.0).setMaxIterations(100);
+            var remote = new ShardedKMeansBuilder<>(shards, COUNT, KMeansTest.getMeanAccumulator(), KMeansTest.getDataLength())
+                    .setSeeding(Seeding.KMEANS_PLUS_PLUS)
+                    .setSeed(7)
+                    .build()
+                    .iterateUntilConverged(criteria);
+            var local = new ShardedKMeansBuilder<>(getWorkers(sample), COUNT, KMeansTest.getMeanAccumulator(), KMeansTest.getDataLength())
+                    .setSeeding(Seeding.KMEANS_PLUS_PLUS)
+                    .setSeed(7)
+                    .build()
+                    .iterateUntilConverged(criteria);
+            assertEquals(local.getCalculatedMeanPoints(), remote.getCalculatedMeanPoints());
+            assertEquals(local.getInertia(), remote.getInertia());
+
+            long size = 0;
+            for (var clusterSize : remote.getClusterSizes()) {
+                size += clusterSize;
+            }
+            assertEquals(BIG_COUNT, size);
+
+            //errors of workers are passed to the coordinator
+            assertThrows(RuntimeException.class, () -> shards.get(0).assign(new ArrayList<>()));
+            assertEquals(workers.get(0).getSize(), shards.get(0).getSize());
+        } finally {
+            for (var shard : shards) {
+                shard.close();
+            }
+            for (var server : servers) {
+                server.close();
+            }
+            for (var worker : workers) {
+                worker.close();
+            }
+        }
+    }
+
+    @Test
+    void failedResponseTest() throws IOException {
+        var worker = new ShardWorker<>(KMeansTest.getSample(BIG_COUNT), KMeansTest.getMeanAccumulator(), KMeansTest.getDataLength());
+        var failWrites = new AtomicBoolean(false);
+        var writtenPoints = new AtomicInteger();
+        PointSerializer<ExampleData> serializer = new PointSerializer<>() {
+            @Override
+            public void write(ExampleData point, DataOutput output) throws IOException {
+                //fails after a part of the response is written
+                if (failWrites.get() && writtenPoints.incrementAndGet() > 1) {
+                    throw new IllegalStateException("cannot write point");
+                }
+                KMeansTest.getPointSerializer().write(point, output);
+            }
+
+            @Override
+            public ExampleData read(DataInput input) throws IOException {
+                return KMeansTest.getPointSerializer().read(input);
+            }
+        };
+        try (var server = ShardServer.start(worker, 0, serializer);
+             var shard = SocketShard.connect("localhost", server.getPort(), serializer, Duration.ofSeconds(30))) {
+            failWrites.set(true);
+            assertThrows(RuntimeException.class, () -> shard.sample(COUNT, 3));
+            failWrites.set(false);
+            //the connection is still usable after an error
+            assertEquals(worker.sample(COUNT, 3), shard.sample(COUNT, 3));
+
+            //a request that failed partway on the coordinator cannot be finished, so the connection is closed
+            writtenPoints.set(0);
+            failWrites.set(true);
+            assertThrows(IllegalStateException.class, () -> shard.assign(KMeansTest.getSample(COUNT)));
+            failWrites.set(false);
+            assertThrows(UncheckedIOException.class, () -> shard.sample(COUNT, 3));
+        }
+
+        //a server that never responds makes calls fail after the timeout
+        try (var silentServer = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+             var shard = SocketShard.connect("localhost", silentServer.getLocalPort(), serializer, Duration.ofMillis(200))) {
+            assertThrows(UncheckedIOException.class, shard::getSize);
+        }
+        worker.close();
+    }
+
+    @Test
+    void newCoordinatorTest() {
+        var worker = new ShardWorker<>(KMeansTest.getSample(BIG_COUNT), KMeansTest.getMeanAccumulator(), KMeansTest.getDataLength());
+        var criteria = new ConvergenceCriteria().setMaxChangedPointsFraction(0.0).setMaxIterations(100);
+        var converged = new ShardedKMeansBuilder<>(Collections.singletonList(worker), COUNT, KMeansTest.getMeanAccumulator(), KMeansTest.getDataLength())
+                .setSeed(7)
+                .build()
+                .iterateUntilConverged(criteria);
+        //labels of a previous coordinator are not compared with the first assignment of a new one
+        var local = new ShardedKMeansBuilder<>(Collections.singletonList(worker), COUNT, KMeansTest.getMeanAccumulator(), KMeansTest.getDataLength())
+                .setInitialMeanPoints(converged.getCalculatedMeanPoints())
+                .build()
+                .iterate(1);
+        assertEquals(BIG_COUNT, local.getLastIterationStatistics().getChangedPoints());
+        try (var server = ShardServer.start(worker, 0, KMeansTest.getPointSerializer())) {
+            for (int i = 0; i < 2; i++) {
+                try (var shard = SocketShard.connect("localhost", server.getPort(), KMeansTest.getPointSerializer())) {
+                    var remote = new ShardedKMeansBuilder<>(Collections.singletonList(shard), COUNT, KMeansTest.getMeanAccumulator(), KMeansTest.getDataLength())
+                            .setInitialMeanPoints(converged.getCalculatedMeanPoints())
+                            .build()
+                            .iterate(1);
+                    assertEquals(BIG_COUNT, remote.getLastIterationStatistics().getChangedPoints());
+                }
+            }
+        }
+        worker.close();
+    }
+
+    @Test
+    void tooFewPointsTest() {
+        var workers = getWorkers(KMeansTest.getSample(SHARD_COUNT));
+        assertThrows(IllegalArgumentException.class, () -> new ShardedKMeansBuilder<>(workers, COUNT, KMeansTest.getMeanAccumulator(), KMeansTest.getDataLength()).build());
+        assertThrows(IllegalArgumentException.class, () -> new ShardedKMeansBuilder<>(new ArrayList<ShardWorker<ExampleData>>(), COUNT, KMeansTest.getMeanAccumulator(), KMeansTest.getDataLength()));
+    }
+
+    private List<ShardWorker<ExampleData>> getWorkers(List<ExampleData> sample) {
+        List<ShardWorker<ExampleData>> workers = new ArrayList<>();
+        for (int s = 0; s < SHARD_COUNT; s++) {
+            var part = sample.subList(s * sample.size() / SHARD_COUNT, (s + 1) * sample.size() / SHARD_COUNT);
+            workers.add(new ShardWorker<>(part, KMeansTest.getMeanAccumulator(), KMeansTest.getDataLength(), 2));
+        }
+        return workers;
+    }
+}
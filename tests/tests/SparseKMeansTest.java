@@ -0,0 +1,133 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+import pl.ksitarski.simplekmeans.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SparseKMeansTest {
+
+    private final int COUNT = 4;
+    private final int POINT_COUNT = 4000;
+    private final int DIMENSIONS = 100000;
+    private final int TOPIC_WORDS = 200;
+    private final int WORDS_PER_POINT = 20;
+    private final int THREAD_COUNT = 4;
+
+    private int[] rowOffsets;
+    private int[] columns;
+    private double[] values;
+
+    @Test
+    void findsTopicsTest() {
+        var points = getTopics(POINT_COUNT);
+        var kMeans = new SparseKMeansBuilder(points, COUNT)
+                .setThreadCount(THREAD_COUNT)
+                .setSeed(3)
+                .build();
+        kMeans.iterateUntilStandardDeviationDeltaSmallerOrEqualTo(1e-9, 50);
+
+        //every cluster contains points of a single topic
+        var labels = kMeans.getLabels();
+        int[] topicOfCluster = new int[COUNT];
+        Arrays.fill(topicOfCluster, -1);
+        for (int i = 0; i < POINT_COUNT; i++) {
+            int topic = i % COUNT;
+            if (topicOfCluster[labels[i]] == -1) {
+                topicOfCluster[labels[i]] = topic;
+            }
+            assertEquals(topicOfCluster[labels[i]], topic);
+        }
+        assertEquals(POINT_COUNT, Arrays.stream(kMeans.getClusterSizes()).sum());
+        assertTrue(kMeans.getStandardDeviation() < 0.9);
+    }
+
+    @Test
+    void meanPointsTest() {
+        var points = getTopics(POINT_COUNT);
+        var kMeans = new SparseKMeansBuilder(points, COUNT).setSeed(5).build();
+        kMeans.iterate(3);
+        var labels = kMeans.getLabels();
+        var meanPoints = kMeans.getCalculatedMeanPoints();
+
+        //mean points are normalized sums of normalized points of the last assignment
+        for (int c = 0; c < COUNT; c++) {
+            double[] sum = new double[DIMENSIONS];
+            for (int i = 0; i < POINT_COUNT; i++) {
+                if (labels[i] == c) {
+                    double norm = 0;
+                    for (int j = rowOffsets[i]; j < rowOffsets[i + 1]; j++) {
+                        norm += values[j] * values[j];
+                    }
+                    for (int j = rowOffsets[i]; j < rowOffsets[i + 1]; j++) {
+                        sum[columns[j]] += values[j] / Math.sqrt(norm);
+                    }
+                }
+            }
+            double norm = Math.sqrt(dot(sum, sum));
+            for (int j = 0; j < DIMENSIONS; j++) {
+                assertEquals(sum[j] / norm, meanPoints.get(c)[j], 1e-12);
+            }
+            assertEquals(1.0, dot(meanPoints.get(c), meanPoints.get(c)), 1e-9);
+        }
+
+        var parallel = new SparseKMeansBuilder(points, COUNT).setSeed(5).setThreadCount(THREAD_COUNT).build();
+        parallel.iterate(3);
+        assertArrayEquals(labels, parallel.getLabels());
+    }
+
+    @Test
+    void fromDenseTest() {
+        double[] dense = {0, 2, 0, 1, 0, 0, 3, 0, 0, 0, 0, 0};
+        var points = SparseVectors.fromDense(dense, 4);
+        assertEquals(3, points.getPointCount());
+        assertEquals(3, points.getNonZeroCount());
+        var kMeans = new SparseKMeansBuilder(points, 3).build().iterate(1);
+        assertEquals(3, kMeans.getLabels().length);
+
+        assertThrows(IllegalArgumentException.class, () -> new SparseVectors(4, new int[]{0, 2}, new int[]{1, 1}, new double[]{1, 1}));
+        assertThrows(IllegalArgumentException.class, () -> new SparseVectors(4, new int[]{0, 1}, new int[]{4}, new double[]{1}));
+        assertThrows(IllegalArgumentException.class, () -> new SparseVectors(4, new int[]{0, 2}, new int[]{1}, new double[]{1}));
+    }
+
+    /**
+     * Points of topic <i>t</i> contain only words of that topic, with positive TF-IDF-like values.
+     */
+    private SparseVectors getTopics(int count) {
+        var random = new Random(17);
+        rowOffsets = new int[count + 1];
+        columns = new int[count * WORDS_PER_POINT];
+        values = new double[count * WORDS_PER_POINT];
+        for (int i = 0; i < count; i++) {
+            int topicStart = (i % COUNT) * (DIMENSIONS / COUNT);
+            rowOffsets[i] = i * WORDS_PER_POINT;
+            var words = new TreeSet<Integer>();
+            while (words.size() < WORDS_PER_POINT) {
+                words.add(topicStart + random.nextInt(TOPIC_WORDS));
+            }
+            int j = rowOffsets[i];
+            for (var word : words) {
+                columns[j] = word;
+                values[j] = 0.1 + random.nextDouble();
+                j++;
+            }
+        }
+        rowOffsets[count] = count * WORDS_PER_POINT;
+        return new SparseVectors(DIMENSIONS, rowOffsets, columns, values);
+    }
+
+    private static double dot(double[] a, double[] b) {
+        double sum = 0;
+        for (int j = 0; j < a.length; j++) {
+            sum += a[j] * b[j];
+        }
+        return sum;
+    }
+}
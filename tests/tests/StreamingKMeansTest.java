@@ -0,0 +1,64 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+import pl.ksitarski.simplekmeans.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StreamingKMeansTest {
+
+    private final ExampleData[] CENTERS = {new ExampleData(-30, -30), new ExampleData(0, 30), new ExampleData(30, -10)};
+
+    @Test
+    void separatedClustersTest() {
+        var points = getSeparatedSample(3000);
+        var kMeans = new StreamingKMeansBuilder<>(CENTERS.length, KMeansTest.getMeanAccumulator(), KMeansTest.getDataLength()).build();
+        //first points come from different clusters, so every cluster gets its own mean point
+        for (int i = 0; i < CENTERS.length; i++) {
+            kMeans.accept(points.get(i));
+        }
+        kMeans.acceptAll(points.subList(CENTERS.length, points.size()).parallelStream());
+
+        assertEquals(points.size(), kMeans.getAcceptedCount());
+        long countSum = 0;
+        for (var count : kMeans.getAssignedCounts()) {
+            countSum += count;
+        }
+        assertEquals(points.size(), countSum);
+        for (var center : CENTERS) {
+            boolean found = false;
+            for (var mean : kMeans.getCalculatedMeanPoints()) {
+                if (KMeansTest.getDataLength().getLength(center, mean) < 1) {
+                    found = true;
+                }
+            }
+            assertTrue(found);
+        }
+    }
+
+    @Test
+    void resultsBeforeResultCountPointsTest() {
+        var kMeans = new StreamingKMeansBuilder<>(5, KMeansTest.getMeanAccumulator(), KMeansTest.getDataLength()).build();
+        kMeans.acceptAll(List.of(new ExampleData(1, 1), new ExampleData(2, 2)));
+        assertEquals(2, kMeans.getCalculatedMeanPoints().size());
+        assertTrue(kMeans.getCalculatedMeanPoints().contains(new ExampleData(1, 1)));
+    }
+
+    private List<ExampleData> getSeparatedSample(int countPerCluster) {
+        var random = new Random(32);
+        List<ExampleData> points = new ArrayList<>();
+        for (int i = 0; i < countPerCluster; i++) {
+            for (var center : CENTERS) {
+                points.add(new ExampleData(center.getValue1() + random.nextGaussian(), center.getValue2() + random.nextGaussian()));
+            }
+        }
+        Collections.shuffle(points.subList(CENTERS.length, points.size()), random);
+        return points;
+    }
+}